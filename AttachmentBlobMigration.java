@@ -0,0 +1,65 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Schema migration V7: the AttachmentBlobs table behind AttachmentStore, plus the two Attachments columns that
+ * point into it (contentHash) and hold the text AttachmentSearchIndex extracted from PDFs (extractedText).
+ * Binary and large-text types differ per engine; columns that already exist are left alone. Existing content
+ * stays in Attachments.content until AttachmentStore.migrateLegacyContent moves it.
+ */
+public class AttachmentBlobMigration implements SchemaMigrator.Step {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentBlobMigration.class);
+
+    // What SchemaHistory checksums in place of a script
+    public static String checksumSource() {
+        return "AttachmentBlobs (hash CHAR(64) PRIMARY KEY, content BLOB, compressed BOOLEAN NOT NULL, " +
+               "originalSize BIGINT NOT NULL, refCount INT NOT NULL)\n" +
+               "Attachments.contentHash CHAR(64)\n" +
+               "Attachments.extractedText CLOB\n";
+    }
+
+    @Override
+    public void apply(Connection conn, SchemaMigrator.Engine engine) throws SQLException {
+        String blob;
+        String text;
+        switch (engine) {
+            case POSTGRESQL:
+                blob = "BYTEA";
+                text = "TEXT";
+                break;
+            case MYSQL:
+                blob = "LONGBLOB";
+                text = "LONGTEXT";
+                break;
+            default:
+                blob = "BLOB";
+                text = "CLOB";
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS AttachmentBlobs (hash CHAR(64) PRIMARY KEY, content " + blob + ", " +
+                         "compressed BOOLEAN NOT NULL, originalSize BIGINT NOT NULL, refCount INT NOT NULL)");
+            addColumn(conn, stmt, "contentHash", "CHAR(64)");
+            addColumn(conn, stmt, "extractedText", text);
+        }
+    }
+
+    private static void addColumn(Connection conn, Statement stmt, String column, String type) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, SchemaMigrator.identifier(meta, "Attachments"),
+                                            SchemaMigrator.identifier(meta, column))) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        stmt.execute("ALTER TABLE Attachments ADD COLUMN " + column + " " + type);
+        LOGGER.info("Added Attachments.{}", column);
+    }
+}
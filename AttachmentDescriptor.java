@@ -0,0 +1,40 @@
+package com.example.financial;
+
+/**
+ * Metadata of a stored attachment without its content. Listing APIs return these; the bytes are only read
+ * when a file is downloaded (DatabaseService.copyAttachmentContent) or opened (DatabaseService.getAttachment).
+ */
+public class AttachmentDescriptor {
+    private final int id;
+    private final String entityType;
+    private final String entityId;
+    private final int contactId;
+    private final String contactName;
+    private final String fileName;
+    private final long fileSize;
+    private final String uploadDate;
+    private final String invoiceType;
+
+    public AttachmentDescriptor(int id, String entityType, String entityId, int contactId, String contactName,
+                                String fileName, long fileSize, String uploadDate, String invoiceType) {
+        this.id = id;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.contactId = contactId;
+        this.contactName = contactName;
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+        this.uploadDate = uploadDate;
+        this.invoiceType = invoiceType;
+    }
+
+    public int getId() { return id; }
+    public String getEntityType() { return entityType; }
+    public String getEntityId() { return entityId; }
+    public int getContactId() { return contactId; }
+    public String getContactName() { return contactName; }
+    public String getFileName() { return fileName; }
+    public long getFileSize() { return fileSize; }
+    public String getUploadDate() { return uploadDate; }
+    public String getInvoiceType() { return invoiceType; }
+}
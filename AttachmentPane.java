@@ -6,7 +6,6 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -65,7 +64,7 @@ public class AttachmentPane extends VBox {
 
       searchField = new TextField();
       searchField.setPromptText(messages.getString("searchAttachments"));
-      searchField.textProperty().addListener((obs, oldVal, newVal) -> searchAttachments(newVal));
+      new SearchFieldController<>(searchField, dbService::searchAttachments, this::showSearchResults);
 
       attachmentCountLabel = new Label("Attachments: 0");
 
@@ -85,8 +84,7 @@ public class AttachmentPane extends VBox {
       File file = fileChooser.showOpenDialog(getScene().getWindow());
       if (file != null) {
           try {
-              byte[] fileData = java.nio.file.Files.readAllBytes(file.toPath());
-              dbService.addAttachment(currentTransactionId, file.getName(), fileData);
+              dbService.addAttachment(currentTransactionId, file.getName(), file.toPath());
               auditService.logAction("user", "attachments", currentTransactionId, "Added attachment: " + file.getName(), null, null);
               loadAttachments(currentTransactionType, currentTransactionId);
               new Alert(Alert.AlertType.INFORMATION, "Attachment added: " + file.getName()).showAndWait();
@@ -108,14 +106,14 @@ public class AttachmentPane extends VBox {
 
   private void downloadAttachment(int attachmentId, String fileName) {
       try {
-          byte[] content = dbService.getAttachmentContent(attachmentId);
           FileChooser fileChooser = new FileChooser();
           fileChooser.setTitle("Save Attachment");
           fileChooser.setInitialFileName(fileName);
           File file = fileChooser.showSaveDialog(getScene().getWindow());
           if (file != null) {
-              try (FileOutputStream fos = new FileOutputStream(file)) {
-                  fos.write(content);
+              if (!dbService.copyAttachmentContent(attachmentId, file.toPath())) {
+                  new Alert(Alert.AlertType.WARNING, "Attachment content not found; nothing was saved").showAndWait();
+                  return;
               }
               auditService.logAction("user", "attachments", String.valueOf(attachmentId), "Downloaded attachment: " + fileName, null, null);
               new Alert(Alert.AlertType.INFORMATION, "Attachment saved to " + file.getAbsolutePath()).showAndWait();
@@ -130,12 +128,12 @@ public class AttachmentPane extends VBox {
       currentTransactionId = transactionId;
       CompletableFuture.runAsync(() -> {
           try {
-              List<Attachment> attachments = transactionType.equalsIgnoreCase("invoices") ?
+              List<AttachmentDescriptor> attachments = transactionType.equalsIgnoreCase("invoices") ?
                   dbService.getAttachmentsForInvoice(transactionId) : 
                   dbService.getAttachments(transactionType, transactionId);
               javafx.application.Platform.runLater(() -> {
                   attachmentsTable.getItems().clear();
-                  for (Attachment att : attachments) {
+                  for (AttachmentDescriptor att : attachments) {
                       Map<String, Object> map = new HashMap<>();
                       map.put("invoiceId", att.getEntityId());
                       map.put("fileName", att.getFileName());
@@ -163,42 +161,28 @@ public class AttachmentPane extends VBox {
       }, FinancialManagementApp.executor);
   }
 
-  private void searchAttachments(String query) {
-      CompletableFuture.runAsync(() -> {
-          try {
-              List<Attachment> attachments = dbService.searchAttachments(query);
-              LOGGER.info("Fetched {} attachments for query '{}'", attachments.size(), query);
-              for (Attachment att : attachments) {
-                  LOGGER.info("Attachment: entityId={}, fileName={}, contactName={}, invoiceType={}", 
-                      att.getEntityId(), att.getFileName(), att.getContactName(), att.getInvoiceType());
-              }
-              javafx.application.Platform.runLater(() -> {
-                  attachmentsTable.getItems().clear();
-                  for (Attachment att : attachments) {
-                      Map<String, Object> map = new HashMap<>();
-                      map.put("invoiceId", att.getEntityId());
-                      map.put("fileName", att.getFileName());
-                      String invoiceType = att.getInvoiceType();
-                      if ("Sale".equalsIgnoreCase(invoiceType)) {
-                          map.put("customerName", att.getContactName() != null ? att.getContactName() : "");
-                          map.put("supplierName", "");
-                      } else if ("Import Purchase".equalsIgnoreCase(invoiceType)) {
-                          map.put("customerName", "");
-                          map.put("supplierName", att.getContactName() != null ? att.getContactName() : "");
-                      } else {
-                          map.put("customerName", "");
-                          map.put("supplierName", "");
-                      }
-                      map.put("uploadDate", att.getUploadDate());
-                      map.put("attachmentId", att.getId());
-                      attachmentsTable.getItems().add(map);
-                  }
-                  attachmentCountLabel.setText("Attachments: " + attachmentsTable.getItems().size());
-                  attachmentsTable.refresh();
-              });
-          } catch (DatabaseException e) {
-              ErrorHandler.handleException(e, "Failed to search attachments", null);
+  private void showSearchResults(List<AttachmentDescriptor> attachments) {
+      attachmentsTable.getItems().clear();
+      for (AttachmentDescriptor att : attachments) {
+          Map<String, Object> map = new HashMap<>();
+          map.put("invoiceId", att.getEntityId());
+          map.put("fileName", att.getFileName());
+          String invoiceType = att.getInvoiceType();
+          if ("Sale".equalsIgnoreCase(invoiceType)) {
+              map.put("customerName", att.getContactName() != null ? att.getContactName() : "");
+              map.put("supplierName", "");
+          } else if ("Import Purchase".equalsIgnoreCase(invoiceType)) {
+              map.put("customerName", "");
+              map.put("supplierName", att.getContactName() != null ? att.getContactName() : "");
+          } else {
+              map.put("customerName", "");
+              map.put("supplierName", "");
           }
-      }, FinancialManagementApp.executor);
+          map.put("uploadDate", att.getUploadDate());
+          map.put("attachmentId", att.getId());
+          attachmentsTable.getItems().add(map);
+      }
+      attachmentCountLabel.setText("Attachments: " + attachmentsTable.getItems().size());
+      attachmentsTable.refresh();
   }
 } // Add this closing brace to close the class
\ No newline at end of file
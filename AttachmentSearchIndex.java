@@ -0,0 +1,239 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over attachment file names, entity IDs, contact names and the text extracted from
+ * PDF attachments (kept in Attachments.extractedText, added by schema migration V7, so files are only parsed once).
+ *
+ * The index is built with one query on first search and then kept current by DatabaseService, which calls
+ * reindex() after every committed add or update. Queries are ANDed words; each word also matches as a
+ * prefix so results show up while the user is still typing. Hits rank by where they matched: file name and
+ * entity ID above contact name above document text.
+ */
+public class AttachmentSearchIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentSearchIndex.class);
+    private static final int NAME_WEIGHT = 8;
+    private static final int CONTACT_WEIGHT = 4;
+    private static final int TEXT_WEIGHT = 1;
+    private static final int MAX_TEXT_WEIGHT = 3; // Repeating a word in the body only helps so much
+
+    private static final String DOCUMENT_SQL =
+        "SELECT a.id, a.entityType, a.entityId, a.contactId, " +
+        "CASE WHEN i.invoiceType = 'Import Purchase' THEN COALESCE(s.name, c.name, a.contactName, '') " +
+        "     WHEN i.invoiceType = 'Sale' THEN COALESCE(c.name, s.name, a.contactName, '') " +
+        "     ELSE COALESCE(c.name, s.name, a.contactName, '') END AS contactName, " +
+        "a.fileName, a.fileSize, a.uploadDate, i.invoiceType, a.extractedText " +
+        "FROM Attachments a " +
+        "LEFT JOIN Invoices i ON a.entityId = i.invoiceId " +
+        "LEFT JOIN Customers c ON i.customerId = c.id " +
+        "LEFT JOIN Suppliers s ON i.supplierId = s.id";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, AttachmentDescriptor> documents = new HashMap<>();
+    private final Map<Integer, Map<String, Integer>> termsByDocument = new HashMap<>();
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private volatile DataSource loadedFrom;
+    // Set before the load query runs; reindex() calls during the load are queued and applied once it finishes,
+    // since the load's snapshot may predate their commit
+    private volatile DataSource loading;
+    private final Set<Integer> pendingReindex = ConcurrentHashMap.newKeySet();
+
+    public List<AttachmentDescriptor> search(DataSource dataSource, String query, int limit) throws SQLException {
+        ensureLoaded(dataSource);
+        Set<String> words = new LinkedHashSet<>(tokenize(query));
+        lock.readLock().lock();
+        try {
+            if (words.isEmpty()) {
+                List<AttachmentDescriptor> all = new ArrayList<>(documents.values());
+                all.sort((a, b) -> Integer.compare(b.getId(), a.getId()));
+                return all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+            }
+            Map<Integer, Integer> scores = null;
+            for (String word : words) {
+                Map<Integer, Integer> wordScores = matches(word);
+                if (scores == null) {
+                    scores = wordScores;
+                } else {
+                    scores.keySet().retainAll(wordScores.keySet());
+                    scores.replaceAll((id, score) -> score + wordScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? Integer.compare(b.getKey(), a.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+            List<AttachmentDescriptor> results = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                results.add(documents.get(ranked.get(i).getKey()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best score per document for the word, counting exact hits double over prefix hits
+    private Map<Integer, Integer> matches(String word) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Integer>> term : postings.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            int factor = term.getKey().equals(word) ? 2 : 1;
+            for (Map.Entry<Integer, Integer> posting : term.getValue().entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    // Re-reads one attachment after a committed insert or update; a no-op until a load has started
+    public void reindex(DataSource dataSource, int attachmentId) throws SQLException {
+        if (loadedFrom != dataSource) {
+            if (loading != dataSource) {
+                return;
+            }
+            pendingReindex.add(attachmentId);
+            // The load may have finished and drained the queue just before the add; then this call does the work
+            if (loadedFrom != dataSource || !pendingReindex.remove(attachmentId)) {
+                return;
+            }
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(DOCUMENT_SQL + " WHERE a.id = ?")) {
+            stmt.setInt(1, attachmentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                lock.writeLock().lock();
+                try {
+                    remove(attachmentId);
+                    if (rs.next()) {
+                        add(rs);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    public void invalidate() {
+        loadedFrom = null;
+    }
+
+    private void ensureLoaded(DataSource dataSource) throws SQLException {
+        if (loadedFrom == dataSource) {
+            return;
+        }
+        synchronized (this) {
+            if (loadedFrom == dataSource) {
+                return;
+            }
+            long start = System.nanoTime();
+            loading = dataSource;
+            lock.writeLock().lock();
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(DOCUMENT_SQL);
+                 ResultSet rs = stmt.executeQuery()) {
+                documents.clear();
+                termsByDocument.clear();
+                postings.clear();
+                while (rs.next()) {
+                    add(rs);
+                }
+                loadedFrom = dataSource;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            LOGGER.info("Indexed {} attachments ({} terms) in {} ms", documents.size(), postings.size(),
+                (System.nanoTime() - start) / 1_000_000);
+            for (Integer attachmentId : new ArrayList<>(pendingReindex)) {
+                if (pendingReindex.remove(attachmentId)) {
+                    reindex(dataSource, attachmentId);
+                }
+            }
+        }
+    }
+
+    // Caller holds the write lock
+    private void add(ResultSet rs) throws SQLException {
+        AttachmentDescriptor document = new AttachmentDescriptor(rs.getInt("id"), rs.getString("entityType"),
+            rs.getString("entityId"), rs.getInt("contactId"), rs.getString("contactName"), rs.getString("fileName"),
+            rs.getLong("fileSize"), rs.getString("uploadDate"), rs.getString("invoiceType"));
+        Map<String, Integer> terms = new HashMap<>();
+        weigh(terms, document.getFileName(), NAME_WEIGHT);
+        weigh(terms, document.getEntityId(), NAME_WEIGHT);
+        weigh(terms, document.getContactName(), CONTACT_WEIGHT);
+        Map<String, Integer> text = new HashMap<>();
+        for (String word : tokenize(rs.getString("extractedText"))) {
+            text.merge(word, TEXT_WEIGHT, (a, b) -> Math.min(a + b, MAX_TEXT_WEIGHT));
+        }
+        text.forEach((word, weight) -> terms.merge(word, weight, Math::max));
+
+        documents.put(document.getId(), document);
+        termsByDocument.put(document.getId(), terms);
+        terms.forEach((word, weight) -> postings.computeIfAbsent(word, w -> new HashMap<>()).put(document.getId(), weight));
+    }
+
+    // Caller holds the write lock
+    private void remove(int attachmentId) {
+        documents.remove(attachmentId);
+        Map<String, Integer> terms = termsByDocument.remove(attachmentId);
+        if (terms == null) {
+            return;
+        }
+        for (String word : terms.keySet()) {
+            Map<Integer, Integer> ids = postings.get(word);
+            if (ids != null) {
+                ids.remove(attachmentId);
+                if (ids.isEmpty()) {
+                    postings.remove(word);
+                }
+            }
+        }
+    }
+
+    private static void weigh(Map<String, Integer> terms, String value, int weight) {
+        for (String word : tokenize(value)) {
+            terms.merge(word, weight, Math::max);
+        }
+    }
+
+    // Lower-cased runs of letters and digits, in order and with repeats
+    static List<String> tokenize(String value) {
+        if (value == null || value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean wordChar = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(value.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
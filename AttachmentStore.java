@@ -0,0 +1,230 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content-addressed storage for attachment bytes. Each distinct content is stored once in AttachmentBlobs,
+ * keyed by its SHA-256, and Attachments rows point at it through contentHash. refCount tracks how many
+ * attachments share a blob; the blob is deleted when the last one lets go. The table and the contentHash
+ * column come from schema migration V7.
+ *
+ * Content is deflated on the way in unless the file type is already compressed (images, archives, office
+ * formats); attachments.compress=false turns compression off. Rows written before this store existed keep
+ * their bytes in Attachments.content until migrateLegacyContent moves them over.
+ */
+public class AttachmentStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentStore.class);
+    private static final boolean COMPRESS = Boolean.parseBoolean(System.getProperty("attachments.compress", "true"));
+    private static final int MIGRATION_BATCH = 50;
+    private static final Set<String> STORED_AS_IS = new HashSet<>(Arrays.asList(
+        "jpg", "jpeg", "png", "gif", "webp", "heic", "tif", "tiff", "bmp",
+        "zip", "gz", "tgz", "7z", "rar", "bz2", "xz", "zst",
+        "docx", "xlsx", "pptx", "odt", "ods", "mp3", "mp4", "mov"));
+
+    /**
+     * Stores the file's content (or adds a reference to an identical blob) on the caller's transaction, which
+     * must not be in auto-commit mode, and returns its hash. The file is read twice, once to hash and once to store; it is never held in memory.
+     */
+    public String store(Connection conn, Path file, String fileName) throws SQLException, IOException {
+        String hash = sha256(file);
+        if (addReference(conn, hash)) {
+            LOGGER.debug("Attachment {} deduplicated to blob {}", fileName, hash);
+            return hash;
+        }
+        boolean compress = COMPRESS && shouldCompress(fileName);
+        long size = Files.size(file);
+        // Savepoint so a duplicate key does not abort the surrounding transaction (PostgreSQL would)
+        Savepoint beforeInsert = conn.setSavepoint();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO AttachmentBlobs (hash, content, compressed, originalSize, refCount) VALUES (?, ?, ?, ?, 1)");
+             InputStream in = Files.newInputStream(file);
+             InputStream content = compress ? new DeflaterInputStream(in, new Deflater(Deflater.BEST_SPEED)) : in) {
+            stmt.setString(1, hash);
+            if (compress) {
+                stmt.setBinaryStream(2, content);
+            } else {
+                stmt.setBinaryStream(2, content, size);
+            }
+            stmt.setBoolean(3, compress);
+            stmt.setLong(4, size);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            // Integrity constraint violation: another transaction stored the same content first
+            conn.rollback(beforeInsert);
+            if (!addReference(conn, hash)) {
+                throw e;
+            }
+        }
+        return hash;
+    }
+
+    // Drops one reference on the caller's transaction and deletes the blob when none are left
+    public void release(Connection conn, String hash) throws SQLException {
+        if (hash == null) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE AttachmentBlobs SET refCount = refCount - 1 WHERE hash = ?")) {
+            stmt.setString(1, hash);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM AttachmentBlobs WHERE hash = ? AND refCount <= 0")) {
+            stmt.setString(1, hash);
+            if (stmt.executeUpdate() > 0) {
+                LOGGER.debug("Deleted unreferenced attachment blob {}", hash);
+            }
+        }
+    }
+
+    // Copies a blob's original (uncompressed) bytes to out; returns false if the blob does not exist
+    public boolean copyTo(Connection conn, String hash, OutputStream out) throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT content, compressed FROM AttachmentBlobs WHERE hash = ?")) {
+            stmt.setString(1, hash);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                boolean compressed = rs.getBoolean("compressed");
+                try (InputStream raw = rs.getBinaryStream("content")) {
+                    if (raw != null) {
+                        try (InputStream content = compressed ? new InflaterInputStream(raw) : raw) {
+                            content.transferTo(out);
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves content still held in Attachments.content into the blob store, one row per transaction so the
+     * application keeps working while it runs. Safe to rerun; returns the number of rows migrated.
+     */
+    public int migrateLegacyContent(DataSource dataSource) throws SQLException, IOException {
+        int migrated = 0;
+        long start = System.nanoTime();
+        while (true) {
+            int[] ids = nextLegacyBatch(dataSource);
+            if (ids.length == 0) {
+                break;
+            }
+            for (int id : ids) {
+                if (migrateRow(dataSource, id)) {
+                    migrated++;
+                }
+            }
+        }
+        if (migrated > 0) {
+            LOGGER.info("Migrated {} attachments to the blob store in {} ms", migrated, (System.nanoTime() - start) / 1_000_000);
+        }
+        return migrated;
+    }
+
+    private int[] nextLegacyBatch(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id FROM Attachments WHERE contentHash IS NULL AND content IS NOT NULL ORDER BY id LIMIT " + MIGRATION_BATCH);
+             ResultSet rs = stmt.executeQuery()) {
+            int[] ids = new int[MIGRATION_BATCH];
+            int count = 0;
+            while (rs.next()) {
+                ids[count++] = rs.getInt(1);
+            }
+            return Arrays.copyOf(ids, count);
+        }
+    }
+
+    private boolean migrateRow(DataSource dataSource, int id) throws SQLException, IOException {
+        Path temp = Files.createTempFile("attachment-" + id, ".tmp");
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                String fileName;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT fileName, content FROM Attachments WHERE id = ? AND contentHash IS NULL FOR UPDATE")) {
+                    stmt.setInt(1, id);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false; // Migrated or replaced meanwhile
+                        }
+                        fileName = rs.getString("fileName");
+                        try (InputStream content = rs.getBinaryStream("content")) {
+                            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    }
+                }
+                String hash = store(conn, temp, fileName);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "UPDATE Attachments SET contentHash = ?, content = NULL WHERE id = ?")) {
+                    stmt.setString(1, hash);
+                    stmt.setInt(2, id);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private boolean addReference(Connection conn, String hash) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE AttachmentBlobs SET refCount = refCount + 1 WHERE hash = ?")) {
+            stmt.setString(1, hash);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    static boolean shouldCompress(String fileName) {
+        int dot = fileName == null ? -1 : fileName.lastIndexOf('.');
+        return dot < 0 || !STORED_AS_IS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.financial;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Pulls searchable text out of attachment files for AttachmentSearchIndex. Only PDFs are read; text is cut off
+ * after attachments.index.maxTextChars characters (default 100000) so a large scan cannot bloat the index.
+ */
+final class AttachmentTextExtractor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttachmentTextExtractor.class);
+    private static final int MAX_CHARS = Integer.getInteger("attachments.index.maxTextChars", 100_000);
+
+    private AttachmentTextExtractor() {
+    }
+
+    static boolean supports(String fileName) {
+        return fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    // Returns the extracted text, "" when the file has none or cannot be parsed, and null for unsupported types
+    static String extract(Path file, String fileName) {
+        if (!supports(fileName)) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        try (PdfDocument pdf = new PdfDocument(new PdfReader(file.toFile()))) {
+            for (int page = 1; page <= pdf.getNumberOfPages() && text.length() < MAX_CHARS; page++) {
+                text.append(PdfTextExtractor.getTextFromPage(pdf.getPage(page))).append('\n');
+            }
+        } catch (Exception e) {
+            // Encrypted or damaged PDFs are still indexed by name
+            LOGGER.warn("Could not extract text from {}: {}", fileName, e.getMessage());
+            return "";
+        }
+        return text.length() > MAX_CHARS ? text.substring(0, MAX_CHARS) : text.toString();
+    }
+}
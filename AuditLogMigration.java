@@ -0,0 +1,57 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Schema migration V3: AuditService used to write to AuditLog while getAuditLogs reads AuditLogs, so nothing
+ * logged ever reached the audit trail. AuditService now writes to AuditLogs; this creates AuditLogs where
+ * schema.sql did not, and copies the rows already in AuditLog across. AuditLog itself is left in place.
+ */
+public class AuditLogMigration implements SchemaMigrator.Step {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLogMigration.class);
+    private static final String COLUMNS =
+        "timestamp TIMESTAMP, userId VARCHAR(64), entityType VARCHAR(64), entityId VARCHAR(64), " +
+        "action VARCHAR(255), description VARCHAR(1024)";
+
+    // What SchemaHistory checksums in place of a script
+    public static String checksumSource() {
+        return "AuditLogs (" + COLUMNS + ")\n" +
+               "AuditLog(user, tableName, recordId, action, oldValue, newValue, timestamp) -> AuditLogs\n";
+    }
+
+    @Override
+    public void apply(Connection conn, SchemaMigrator.Engine engine) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (Statement stmt = conn.createStatement()) {
+            if (!tableExists(conn, meta, "AuditLogs")) {
+                String id = engine == SchemaMigrator.Engine.POSTGRESQL ? "id SERIAL PRIMARY KEY" : "id INT AUTO_INCREMENT PRIMARY KEY";
+                stmt.execute("CREATE TABLE AuditLogs (" + id + ", " + COLUMNS + ")");
+                LOGGER.info("Created AuditLogs");
+            }
+            if (!tableExists(conn, meta, "AuditLog")) {
+                return;
+            }
+            String quote = meta.getIdentifierQuoteString().trim();
+            String user = quote + SchemaMigrator.identifier(meta, "user") + quote; // a reserved word on most engines
+            int copied = stmt.executeUpdate(
+                "INSERT INTO AuditLogs (timestamp, userId, entityType, entityId, action, description) " +
+                "SELECT timestamp, " + user + ", tableName, recordId, action, " +
+                "CASE WHEN oldValue IS NULL AND newValue IS NULL THEN NULL " +
+                "ELSE CONCAT(COALESCE(oldValue, ''), ' -> ', COALESCE(newValue, '')) END FROM AuditLog");
+            LOGGER.info("Copied {} row(s) from AuditLog to AuditLogs", copied);
+        }
+    }
+
+    private static boolean tableExists(Connection conn, DatabaseMetaData meta, String table) throws SQLException {
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, SchemaMigrator.identifier(meta, table), new String[] {"TABLE"})) {
+            return rs.next();
+        }
+    }
+}
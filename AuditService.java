@@ -6,30 +6,193 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
-public class AuditService {
+/**
+ * Audit trail writer. logAction() only stamps the entry and puts it in a lock-free RingBuffer, so saves do not
+ * wait on an audit INSERT; a single writer thread flushes the buffer to AuditLogs in JDBC batches every
+ * audit.flushMillis, or sooner once audit.batchSize entries are waiting.
+ *
+ * Nothing is dropped: when the buffer is full the caller waits up to FULL_WAIT_MILLIS for the writer and then
+ * writes its entry itself, and a batch is written in one transaction, rolled back and retried up to
+ * MAX_ATTEMPTS times before its entries are logged as errors. close(), called from FinancialManagementApp.stop(),
+ * waits for callers already inside logAction() and then drains the buffer before returning.
+ */
+public class AuditService implements AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(AuditService.class);
+    private static final int CAPACITY = Integer.getInteger("audit.bufferSize", 8192);
+    private static final int BATCH_SIZE = Integer.getInteger("audit.batchSize", 200);
+    private static final long FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("audit.flushMillis", 500));
+    private static final long DRAIN_TIMEOUT_MILLIS = Integer.getInteger("audit.drainTimeoutMillis", 30_000);
+    private static final long FULL_WAIT_MILLIS = 1_000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String INSERT =
+        "INSERT INTO AuditLogs (timestamp, userId, entityType, entityId, action, description) VALUES (?, ?, ?, ?, ?, ?)";
+
     private final DatabaseService dbService;
+    private final RingBuffer<Entry> buffer = new RingBuffer<>(CAPACITY);
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Callers between their running check and their offer; close() waits for them before the final drain
+    private final AtomicInteger offering = new AtomicInteger();
 
     public AuditService(DatabaseService dbService) {
         this.dbService = dbService;
+        writer = new Thread(this::writeLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
     }
 
     public void logAction(String user, String tableName, String recordId, String action, String oldValue, String newValue) {
+        Entry entry = new Entry(LocalDateTime.now(), user, tableName, recordId, action, describe(oldValue, newValue));
+        boolean queued;
+        offering.incrementAndGet();
+        try {
+            queued = running && enqueue(entry);
+        } finally {
+            offering.decrementAndGet();
+        }
+        if (!queued) {
+            writeNow(entry);
+            return;
+        }
+        if (buffer.size() >= BATCH_SIZE) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean enqueue(Entry entry) {
+        if (buffer.offer(entry)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FULL_WAIT_MILLIS);
+        while (System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            if (buffer.offer(entry)) {
+                return true;
+            }
+        }
+        LOGGER.warn("Audit buffer full for {} ms; writing on the caller thread", FULL_WAIT_MILLIS);
+        return false;
+    }
+
+    // AuditLogs keeps one free-text description; old and new values go there when a caller passes them
+    private static String describe(String oldValue, String newValue) {
+        if (oldValue == null && newValue == null) {
+            return null;
+        }
+        return (oldValue == null ? "" : oldValue) + " -> " + (newValue == null ? "" : newValue);
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || buffer.size() > 0) {
+            if (running && buffer.size() < BATCH_SIZE) {
+                LockSupport.parkNanos(this, FLUSH_NANOS);
+            }
+            while (buffer.drainTo(batch, BATCH_SIZE) > 0) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            // One transaction per batch, so a batch that fails part-way leaves no rows for the retry to duplicate
+            try (Connection conn = DatabaseService.dataSource.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT)) {
+                    for (Entry entry : batch) {
+                        bind(stmt, entry);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+                LOGGER.debug("Wrote {} audit log entries", batch.size());
+                return;
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.error("Failed to write {} audit log entries (attempt {} of {})", batch.size(), attempt, MAX_ATTEMPTS, e);
+                if (attempt < MAX_ATTEMPTS) {
+                    LockSupport.parkNanos(FLUSH_NANOS);
+                }
+            }
+        }
+        for (Entry entry : batch) {
+            LOGGER.error("Audit log entry lost: {} by {} on {} (ID: {}) at {}", entry.action, entry.user, entry.tableName, entry.recordId, entry.time);
+        }
+    }
+
+    private void writeNow(Entry entry) {
         try (Connection conn = DatabaseService.dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "INSERT INTO AuditLog (`user`, tableName, recordId, action, oldValue, newValue, timestamp) " +
-                 "VALUES (?, ?, ?, ?, ?, ?, NOW())")) {
-            stmt.setString(1, user);
-            stmt.setString(2, tableName);
-            stmt.setString(3, recordId);
-            stmt.setString(4, action);
-            stmt.setString(5, oldValue);
-            stmt.setString(6, newValue);
+             PreparedStatement stmt = conn.prepareStatement(INSERT)) {
+            bind(stmt, entry);
             stmt.executeUpdate();
-            LOGGER.info("Audit log entry created: {} by {} on {} (ID: {})", action, user, tableName, recordId);
         } catch (SQLException e) {
-            LOGGER.error("Failed to log audit action", e);
+            LOGGER.error("Failed to log audit action: {} by {} on {} (ID: {})", entry.action, entry.user, entry.tableName, entry.recordId, e);
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Entry entry) throws SQLException {
+        stmt.setTimestamp(1, Timestamp.valueOf(entry.time));
+        stmt.setString(2, entry.user);
+        stmt.setString(3, entry.tableName);
+        stmt.setString(4, entry.recordId);
+        stmt.setString(5, entry.action);
+        stmt.setString(6, entry.description);
+    }
+
+    /** Stops accepting into the buffer and waits for the writer to flush what is already there. */
+    @Override
+    public void close() {
+        running = false;
+        // A caller that saw running == true may still be offering; once none are, no entry can land after the drain
+        while (offering.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join(DRAIN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            LOGGER.error("Audit writer still has {} entries after {} ms; they will be lost at exit", buffer.size(), DRAIN_TIMEOUT_MILLIS);
+            return;
+        }
+        // Entries that landed while the writer was exiting; with the writer gone this thread is the only consumer
+        List<Entry> rest = new ArrayList<>();
+        if (buffer.drainTo(rest, Integer.MAX_VALUE) > 0) {
+            writeBatch(rest);
+        }
+    }
+
+    private static final class Entry {
+        final LocalDateTime time;
+        final String user;
+        final String tableName;
+        final String recordId;
+        final String action;
+        final String description;
+
+        Entry(LocalDateTime time, String user, String tableName, String recordId, String action, String description) {
+            this.time = time;
+            this.user = user;
+            this.tableName = tableName;
+            this.recordId = recordId;
+            this.action = action;
+            this.description = description;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outstanding balance of every customer and supplier, kept in memory.
+ *
+ * A balance is the total of unpaid invoices (Sale for customers, Import Purchase for suppliers) minus the
+ * payments of that contact, the same figures the old per-contact queries produced. All balances are loaded
+ * with one grouped query on first use; afterwards DatabaseService reports each committed change to an invoice
+ * or payment as a delta, so the map is only reloaded when the DataSource changes.
+ *
+ * Writers bracket their database work with beginChange()/endChange(). A load only keeps its result when no
+ * change was in flight or finished while it ran, so a delta is never lost or counted twice.
+ */
+public class ContactBalanceService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContactBalanceService.class);
+    private static final int MAX_LOAD_ATTEMPTS = 5;
+
+    private static final String BALANCES_SQL =
+        "SELECT 'C' AS kind, customerId AS contactId, SUM(totalAmount) AS amount FROM Invoices " +
+        "WHERE customerId IS NOT NULL AND invoiceType = 'Sale' AND status != 'PAID' GROUP BY customerId " +
+        "UNION ALL " +
+        "SELECT 'C', customerId, -SUM(amount) FROM Payments " +
+        "WHERE customerId IS NOT NULL AND supplierId IS NULL GROUP BY customerId " +
+        "UNION ALL " +
+        "SELECT 'S', supplierId, SUM(totalAmount) FROM Invoices " +
+        "WHERE supplierId IS NOT NULL AND invoiceType = 'Import Purchase' AND status != 'PAID' GROUP BY supplierId " +
+        "UNION ALL " +
+        "SELECT 'S', supplierId, -SUM(amount) FROM Payments " +
+        "WHERE supplierId IS NOT NULL AND customerId IS NULL GROUP BY supplierId";
+
+    private final Map<Integer, Double> customerBalances = new ConcurrentHashMap<>();
+    private final Map<Integer, Double> supplierBalances = new ConcurrentHashMap<>();
+    private final AtomicInteger changesInFlight = new AtomicInteger();
+    private final AtomicLong changesCompleted = new AtomicLong();
+    private volatile DataSource loadedFrom;
+
+    public double getCustomerBalance(DataSource dataSource, int customerId) throws SQLException {
+        ensureLoaded(dataSource);
+        return customerBalances.getOrDefault(customerId, 0.0);
+    }
+
+    public double getSupplierBalance(DataSource dataSource, int supplierId) throws SQLException {
+        ensureLoaded(dataSource);
+        return supplierBalances.getOrDefault(supplierId, 0.0);
+    }
+
+    void beginChange() {
+        changesInFlight.incrementAndGet();
+    }
+
+    void endChange() {
+        changesCompleted.incrementAndGet();
+        changesInFlight.decrementAndGet();
+    }
+
+    // Called between beginChange and endChange, after the change has committed
+    void adjustCustomer(Integer customerId, double delta) {
+        if (customerId != null && delta != 0) {
+            customerBalances.merge(customerId, delta, Double::sum);
+        }
+    }
+
+    void adjustSupplier(Integer supplierId, double delta) {
+        if (supplierId != null && delta != 0) {
+            supplierBalances.merge(supplierId, delta, Double::sum);
+        }
+    }
+
+    // Balance effect of an invoice row with the given values, mirroring the filters in BALANCES_SQL
+    void adjustForInvoice(Integer customerId, Integer supplierId, String invoiceType, String status, double totalAmount) {
+        if (status == null || "PAID".equals(status)) {
+            return;
+        }
+        if ("Sale".equals(invoiceType)) {
+            adjustCustomer(customerId, totalAmount);
+        } else if ("Import Purchase".equals(invoiceType)) {
+            adjustSupplier(supplierId, totalAmount);
+        }
+    }
+
+    // Balance effect of a payment row, mirroring the filters in BALANCES_SQL
+    void adjustForPayment(Integer customerId, Integer supplierId, double amount) {
+        if (customerId != null && supplierId == null) {
+            adjustCustomer(customerId, -amount);
+        } else if (supplierId != null && customerId == null) {
+            adjustSupplier(supplierId, -amount);
+        }
+    }
+
+    private void ensureLoaded(DataSource dataSource) throws SQLException {
+        if (loadedFrom == dataSource) {
+            return;
+        }
+        synchronized (this) {
+            for (int attempt = 1; loadedFrom != dataSource; attempt++) {
+                long completedBefore = changesCompleted.get();
+                boolean quiet = changesInFlight.get() == 0;
+                long start = System.nanoTime();
+                Map<Integer, Double> customers = new ConcurrentHashMap<>();
+                Map<Integer, Double> suppliers = new ConcurrentHashMap<>();
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(BALANCES_SQL);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Map<Integer, Double> target = "C".equals(rs.getString("kind")) ? customers : suppliers;
+                        target.merge(rs.getInt("contactId"), rs.getDouble("amount"), Double::sum);
+                    }
+                }
+                customerBalances.clear();
+                customerBalances.putAll(customers);
+                supplierBalances.clear();
+                supplierBalances.putAll(suppliers);
+                boolean consistent = quiet && changesInFlight.get() == 0 && changesCompleted.get() == completedBefore;
+                if (consistent || attempt == MAX_LOAD_ATTEMPTS) {
+                    loadedFrom = dataSource;
+                    LOGGER.info("Loaded balances for {} customers and {} suppliers in {} ms", customers.size(),
+                        suppliers.size(), (System.nanoTime() - start) / 1_000_000);
+                    if (!consistent) {
+                        LOGGER.warn("Balances loaded while writes were in progress; they may be off until the next reload");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -7,15 +7,18 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.application.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.stream.Stream; // Import for Stream class
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 import java.util.*;
 
 public class ContactsPane extends VBox {
     private static final Logger LOGGER = LoggerFactory.getLogger(ContactsPane.class);
+    private static final int CONTACT_SEARCH_LIMIT = 500;
     private final ResourceBundle messages;
     private final DatabaseService dbService;
     private final AuditService auditService;
@@ -23,7 +26,9 @@ public class ContactsPane extends VBox {
     private ComboBox<String> contactTypeCombo;
     private TextField searchField;
     private ListView<String> contactList;
-    private TableView<Map<String, String>> activityTable;
+    private TableView<LedgerEntry> activityTable;
+    private LedgerLoader activityLoader;
+    private boolean activityScrollHooked;
     private Label balanceLabel;
     private Button addCustomerButton, addSupplierButton;
 
@@ -53,7 +58,7 @@ private void initializeUI() {
 
     searchField = new TextField();
     searchField.setPromptText("Type to search (e.g., Cust)");
-    searchField.textProperty().addListener((obs, oldVal, newVal) -> searchContacts(newVal));
+    new SearchFieldController<>(searchField, this::findContacts, contacts -> contactList.getItems().setAll(contacts));
     content.getChildren().add(new Label("Search Contact"));
     content.getChildren().add(searchField);
 
@@ -64,23 +69,25 @@ private void initializeUI() {
     content.getChildren().add(contactList);
 
     activityTable = new TableView<>();
-    TableColumn<Map<String, String>, String> typeCol = new TableColumn<>("Type");
-    typeCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().get("type")));
-    TableColumn<Map<String, String>, String> idCol = new TableColumn<>("ID");
-    idCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().get("id")));
-    TableColumn<Map<String, String>, String> dateCol = new TableColumn<>("Date");
-    dateCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().get("date")));
-    TableColumn<Map<String, String>, String> amountCol = new TableColumn<>("Amount");
-    amountCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().get("amount")));
-    TableColumn<Map<String, String>, String> currencyCol = new TableColumn<>("Currency");
-    currencyCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().get("currency")));
-    TableColumn<Map<String, String>, String> statusCol = new TableColumn<>("Status");
-    statusCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().get("status")));
-    activityTable.getColumns().addAll((TableColumn<Map<String, String>, ?>[]) new TableColumn[] {typeCol, idCol, dateCol, amountCol, currencyCol, statusCol});
+    TableColumn<LedgerEntry, String> typeCol = new TableColumn<>("Type");
+    typeCol.setCellValueFactory(new PropertyValueFactory<>("type"));
+    TableColumn<LedgerEntry, String> idCol = new TableColumn<>("ID");
+    idCol.setCellValueFactory(new PropertyValueFactory<>("id"));
+    TableColumn<LedgerEntry, String> dateCol = new TableColumn<>("Date");
+    dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
+    TableColumn<LedgerEntry, String> amountCol = new TableColumn<>("Amount");
+    amountCol.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.2f", cellData.getValue().getAmount())));
+    TableColumn<LedgerEntry, String> currencyCol = new TableColumn<>("Currency");
+    currencyCol.setCellValueFactory(new PropertyValueFactory<>("currency"));
+    TableColumn<LedgerEntry, String> statusCol = new TableColumn<>("Status");
+    statusCol.setCellValueFactory(new PropertyValueFactory<>("status"));
+    TableColumn<LedgerEntry, String> runningCol = new TableColumn<>("Balance");
+    runningCol.setCellValueFactory(cellData -> new SimpleStringProperty(String.format("%.2f", cellData.getValue().getRunningBalance())));
+    activityTable.getColumns().addAll((TableColumn<LedgerEntry, ?>[]) new TableColumn[] {typeCol, idCol, dateCol, amountCol, currencyCol, statusCol, runningCol});
     activityTable.setPrefHeight(200);
     activityTable.setOnMouseClicked(e -> {
         if (e.getClickCount() == 2) {
-            Map<String, String> selected = activityTable.getSelectionModel().getSelectedItem();
+            LedgerEntry selected = activityTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
                 showActivityDetails(selected);
             }
@@ -203,21 +210,23 @@ private void initializeUI() {
 
     // Fixed typo: "puplic" -> "public"
     public void searchContacts(String query) {
-        contactList.getItems().clear();
-        if (query == null || query.trim().isEmpty()) {
-            return;
-        }
         try {
-            List<String> customers = dbService.getCustomersWithNames();
-            List<String> suppliers = dbService.getSuppliersWithNames();
-            Stream.concat(customers.stream(), suppliers.stream())
-                .filter(name -> name.toLowerCase().contains(query.toLowerCase()))
-                .forEach(contactList.getItems()::add);
+            contactList.getItems().setAll(findContacts(query));
         } catch (DatabaseException e) {
             LOGGER.error("Failed to search contacts", e);
         }
     }
 
+    private List<String> findContacts(String query) throws DatabaseException {
+        List<String> contacts = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return contacts;
+        }
+        contacts.addAll(dbService.suggest(LookupDirectory.Kind.CUSTOMER, query, CONTACT_SEARCH_LIMIT));
+        contacts.addAll(dbService.suggest(LookupDirectory.Kind.SUPPLIER, query, CONTACT_SEARCH_LIMIT));
+        return contacts;
+    }
+
  // =========================
 
 public void loadActivity() {
@@ -237,19 +246,15 @@ public void loadActivity() {
     }
 
     activityTable.getItems().clear();
+    activityTable.setPlaceholder(new Label("Loading..."));
+    String contactType = contactTypeCombo.getValue();
+    boolean isCustomer = contactType.equals("Customers");
+    activityLoader = new LedgerLoader(contactId, isCustomer);
+    activityLoader.loadNextPage();
     try {
-        List<Map<String, String>> activity;
         double balance;
-        String contactType = contactTypeCombo.getValue();
-        if (contactType.equals("Customers")) {
-            activity = dbService.getCustomerActivity(contactId);
+        if (isCustomer) {
             balance = dbService.getCustomerBalance(contactId);
-            LOGGER.info("Loaded {} activities for contact ID {} as {}", activity.size(), contactId, contactType);
-            if (activity.isEmpty()) {
-                activityTable.setPlaceholder(new Label("No activity found"));
-            } else {
-                activityTable.getItems().addAll(activity);
-            }
             // Customer logic: Positive = they owe us, Negative = we owe them
             String balanceText = balance >= 0 ?
                 String.format("Owes Us: $%.2f", balance) :
@@ -257,16 +262,9 @@ public void loadActivity() {
             balanceLabel.setText(balanceText);
             // Set color: green for "Owes Us", red for "We Owe"
             balanceLabel.setStyle(balanceText.startsWith("Owes Us") ? "-fx-text-fill: green;" : "-fx-text-fill: red;");
-            LOGGER.info("Contact ID {} balance as {}: {}", contactId, contactType, balanceText);
+            LOGGER.debug("Contact ID {} balance as {}: {}", contactId, contactType, balanceText);
         } else { // "Suppliers"
-            activity = dbService.getSupplierActivity(contactId);
             balance = dbService.getSupplierBalance(contactId);
-            LOGGER.info("Loaded {} activities for contact ID {} as {}", activity.size(), contactId, contactType);
-            if (activity.isEmpty()) {
-                activityTable.setPlaceholder(new Label("No activity found"));
-            } else {
-                activityTable.getItems().addAll(activity);
-            }
             // Supplier logic: Positive = we owe them, Negative = they owe us
             String balanceText = balance >= 0 ?
                 String.format("We Owe: -$%.2f", balance) : // Added negative sign
@@ -274,21 +272,87 @@ public void loadActivity() {
             balanceLabel.setText(balanceText);
             // Set color: green for "Owes Us", red for "We Owe"
             balanceLabel.setStyle(balanceText.startsWith("Owes Us") ? "-fx-text-fill: green;" : "-fx-text-fill: red;");
-            LOGGER.info("Contact ID {} balance as {}: {}", contactId, contactType, balanceText);
+            LOGGER.debug("Contact ID {} balance as {}: {}", contactId, contactType, balanceText);
         }
     } catch (DatabaseException e) {
-        LOGGER.error("Failed to load activity for contact ID: {} as {}", contactId, contactTypeCombo.getValue(), e);
-        new Alert(Alert.AlertType.ERROR, "Failed to load activity: " + e.getMessage()).showAndWait();
+        LOGGER.error("Failed to load balance for contact ID: {} as {}", contactId, contactType, e);
+        new Alert(Alert.AlertType.ERROR, "Failed to load balance: " + e.getMessage()).showAndWait();
     }
 }
+
+    /**
+     * Streams one contact's ledger into the activity table a keyset page at a time, newest first.
+     * Pages that arrive after another contact was selected are dropped.
+     */
+    private class LedgerLoader {
+        private static final int PAGE_SIZE = 200;
+        private final int contactId;
+        private final boolean isCustomer;
+        private final AtomicBoolean loading = new AtomicBoolean(false);
+        private volatile LedgerPage lastPage;
+        private volatile boolean hasMore = true;
+
+        LedgerLoader(int contactId, boolean isCustomer) {
+            this.contactId = contactId;
+            this.isCustomer = isCustomer;
+        }
+
+        void loadNextPage() {
+            if (!hasMore || !loading.compareAndSet(false, true)) {
+                return;
+            }
+            CompletableFuture.runAsync(() -> {
+                try {
+                    LedgerPage page = isCustomer
+                        ? dbService.getCustomerLedgerPage(contactId, lastPage, PAGE_SIZE)
+                        : dbService.getSupplierLedgerPage(contactId, lastPage, PAGE_SIZE);
+                    lastPage = page;
+                    hasMore = page.hasMore();
+                    Platform.runLater(() -> {
+                        if (activityLoader != this) {
+                            return;
+                        }
+                        activityTable.getItems().addAll(page.getEntries());
+                        if (activityTable.getItems().isEmpty()) {
+                            activityTable.setPlaceholder(new Label("No activity found"));
+                        }
+                        hookActivityScrollBar();
+                    });
+                } catch (DatabaseException e) {
+                    LOGGER.error("Failed to load activity for contact ID: {}", contactId, e);
+                    Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Failed to load activity: " + e.getMessage()).showAndWait());
+                } finally {
+                    loading.set(false);
+                }
+            }, FinancialManagementApp.executor);
+        }
+    }
+
+    // The vertical scroll bar only appears once the rows overflow the table; hooked once for every contact
+    private void hookActivityScrollBar() {
+        if (activityScrollHooked) {
+            return;
+        }
+        for (javafx.scene.Node node : activityTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == javafx.geometry.Orientation.VERTICAL) {
+                ScrollBar scrollBar = (ScrollBar) node;
+                scrollBar.valueProperty().addListener((obs, oldVal, newVal) -> {
+                    if (activityLoader != null && newVal.doubleValue() >= scrollBar.getMax() * 0.9) {
+                        activityLoader.loadNextPage();
+                    }
+                });
+                activityScrollHooked = true;
+            }
+        }
+    }
  
 //==========================
 
 
     @SuppressWarnings("unchecked")
-    private void showActivityDetails(Map<String, String> activity) {
-        String type = activity.get("type");
-        String id = activity.get("id").trim(); // Trim whitespace
+    private void showActivityDetails(LedgerEntry activity) {
+        String type = activity.getType();
+        String id = activity.getId().trim(); // Trim whitespace
 
         LOGGER.info("Showing details for type: '{}', id: '{}'", type, id); // Debug ID
         Stage detailsStage = new Stage();
@@ -298,7 +362,9 @@ public void loadActivity() {
 
         try {
             if (type.equals("Invoice") || type.equals("Import Purchase") || type.equals("Sale")) { // Broaden type check
-                List<InvoiceDetails> invoices = dbService.searchInvoices("invoiceId = ?", Collections.singletonList(id));
+                InvoiceSearchCriteria criteria = new InvoiceSearchCriteria();
+                criteria.setInvoiceId(id);
+                List<InvoiceDetails> invoices = dbService.searchInvoices(criteria);
                 if (!invoices.isEmpty()) {
                     InvoiceDetails invoice = invoices.get(0);
                     detailsContent.getChildren().addAll(
@@ -345,10 +411,10 @@ public void loadActivity() {
             } else if (type.equals("Payment")) {
                 detailsContent.getChildren().addAll(
                     new Label("Payment ID: " + id),
-                    new Label("Date: " + activity.get("date")),
-                    new Label("Amount: " + activity.get("amount")),
-                    new Label("Currency: " + activity.get("currency")),
-                    new Label("Status: " + activity.get("status"))
+                    new Label("Date: " + activity.getDate()),
+                    new Label("Amount: " + activity.getAmount()),
+                    new Label("Currency: " + activity.getCurrency()),
+                    new Label("Status: " + activity.getStatus())
                 );
             }
         } catch (DatabaseException e) {
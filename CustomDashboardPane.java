@@ -3,7 +3,6 @@ package com.example.financial;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import java.time.LocalDate;
-import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.concurrent.CompletableFuture;
 
@@ -87,25 +86,14 @@ public class CustomDashboardPane extends VBox {
                         startDate = endDate = LocalDate.now().toString();
                 }
 
-                double totalSales = dbService.getTotalSales();
-                double overdueAmount = dbService.getOverdueAmount();
-                double cashBalance = dbService.getCashBalance();
-                Map<String, Double> salesByCustomer = dbService.getSalesByCustomer(startDate, endDate);
-                Map<String, Double> taxReport = dbService.getTaxReport(startDate, endDate);
-
-                String topCustomer = salesByCustomer.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse("N/A");
-                double topCustomerSales = salesByCustomer.getOrDefault(topCustomer, 0.0);
-                double totalTax = taxReport.getOrDefault("Total Taxes", 0.0);
+                DashboardSnapshot snapshot = dbService.getDashboardSnapshot(startDate, endDate);
 
                 javafx.application.Platform.runLater(() -> {
-                    totalSalesLabel.setText(messages.getString("totalSales") + String.format("%.2f", totalSales) + " USD");
-                    overdueAmountLabel.setText(messages.getString("overdueAmount") + String.format("%.2f", overdueAmount) + " USD");
-                    cashBalanceLabel.setText(messages.getString("cashBalance") + String.format("%.2f", cashBalance) + " USD");
-                    topCustomerLabel.setText(messages.getString("topCustomer") + topCustomer + " (" + String.format("%.2f", topCustomerSales) + " USD)");
-                    totalTaxLabel.setText(messages.getString("totalTax") + String.format("%.2f", totalTax) + " USD");
+                    totalSalesLabel.setText(messages.getString("totalSales") + String.format("%.2f", snapshot.getTotalSales()) + " USD");
+                    overdueAmountLabel.setText(messages.getString("overdueAmount") + String.format("%.2f", snapshot.getOverdueAmount()) + " USD");
+                    cashBalanceLabel.setText(messages.getString("cashBalance") + String.format("%.2f", snapshot.getCashBalance()) + " USD");
+                    topCustomerLabel.setText(messages.getString("topCustomer") + snapshot.getTopCustomer() + " (" + String.format("%.2f", snapshot.getTopCustomerSales()) + " USD)");
+                    totalTaxLabel.setText(messages.getString("totalTax") + String.format("%.2f", snapshot.getTotalTax()) + " USD");
                 });
             } catch (DatabaseException e) {
                 ErrorHandler.handleException(e, "Failed to load dashboard data", null);
@@ -0,0 +1,46 @@
+package com.example.financial;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Schema migration V5: creates the DailyRollups tables and the RollupDayLocks rows that serialize same-day
+ * refreshes, then fills the rollups from the invoices already stored. The fill runs in one transaction, so a
+ * failure leaves the tables empty and V5 pending for the next start. Their indexes, and the Invoices (date)
+ * index the day refreshes look up by, are built by the background migration V8.
+ */
+public class DailyRollupMigration implements SchemaMigrator.Step {
+    private static final String[] TABLES = {
+        "CREATE TABLE IF NOT EXISTS DailyInvoiceRollup (day DATE NOT NULL, invoiceType VARCHAR(32), " +
+        "customerId INT, currency VARCHAR(8), invoiceCount INT NOT NULL, " +
+        "totalAmount DECIMAL(19, 4) NOT NULL, taxAmount DECIMAL(19, 4) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS DailyProductRollup (day DATE NOT NULL, invoiceType VARCHAR(32), " +
+        "productId INT, totalPrice DECIMAL(19, 4) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS RollupDayLocks (day DATE PRIMARY KEY)",
+    };
+
+    // What SchemaHistory checksums in place of a script
+    public static String checksumSource() {
+        return String.join(";\n", TABLES) + ";\nDailyRollups.rebuild\n";
+    }
+
+    @Override
+    public void apply(Connection conn, SchemaMigrator.Engine engine) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String table : TABLES) {
+                stmt.execute(table);
+            }
+        }
+        conn.setAutoCommit(false);
+        try {
+            new DailyRollups().rebuild(conn);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Per-day aggregates of Invoices and InvoiceLineItems, so date-range reports sum one row per day and group
+ * instead of every invoice and line item in the range.
+ *
+ * DailyInvoiceRollup holds count, total and tax per day, invoice type, customer and currency;
+ * DailyProductRollup holds line item totals per day, invoice type and product. DatabaseService refreshes
+ * the days an invoice write touched (old and new date on an update) inside the write's own transaction,
+ * so reports never see an invoice without its rollup. A refresh recomputes the whole day from the base
+ * tables, which keeps it exact under any combination of inserts, edits and deletes. Refreshes of the same
+ * day are serialized on that day's RollupDayLocks row, so a second writer recomputes only after the first
+ * has committed and sees its invoices. The tables are created and first filled by schema migration V5.
+ */
+public class DailyRollups {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DailyRollups.class);
+
+    private static final String INVOICE_ROLLUP_SELECT =
+        "SELECT date, invoiceType, customerId, currency, COUNT(*), SUM(totalAmount), SUM(taxAmount) FROM Invoices ";
+    private static final String INVOICE_ROLLUP_GROUP = " GROUP BY date, invoiceType, customerId, currency";
+    private static final String PRODUCT_ROLLUP_SELECT =
+        "SELECT i.date, i.invoiceType, li.productId, SUM(li.totalPrice) " +
+        "FROM InvoiceLineItems li JOIN Invoices i ON li.invoiceId = i.invoiceId ";
+    private static final String PRODUCT_ROLLUP_GROUP = " GROUP BY i.date, i.invoiceType, li.productId";
+
+    // Recomputes every day from scratch on the caller's transaction
+    public void rebuild(Connection conn) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM DailyInvoiceRollup");
+            stmt.executeUpdate("DELETE FROM DailyProductRollup");
+            int days = stmt.executeUpdate("INSERT INTO DailyInvoiceRollup (day, invoiceType, customerId, currency, invoiceCount, " +
+                "totalAmount, taxAmount) " + INVOICE_ROLLUP_SELECT + "WHERE date IS NOT NULL" + INVOICE_ROLLUP_GROUP);
+            stmt.executeUpdate("INSERT INTO DailyProductRollup (day, invoiceType, productId, totalPrice) " +
+                PRODUCT_ROLLUP_SELECT + "WHERE i.date IS NOT NULL" + PRODUCT_ROLLUP_GROUP);
+            LOGGER.info("Rebuilt daily rollups ({} invoice groups) in {} ms", days, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Date of an invoice as stored, or null if it does not exist; read before an update or delete
+    public String dayOf(Connection conn, String invoiceId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT date FROM Invoices WHERE invoiceId = ?")) {
+            stmt.setString(1, invoiceId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    public void refreshDays(Connection conn, String... days) throws SQLException {
+        refreshDays(conn, Arrays.asList(days));
+    }
+
+    // Replaces the rollup rows of the given days on the caller's transaction; nulls and repeats are ignored
+    public void refreshDays(Connection conn, Collection<String> days) throws SQLException {
+        TreeSet<String> distinct = new TreeSet<>();
+        days.stream().filter(Objects::nonNull).forEach(distinct::add);
+        if (distinct.isEmpty()) {
+            return;
+        }
+        // Locked in date order, so two writers touching the same days cannot deadlock
+        for (String day : distinct) {
+            lockDay(conn, day);
+        }
+        try (PreparedStatement deleteInvoices = conn.prepareStatement("DELETE FROM DailyInvoiceRollup WHERE day = ?");
+             PreparedStatement insertInvoices = conn.prepareStatement(
+                 "INSERT INTO DailyInvoiceRollup (day, invoiceType, customerId, currency, invoiceCount, totalAmount, taxAmount) " +
+                 INVOICE_ROLLUP_SELECT + "WHERE date = ?" + INVOICE_ROLLUP_GROUP);
+             PreparedStatement deleteProducts = conn.prepareStatement("DELETE FROM DailyProductRollup WHERE day = ?");
+             PreparedStatement insertProducts = conn.prepareStatement(
+                 "INSERT INTO DailyProductRollup (day, invoiceType, productId, totalPrice) " +
+                 PRODUCT_ROLLUP_SELECT + "WHERE i.date = ?" + PRODUCT_ROLLUP_GROUP)) {
+            for (String day : distinct) {
+                for (PreparedStatement stmt : new PreparedStatement[] {deleteInvoices, insertInvoices, deleteProducts, insertProducts}) {
+                    SqlValues.setDate(stmt, 1, day);
+                    stmt.addBatch();
+                }
+            }
+            deleteInvoices.executeBatch();
+            insertInvoices.executeBatch();
+            deleteProducts.executeBatch();
+            insertProducts.executeBatch();
+        }
+    }
+
+    // Holds the day's lock row until the caller's transaction ends, creating the row on the day's first refresh
+    private static void lockDay(Connection conn, String day) throws SQLException {
+        if (selectForUpdate(conn, day)) {
+            return;
+        }
+        // Savepoint so a duplicate key does not abort the surrounding transaction (PostgreSQL would)
+        Savepoint beforeInsert = conn.setSavepoint();
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO RollupDayLocks (day) VALUES (?)")) {
+            SqlValues.setDate(insert, 1, day);
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            // Another writer created the row first and has committed by now; wait for its lock like any other
+            conn.rollback(beforeInsert);
+            if (!selectForUpdate(conn, day)) {
+                throw new SQLException("Rollup lock row for " + day + " is missing");
+            }
+        }
+    }
+
+    private static boolean selectForUpdate(Connection conn, String day) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT day FROM RollupDayLocks WHERE day = ? FOR UPDATE")) {
+            SqlValues.setDate(stmt, 1, day);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.financial;
+
+/**
+ * Every KPI shown on CustomDashboardPane, computed together by DatabaseService.getDashboardSnapshot in one
+ * query. totalSales, overdueAmount and cashBalance cover all time; topCustomer and totalTax cover the period.
+ */
+public class DashboardSnapshot {
+    private final String startDate;
+    private final String endDate;
+    private final double totalSales;
+    private final double overdueAmount;
+    private final double cashBalance;
+    private final String topCustomer;
+    private final double topCustomerSales;
+    private final double totalTax;
+    private final long computedAtMillis;
+
+    public DashboardSnapshot(String startDate, String endDate, double totalSales, double overdueAmount,
+                             double cashBalance, String topCustomer, double topCustomerSales, double totalTax,
+                             long computedAtMillis) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.totalSales = totalSales;
+        this.overdueAmount = overdueAmount;
+        this.cashBalance = cashBalance;
+        this.topCustomer = topCustomer;
+        this.topCustomerSales = topCustomerSales;
+        this.totalTax = totalTax;
+        this.computedAtMillis = computedAtMillis;
+    }
+
+    public String getStartDate() { return startDate; }
+    public String getEndDate() { return endDate; }
+    public double getTotalSales() { return totalSales; }
+    public double getOverdueAmount() { return overdueAmount; }
+    public double getCashBalance() { return cashBalance; }
+    public String getTopCustomer() { return topCustomer; } // "N/A" when the period has no sales
+    public double getTopCustomerSales() { return topCustomerSales; }
+    public double getTotalTax() { return totalTax; }
+    public long getComputedAtMillis() { return computedAtMillis; }
+}
@@ -3,10 +3,22 @@ package com.example.financial;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.function.ToDoubleFunction;
 import com.example.financial.Attachment;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,11 +26,72 @@ import java.util.List;
 public class DatabaseService {
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseService.class);
     public static DataSource dataSource; // Set by DatabaseConfigDialog in FinancialManagementApp
+    // Shared by every DatabaseService so in-process saves draw from the same reserved blocks
+    private static final InvoiceNumberAllocator INVOICE_NUMBERS =
+        new InvoiceNumberAllocator(Integer.getInteger("invoice.number.blockSize", 20));
+    // In-memory contact balances; every write below that moves a balance reports its delta here
+    private static final ContactBalanceService BALANCES = new ContactBalanceService();
+    // Deduplicated, compressed attachment content; Attachments rows reference it by contentHash
+    private static final AttachmentStore ATTACHMENTS = new AttachmentStore();
+    // Ranked attachment search; re-reads an attachment after each committed add or update
+    private static final AttachmentSearchIndex ATTACHMENT_INDEX = new AttachmentSearchIndex();
+    private static final int ATTACHMENT_SEARCH_LIMIT = Integer.getInteger("attachments.search.limit", 200);
+    // Customer, supplier and product names for autocomplete; addCustomer/addSupplier invalidate their kind
+    private static final LookupDirectory LOOKUPS = new LookupDirectory();
+    private static final int SUGGESTION_LIMIT = Integer.getInteger("lookup.suggestions.limit", 15);
+    // Dashboard snapshots by "start..end"; cleared whenever an invoice or payment write finishes
+    private static final Map<String, DashboardSnapshot> DASHBOARD_CACHE = new ConcurrentHashMap<>();
+    private static final long DASHBOARD_TTL_MILLIS = Long.getLong("dashboard.cacheTtlSeconds", 30) * 1000;
+    private static final AtomicLong FINANCIAL_WRITES = new AtomicLong();
+    // Per-day invoice aggregates behind the date-range reports; invoice writes refresh the days they touch
+    private static final DailyRollups ROLLUPS = new DailyRollups();
+    // Versioned schema changes on top of schema.sql; FinancialManagementApp.start runs them before any pane queries
+    private static final SchemaMigrator SCHEMA = new SchemaMigrator(SchemaMigrations.all());
+    private static final String DASHBOARD_SQL =
+        "WITH inv AS (" +
+        "  SELECT COALESCE(SUM(CASE WHEN invoiceType = 'Sale' AND status != 'CANCELLED' THEN totalAmount END), 0) AS totalSales, " +
+        "         COALESCE(SUM(CASE WHEN status = 'OPEN' AND date < ? THEN totalAmount END), 0) AS overdue, " +
+        "         COALESCE(SUM(CASE WHEN date BETWEEN ? AND ? THEN taxAmount END), 0) AS totalTax " +
+        "  FROM Invoices), " +
+        "pay AS (" +
+        "  SELECT COALESCE(SUM(CASE WHEN customerId IS NOT NULL AND supplierId IS NULL THEN amount " +
+        "                           WHEN supplierId IS NOT NULL AND customerId IS NULL THEN -amount END), 0) AS cash " +
+        "  FROM Payments), " +
+        "leader AS (" +
+        "  SELECT c.name, SUM(i.totalAmount) AS total FROM Invoices i JOIN Customers c ON i.customerId = c.id " +
+        "  WHERE i.invoiceType = 'Sale' AND i.date BETWEEN ? AND ? GROUP BY c.name ORDER BY total DESC LIMIT 1) " +
+        "SELECT inv.totalSales, inv.overdue, inv.totalTax, pay.cash, leader.name AS topCustomer, leader.total AS topCustomerSales " +
+        "FROM inv CROSS JOIN pay LEFT JOIN leader ON TRUE";
 
     public DatabaseService() {
         // No initialization here; dataSource is set externally by DatabaseConfigDialog
     }
 
+    // Applies pending startup migrations; the date and amount binds below expect V1's typed columns
+    public void migrateSchema() throws DatabaseException {
+        try {
+            SCHEMA.migrate(dataSource);
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to migrate database schema", e);
+        }
+    }
+
+    // Builds the indexes of pending background migrations; slow on large tables, so never on the FX thread
+    public void migrateSchemaInBackground() throws DatabaseException {
+        try {
+            SCHEMA.migrateBackground(dataSource);
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to build deferred indexes", e);
+        }
+    }
+
+    // Closes the beginChange() bracket of an invoice or payment write and drops figures derived from them
+    private static void endInvoiceOrPaymentChange() {
+        BALANCES.endChange();
+        FINANCIAL_WRITES.incrementAndGet();
+        DASHBOARD_CACHE.clear();
+    }
+
     public List<String> getCustomersWithNames() throws DatabaseException {
         List<String> customers = new ArrayList<>();
         try (Connection conn = dataSource.getConnection();
@@ -61,6 +134,27 @@ public class DatabaseService {
         return products;
     }
 
+    // Best matches for an autocomplete field, as "id - name" entries; served from memory, not the database
+    public List<String> suggestCustomers(String query) throws DatabaseException {
+        return suggest(LookupDirectory.Kind.CUSTOMER, query, SUGGESTION_LIMIT);
+    }
+
+    public List<String> suggestSuppliers(String query) throws DatabaseException {
+        return suggest(LookupDirectory.Kind.SUPPLIER, query, SUGGESTION_LIMIT);
+    }
+
+    public List<String> suggestProducts(String query) throws DatabaseException {
+        return suggest(LookupDirectory.Kind.PRODUCT, query, SUGGESTION_LIMIT);
+    }
+
+    public List<String> suggest(LookupDirectory.Kind kind, String query, int limit) throws DatabaseException {
+        try {
+            return LOOKUPS.suggest(dataSource, kind, query, limit);
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to look up " + kind.name().toLowerCase() + " names", e);
+        }
+    }
+
     public List<String> getProductUnits(int productId) throws DatabaseException {
         List<String> units = new ArrayList<>();
         try (Connection conn = dataSource.getConnection();
@@ -83,21 +177,12 @@ public class DatabaseService {
                           String paymentInstructions, String paymentTerm, String notes, double exchangeRate,
                           double shippingFee, double transportingFee, double uploadingFee, double taxFee) 
                           throws DatabaseException {
+    // Reserved before taking a connection: refilling a block takes a pooled connection of its own
+    String invoiceId = reserveInvoiceIds(Collections.singletonList(invoiceType)).get(0);
+    BALANCES.beginChange();
     try (Connection conn = dataSource.getConnection()) {
         conn.setAutoCommit(false);
         try {
-            // Generate custom invoice ID
-            String prefix;
-            switch (invoiceType) {
-                case "Sale": prefix = "Sell"; break;
-                case "Purchase": prefix = "Purch"; break;
-                case "Import Purchase": prefix = "Imp"; break;
-                case "Credit Note": prefix = "Cred"; break;
-                default: prefix = "Inv";
-            }
-            int nextNum = getNextInvoiceNumber(conn, prefix);
-            String invoiceId = String.format("%s %05d", prefix, nextNum);
-
             try (PreparedStatement stmt = conn.prepareStatement(
                  "INSERT INTO Invoices (invoiceId, customerId, supplierId, invoiceType, date, totalAmount, taxAmount, " +
                  "currency, status, paymentInstructions, paymentTerm, notes, exchangeRate, shippingFee, transportingFee, " +
@@ -106,46 +191,27 @@ public class DatabaseService {
                 stmt.setObject(2, customerId, java.sql.Types.INTEGER);
                 stmt.setObject(3, supplierId, java.sql.Types.INTEGER);
                 stmt.setString(4, invoiceType);
-                stmt.setString(5, date);
-                stmt.setDouble(6, totalAmount);
-                stmt.setDouble(7, taxAmount);
+                SqlValues.setDate(stmt, 5, date);
+                SqlValues.setAmount(stmt, 6, totalAmount);
+                SqlValues.setAmount(stmt, 7, taxAmount);
                 stmt.setString(8, currency);
                 stmt.setString(9, status);
                 stmt.setString(10, paymentInstructions);
                 stmt.setString(11, paymentTerm);
                 stmt.setString(12, notes);
                 stmt.setDouble(13, exchangeRate);
-                stmt.setDouble(14, shippingFee);
-                stmt.setDouble(15, transportingFee);
-                stmt.setDouble(16, uploadingFee);
-                stmt.setDouble(17, taxFee);
+                SqlValues.setAmount(stmt, 14, shippingFee);
+                SqlValues.setAmount(stmt, 15, transportingFee);
+                SqlValues.setAmount(stmt, 16, uploadingFee);
+                SqlValues.setAmount(stmt, 17, taxFee);
                 stmt.executeUpdate();
             }
 
-            for (InvoiceLineItem item : lineItems) {
-                try (PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO InvoiceLineItems (invoiceId, productId, warehouseId, quantity, unit, unitPrice, totalPrice, " +
-                     "paidAmount, receivedAmount, discount, fixedDiscount, taxRate, totalTax, currency) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
-                    stmt.setString(1, invoiceId);
-                    stmt.setInt(2, item.getProductId());
-                    stmt.setInt(3, item.getWarehouseId());
-                    stmt.setInt(4, item.getQuantity());
-                    stmt.setString(5, item.getUnit());
-                    stmt.setDouble(6, item.getUnitPrice());
-                    stmt.setDouble(7, item.getTotalPrice());
-                    stmt.setDouble(8, item.getPaidAmount());
-                    stmt.setDouble(9, item.getReceivedAmount());
-                    stmt.setDouble(10, item.getDiscount());
-                    stmt.setDouble(11, item.getFixedDiscount());
-                    stmt.setDouble(12, item.getTaxRate());
-                    stmt.setDouble(13, item.getTotalTax());
-                    stmt.setString(14, item.getCurrency());
-                    stmt.executeUpdate();
-                }
-            }
+            insertLineItems(conn, invoiceId, lineItems, InvoiceLineItem::getUnitPrice);
+            ROLLUPS.refreshDays(conn, date);
 
             conn.commit();
+            BALANCES.adjustForInvoice(customerId, supplierId, invoiceType, status, totalAmount);
             LOGGER.info("Invoice saved with ID: {}", invoiceId);
             return invoiceId;
         } catch (SQLException e) {
@@ -154,19 +220,171 @@ public class DatabaseService {
         }
     } catch (SQLException e) {
         throw new DatabaseException("Failed to save invoice", e);
+    } finally {
+        endInvoiceOrPaymentChange();
     }
 }
 
-private int getNextInvoiceNumber(Connection conn, String prefix) throws SQLException {
-    String sql = "SELECT MAX(CAST(SUBSTRING(invoiceId, 6) AS INTEGER)) AS maxNum FROM Invoices WHERE invoiceId LIKE ?";
-    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-        stmt.setString(1, prefix + " %");
-        try (ResultSet rs = stmt.executeQuery()) {
-            if (rs.next() && rs.getObject("maxNum") != null) {
-                return rs.getInt("maxNum") + 1;
+/**
+ * Saves many invoices in one transaction: headers and line items each go through a single batched
+ * statement. Either all drafts are stored or none. Returns the generated invoice IDs in draft order.
+ */
+public List<String> saveInvoices(List<InvoiceDraft> drafts) throws DatabaseException {
+    return saveInvoices(drafts, null, 0);
+}
+
+/**
+ * As saveInvoices(drafts), and when importSource is set also stores importLine as that import's checkpoint in
+ * the same transaction, so a crash can never leave a chunk committed without its checkpoint (or the reverse).
+ */
+public List<String> saveInvoices(List<InvoiceDraft> drafts, String importSource, long importLine) throws DatabaseException {
+    List<String> invoiceIds = new ArrayList<>(drafts.size());
+    if (drafts.isEmpty()) {
+        if (importSource != null) {
+            try (Connection conn = dataSource.getConnection()) {
+                writeImportCheckpoint(conn, importSource, importLine);
+            } catch (SQLException e) {
+                throw new DatabaseException("Failed to save import checkpoint", e);
             }
-            return 1; // Start at 00001 if no previous invoices
         }
+        return invoiceIds;
+    }
+    List<String> types = new ArrayList<>(drafts.size());
+    for (InvoiceDraft draft : drafts) {
+        types.add(draft.getInvoiceType());
+    }
+    // Reserved before taking a connection: refilling a block takes a pooled connection of its own
+    List<String> reservedIds = reserveInvoiceIds(types);
+    BALANCES.beginChange();
+    try (Connection conn = dataSource.getConnection()) {
+        conn.setAutoCommit(false);
+        try {
+            List<String> itemInvoiceIds = new ArrayList<>();
+            Set<String> days = new HashSet<>();
+            List<InvoiceLineItem> items = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO Invoices (invoiceId, customerId, supplierId, invoiceType, date, totalAmount, taxAmount, " +
+                 "currency, status, paymentInstructions, paymentTerm, notes, exchangeRate, shippingFee, transportingFee, " +
+                 "uploadingFee, taxFee) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                int pending = 0;
+                for (InvoiceDraft draft : drafts) {
+                    String invoiceId = reservedIds.get(invoiceIds.size());
+                    invoiceIds.add(invoiceId);
+                    stmt.setString(1, invoiceId);
+                    stmt.setObject(2, draft.getCustomerId(), java.sql.Types.INTEGER);
+                    stmt.setObject(3, draft.getSupplierId(), java.sql.Types.INTEGER);
+                    stmt.setString(4, draft.getInvoiceType());
+                    SqlValues.setDate(stmt, 5, draft.getDate());
+                    SqlValues.setAmount(stmt, 6, draft.getTotalAmount());
+                    SqlValues.setAmount(stmt, 7, draft.getTaxAmount());
+                    stmt.setString(8, draft.getCurrency());
+                    stmt.setString(9, draft.getStatus());
+                    stmt.setString(10, draft.getPaymentInstructions());
+                    stmt.setString(11, draft.getPaymentTerm());
+                    stmt.setString(12, draft.getNotes());
+                    stmt.setDouble(13, draft.getExchangeRate());
+                    SqlValues.setAmount(stmt, 14, draft.getShippingFee());
+                    SqlValues.setAmount(stmt, 15, draft.getTransportingFee());
+                    SqlValues.setAmount(stmt, 16, draft.getUploadingFee());
+                    SqlValues.setAmount(stmt, 17, draft.getTaxFee());
+                    stmt.addBatch();
+                    days.add(draft.getDate());
+                    if (++pending == LINE_ITEM_BATCH_SIZE) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                    for (InvoiceLineItem item : draft.getLineItems()) {
+                        itemInvoiceIds.add(invoiceId);
+                        items.add(item);
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+            }
+            insertLineItems(conn, itemInvoiceIds, items, InvoiceLineItem::getUnitPrice);
+            ROLLUPS.refreshDays(conn, days);
+            if (importSource != null) {
+                writeImportCheckpoint(conn, importSource, importLine);
+            }
+
+            conn.commit();
+            for (InvoiceDraft draft : drafts) {
+                BALANCES.adjustForInvoice(draft.getCustomerId(), draft.getSupplierId(), draft.getInvoiceType(),
+                    draft.getStatus(), draft.getTotalAmount());
+            }
+            LOGGER.info("Saved {} invoices with {} line items", drafts.size(), items.size());
+            return invoiceIds;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new DatabaseException("Failed to save invoices", e);
+        }
+    } catch (SQLException e) {
+        throw new DatabaseException("Failed to save invoices", e);
+    } finally {
+        endInvoiceOrPaymentChange();
+    }
+}
+
+// Last source line an import has committed; 0 when the import has no checkpoint
+public long getImportCheckpoint(String importSource) throws DatabaseException {
+    try (Connection conn = dataSource.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("SELECT lastLine FROM ImportCheckpoints WHERE source = ?")) {
+        stmt.setString(1, importSource);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong("lastLine") : 0;
+        }
+    } catch (SQLException e) {
+        throw new DatabaseException("Failed to read import checkpoint", e);
+    }
+}
+
+public void clearImportCheckpoint(String importSource) throws DatabaseException {
+    try (Connection conn = dataSource.getConnection();
+         PreparedStatement stmt = conn.prepareStatement("DELETE FROM ImportCheckpoints WHERE source = ?")) {
+        stmt.setString(1, importSource);
+        stmt.executeUpdate();
+    } catch (SQLException e) {
+        throw new DatabaseException("Failed to clear import checkpoint", e);
+    }
+}
+
+private static void writeImportCheckpoint(Connection conn, String importSource, long line) throws SQLException {
+    try (PreparedStatement update = conn.prepareStatement("UPDATE ImportCheckpoints SET lastLine = ? WHERE source = ?")) {
+        update.setLong(1, line);
+        update.setString(2, importSource);
+        if (update.executeUpdate() > 0) {
+            return;
+        }
+    }
+    try (PreparedStatement insert = conn.prepareStatement("INSERT INTO ImportCheckpoints (source, lastLine) VALUES (?, ?)")) {
+        insert.setString(1, importSource);
+        insert.setLong(2, line);
+        insert.executeUpdate();
+    }
+}
+
+// One invoice ID per invoice type, in order
+private static List<String> reserveInvoiceIds(List<String> invoiceTypes) throws DatabaseException {
+    List<String> ids = new ArrayList<>(invoiceTypes.size());
+    try {
+        for (String invoiceType : invoiceTypes) {
+            String prefix = invoicePrefix(invoiceType);
+            ids.add(String.format("%s %05d", prefix, INVOICE_NUMBERS.next(dataSource, prefix)));
+        }
+    } catch (SQLException e) {
+        throw new DatabaseException("Failed to reserve invoice numbers", e);
+    }
+    return ids;
+}
+
+private static String invoicePrefix(String invoiceType) {
+    switch (invoiceType) {
+        case "Sale": return "Sell";
+        case "Purchase": return "Purch";
+        case "Import Purchase": return "Imp";
+        case "Credit Note": return "Cred";
+        default: return "Inv";
     }
 }
 
@@ -178,28 +396,31 @@ public void updateInvoice(String invoiceId, Integer customerId, Integer supplier
                           double taxAmount, String currency, List<InvoiceLineItem> lineItems, String status, String paymentInstructions,
                           String paymentTerm, String notes, double exchangeRate, double shippingFee, double transportingFee,
                           double uploadingFee, double taxFee) throws DatabaseException {
+    BALANCES.beginChange();
     try (Connection conn = dataSource.getConnection()) {
         conn.setAutoCommit(false);
         try {
+            Runnable reverseBalance = reverseInvoiceBalance(conn, invoiceId);
+            String oldDay = ROLLUPS.dayOf(conn, invoiceId);
             try (PreparedStatement stmt = conn.prepareStatement(
                  "UPDATE Invoices SET customerId=?, supplierId=?, invoiceType=?, date=?, totalAmount=?, taxAmount=?, currency=?, status=?, paymentInstructions=?, paymentTerm=?, notes=?, exchangeRate=?, shippingFee=?, transportingFee=?, uploadingFee=?, taxFee=? " +
                  "WHERE invoiceId=?")) {
                 stmt.setObject(1, customerId);
                 stmt.setObject(2, supplierId);
                 stmt.setString(3, invoiceType);
-                stmt.setString(4, date);
-                stmt.setDouble(5, totalAmount);
-                stmt.setDouble(6, taxAmount);
+                SqlValues.setDate(stmt, 4, date);
+                SqlValues.setAmount(stmt, 5, totalAmount);
+                SqlValues.setAmount(stmt, 6, taxAmount);
                 stmt.setString(7, currency);
                 stmt.setString(8, status);
                 stmt.setString(9, paymentInstructions);
                 stmt.setString(10, paymentTerm);
                 stmt.setString(11, notes);
                 stmt.setDouble(12, exchangeRate);
-                stmt.setDouble(13, shippingFee);
-                stmt.setDouble(14, transportingFee);
-                stmt.setDouble(15, uploadingFee);
-                stmt.setDouble(16, taxFee);
+                SqlValues.setAmount(stmt, 13, shippingFee);
+                SqlValues.setAmount(stmt, 14, transportingFee);
+                SqlValues.setAmount(stmt, 15, uploadingFee);
+                SqlValues.setAmount(stmt, 16, taxFee);
                 stmt.setString(17, invoiceId);
                 stmt.executeUpdate();
             }
@@ -208,34 +429,19 @@ public void updateInvoice(String invoiceId, Integer customerId, Integer supplier
                 stmt.setString(1, invoiceId);
                 stmt.executeUpdate();
             }
-            for (InvoiceLineItem item : lineItems) {
-                try (PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO InvoiceLineItems (invoiceId, productId, warehouseId, quantity, unit, unitPrice, totalPrice, paidAmount, receivedAmount, discount, fixedDiscount, taxRate, totalTax, currency) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
-                    stmt.setString(1, invoiceId);
-                    stmt.setInt(2, item.getProductId());
-                    stmt.setInt(3, item.getWarehouseId());
-                    stmt.setInt(4, item.getQuantity());
-                    stmt.setString(5, item.getUnit());
-                    stmt.setDouble(6, item.getOriginalUnitPrice());
-                    stmt.setDouble(7, item.getTotalPrice());
-                    stmt.setDouble(8, item.getPaidAmount());
-                    stmt.setDouble(9, item.getReceivedAmount());
-                    stmt.setDouble(10, item.getDiscount());
-                    stmt.setDouble(11, item.getFixedDiscount());
-                    stmt.setDouble(12, item.getTaxRate());
-                    stmt.setDouble(13, item.getTotalTax());
-                    stmt.setString(14, item.getCurrency());
-                    stmt.executeUpdate();
-                }
-            }
+            insertLineItems(conn, invoiceId, lineItems, InvoiceLineItem::getOriginalUnitPrice);
+            ROLLUPS.refreshDays(conn, oldDay, date);
             conn.commit();
+            reverseBalance.run();
+            BALANCES.adjustForInvoice(customerId, supplierId, invoiceType, status, totalAmount);
         } catch (SQLException e) {
             conn.rollback();
             throw new DatabaseException("Failed to update invoice", e);
         }
     } catch (SQLException e) {
         throw new DatabaseException("Failed to update invoice", e);
+    } finally {
+        endInvoiceOrPaymentChange();
     }
 }
 
@@ -243,33 +449,10 @@ public void updateInvoiceLineItems(String invoiceId, List<InvoiceLineItem> lineI
     try (Connection conn = dataSource.getConnection()) {
         conn.setAutoCommit(false);
         try {
-            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM InvoiceLineItems WHERE invoiceId=?")) {
-                stmt.setString(1, invoiceId);
-                stmt.executeUpdate();
-            }
-            for (InvoiceLineItem item : lineItems) {
-                try (PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO InvoiceLineItems (invoiceId, productId, warehouseId, quantity, unit, unitPrice, totalPrice, paidAmount, receivedAmount, discount, fixedDiscount, taxRate, totalTax, currency) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
-                    stmt.setString(1, invoiceId);
-                    stmt.setInt(2, item.getProductId());
-                    stmt.setInt(3, item.getWarehouseId());
-                    stmt.setInt(4, item.getQuantity());
-                    stmt.setString(5, item.getUnit());
-                    stmt.setDouble(6, item.getUnitPrice()); // Use adjusted unitPrice
-                    stmt.setDouble(7, item.getTotalPrice());
-                    stmt.setDouble(8, item.getPaidAmount());
-                    stmt.setDouble(9, item.getReceivedAmount());
-                    stmt.setDouble(10, item.getDiscount());
-                    stmt.setDouble(11, item.getFixedDiscount());
-                    stmt.setDouble(12, item.getTaxRate());
-                    stmt.setDouble(13, item.getTotalTax());
-                    stmt.setString(14, item.getCurrency());
-                    stmt.executeUpdate();
-                }
-            }
+            upsertLineItems(conn, invoiceId, lineItems);
+            ROLLUPS.refreshDays(conn, ROLLUPS.dayOf(conn, invoiceId));
             conn.commit();
-            LOGGER.info("Updated {} line items for invoice ID: {}", lineItems.size(), invoiceId);
+            LOGGER.info("Synced {} line items for invoice ID: {}", lineItems.size(), invoiceId);
         } catch (SQLException e) {
             conn.rollback();
             throw new DatabaseException("Failed to update invoice line items", e);
@@ -279,6 +462,176 @@ public void updateInvoiceLineItems(String invoiceId, List<InvoiceLineItem> lineI
     }
 }
 
+// Line items per executeBatch round trip; large import invoices are flushed in several batches
+private static final int LINE_ITEM_BATCH_SIZE = Integer.getInteger("invoice.lineItems.batchSize", 100);
+
+private static final String INSERT_LINE_ITEM_SQL =
+    "INSERT INTO InvoiceLineItems (invoiceId, productId, warehouseId, quantity, unit, unitPrice, totalPrice, " +
+    "paidAmount, receivedAmount, discount, fixedDiscount, taxRate, totalTax, currency) " +
+    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+/**
+ * Inserts line items through one batched statement on the caller's transaction and writes the generated
+ * lineItemId back to each item, so a later updateInvoiceLineItems can diff against the stored rows.
+ */
+private void insertLineItems(Connection conn, String invoiceId, List<InvoiceLineItem> items,
+                             ToDoubleFunction<InvoiceLineItem> unitPrice) throws SQLException {
+    insertLineItems(conn, Collections.nCopies(items.size(), invoiceId), items, unitPrice);
+}
+
+// invoiceIds.get(i) is the owning invoice of items.get(i); lets one batch span several invoices
+private void insertLineItems(Connection conn, List<String> invoiceIds, List<InvoiceLineItem> items,
+                             ToDoubleFunction<InvoiceLineItem> unitPrice) throws SQLException {
+    if (items.isEmpty()) {
+        return;
+    }
+    try (PreparedStatement stmt = conn.prepareStatement(INSERT_LINE_ITEM_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        int pending = 0;
+        int assigned = 0;
+        for (int i = 0; i < items.size(); i++) {
+            InvoiceLineItem item = items.get(i);
+            stmt.setString(1, invoiceIds.get(i));
+            stmt.setInt(2, item.getProductId());
+            stmt.setInt(3, item.getWarehouseId());
+            stmt.setInt(4, item.getQuantity());
+            stmt.setString(5, item.getUnit());
+            SqlValues.setAmount(stmt, 6, unitPrice.applyAsDouble(item));
+            SqlValues.setAmount(stmt, 7, item.getTotalPrice());
+            stmt.setDouble(8, item.getPaidAmount());
+            stmt.setDouble(9, item.getReceivedAmount());
+            stmt.setDouble(10, item.getDiscount());
+            stmt.setDouble(11, item.getFixedDiscount());
+            stmt.setDouble(12, item.getTaxRate());
+            SqlValues.setAmount(stmt, 13, item.getTotalTax());
+            stmt.setString(14, item.getCurrency());
+            stmt.addBatch();
+            if (++pending == LINE_ITEM_BATCH_SIZE) {
+                assigned = flushLineItemBatch(stmt, items, assigned);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            flushLineItemBatch(stmt, items, assigned);
+        }
+    }
+}
+
+private int flushLineItemBatch(PreparedStatement stmt, List<InvoiceLineItem> items, int assigned) throws SQLException {
+    stmt.executeBatch();
+    try (ResultSet keys = stmt.getGeneratedKeys()) {
+        while (keys.next() && assigned < items.size()) {
+            items.get(assigned++).setId(keys.getInt(1));
+        }
+    }
+    return assigned;
+}
+
+/**
+ * Brings the stored line items of an invoice in line with the given list: rows whose lineItemId is no longer
+ * present are deleted, changed rows are updated, new items (id 0 or unknown) are inserted, and unchanged
+ * rows are left alone. All three steps are batched.
+ */
+private void upsertLineItems(Connection conn, String invoiceId, List<InvoiceLineItem> items) throws SQLException {
+    Map<Integer, InvoiceLineItem> stored = new HashMap<>();
+    try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM InvoiceLineItems WHERE invoiceId = ?")) {
+        stmt.setString(1, invoiceId);
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                InvoiceLineItem row = mapLineItem(rs);
+                stored.put(row.getId(), row);
+            }
+        }
+    }
+
+    List<InvoiceLineItem> inserts = new ArrayList<>();
+    List<InvoiceLineItem> updates = new ArrayList<>();
+    Set<Integer> kept = new HashSet<>();
+    for (InvoiceLineItem item : items) {
+        InvoiceLineItem row = stored.get(item.getId());
+        if (row == null || !kept.add(item.getId())) {
+            inserts.add(item);
+        } else if (!sameLineItem(row, item)) {
+            updates.add(item);
+        }
+    }
+
+    int deleted = 0;
+    try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM InvoiceLineItems WHERE lineItemId = ?")) {
+        int pending = 0;
+        for (Integer id : stored.keySet()) {
+            if (!kept.contains(id)) {
+                stmt.setInt(1, id);
+                stmt.addBatch();
+                deleted++;
+                if (++pending == LINE_ITEM_BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            stmt.executeBatch();
+        }
+    }
+
+    try (PreparedStatement stmt = conn.prepareStatement(
+             "UPDATE InvoiceLineItems SET productId = ?, warehouseId = ?, quantity = ?, unit = ?, unitPrice = ?, totalPrice = ?, " +
+             "paidAmount = ?, receivedAmount = ?, discount = ?, fixedDiscount = ?, taxRate = ?, totalTax = ?, currency = ? " +
+             "WHERE lineItemId = ?")) {
+        int pending = 0;
+        for (InvoiceLineItem item : updates) {
+            stmt.setInt(1, item.getProductId());
+            stmt.setInt(2, item.getWarehouseId());
+            stmt.setInt(3, item.getQuantity());
+            stmt.setString(4, item.getUnit());
+            SqlValues.setAmount(stmt, 5, item.getUnitPrice()); // Use adjusted unitPrice
+            SqlValues.setAmount(stmt, 6, item.getTotalPrice());
+            stmt.setDouble(7, item.getPaidAmount());
+            stmt.setDouble(8, item.getReceivedAmount());
+            stmt.setDouble(9, item.getDiscount());
+            stmt.setDouble(10, item.getFixedDiscount());
+            stmt.setDouble(11, item.getTaxRate());
+            SqlValues.setAmount(stmt, 12, item.getTotalTax());
+            stmt.setString(13, item.getCurrency());
+            stmt.setInt(14, item.getId());
+            stmt.addBatch();
+            if (++pending == LINE_ITEM_BATCH_SIZE) {
+                stmt.executeBatch();
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            stmt.executeBatch();
+        }
+    }
+
+    insertLineItems(conn, invoiceId, inserts, InvoiceLineItem::getUnitPrice);
+    LOGGER.debug("Line items for {}: {} inserted, {} updated, {} deleted, {} unchanged", invoiceId,
+        inserts.size(), updates.size(), deleted, kept.size() - updates.size());
+}
+
+// Compares the columns upsertLineItems writes; the stored row's unitPrice is the adjusted price
+private static boolean sameLineItem(InvoiceLineItem stored, InvoiceLineItem item) {
+    return stored.getProductId() == item.getProductId()
+        && stored.getWarehouseId() == item.getWarehouseId()
+        && stored.getQuantity() == item.getQuantity()
+        && Objects.equals(stored.getUnit(), item.getUnit())
+        && sameAmount(stored.getUnitPrice(), item.getUnitPrice())
+        && sameAmount(stored.getTotalPrice(), item.getTotalPrice())
+        && Double.compare(stored.getPaidAmount(), item.getPaidAmount()) == 0
+        && Double.compare(stored.getReceivedAmount(), item.getReceivedAmount()) == 0
+        && Double.compare(stored.getDiscount(), item.getDiscount()) == 0
+        && Double.compare(stored.getFixedDiscount(), item.getFixedDiscount()) == 0
+        && Double.compare(stored.getTaxRate(), item.getTaxRate()) == 0
+        && sameAmount(stored.getTotalTax(), item.getTotalTax())
+        && Objects.equals(stored.getCurrency(), item.getCurrency());
+}
+
+// Amount columns are DECIMAL, so a stored value only matches an item at the column's scale
+private static boolean sameAmount(double stored, double value) {
+    return SqlValues.toAmount(stored).compareTo(SqlValues.toAmount(value)) == 0;
+}
+
 ////==================
 
     public void updateInvoice(String invoiceId, Integer customerId, String invoiceType, String date, double totalAmount, double taxAmount,
@@ -287,27 +640,30 @@ public void updateInvoiceLineItems(String invoiceId, List<InvoiceLineItem> lineI
                               double discount, double shippingCharge, double transportCharge, double shippingFee,
                               double transportingFee, double uploadingFee, double taxFee, String recurringId,
                               Map<String, String> customFields) throws DatabaseException {
+        BALANCES.beginChange();
         try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
             try (PreparedStatement stmt = conn.prepareStatement(
                      "UPDATE Invoices SET customerId = ?, supplierId = ?, invoiceType = ?, date = ?, totalAmount = ?, taxAmount = ?, " +
                      "currency = ?, status = ?, paymentInstructions = ?, paymentTerm = ?, exchangeRate = ?, " +
                      "shippingFee = ?, transportingFee = ?, uploadingFee = ?, taxFee = ? WHERE invoiceId = ?")) {
+                Runnable reverseBalance = reverseInvoiceBalance(conn, invoiceId);
+                String oldDay = ROLLUPS.dayOf(conn, invoiceId);
                 stmt.setObject(1, customerId);
                 stmt.setObject(2, supplierId != null ? Integer.parseInt(supplierId) : null);
                 stmt.setString(3, invoiceType);
-                stmt.setString(4, date);
-                stmt.setDouble(5, totalAmount);
-                stmt.setDouble(6, taxAmount);
+                SqlValues.setDate(stmt, 4, date);
+                SqlValues.setAmount(stmt, 5, totalAmount);
+                SqlValues.setAmount(stmt, 6, taxAmount);
                 stmt.setString(7, currency);
                 stmt.setString(8, status);
                 stmt.setString(9, paymentInstructions);
                 stmt.setString(10, paymentTerm);
                 stmt.setDouble(11, exchangeRate);
-                stmt.setDouble(12, shippingFee);
-                stmt.setDouble(13, transportingFee);
-                stmt.setDouble(14, uploadingFee);
-                stmt.setDouble(15, taxFee);
+                SqlValues.setAmount(stmt, 12, shippingFee);
+                SqlValues.setAmount(stmt, 13, transportingFee);
+                SqlValues.setAmount(stmt, 14, uploadingFee);
+                SqlValues.setAmount(stmt, 15, taxFee);
                 stmt.setString(16, invoiceId);
                 stmt.executeUpdate();
 
@@ -316,64 +672,53 @@ public void updateInvoiceLineItems(String invoiceId, List<InvoiceLineItem> lineI
                     deleteStmt.executeUpdate();
                 }
 
-                for (InvoiceLineItem item : lineItems) {
-                    try (PreparedStatement itemStmt = conn.prepareStatement(
-                             "INSERT INTO InvoiceLineItems (invoiceId, productId, warehouseId, quantity, unit, unitPrice, totalPrice, " +
-                             "paidAmount, receivedAmount, discount, fixedDiscount, taxRate, totalTax, currency) " +
-                             "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
-                        itemStmt.setString(1, invoiceId);
-                        itemStmt.setInt(2, item.getProductId());
-                        itemStmt.setInt(3, item.getWarehouseId());
-                        itemStmt.setInt(4, item.getQuantity());
-                        itemStmt.setString(5, item.getUnit());
-                        itemStmt.setDouble(6, item.getUnitPrice());
-                        itemStmt.setDouble(7, item.getTotalPrice());
-                        itemStmt.setDouble(8, item.getPaidAmount());
-                        itemStmt.setDouble(9, item.getReceivedAmount());
-                        itemStmt.setDouble(10, item.getDiscount());
-                        itemStmt.setDouble(11, item.getFixedDiscount());
-                        itemStmt.setDouble(12, item.getTaxRate());
-                        itemStmt.setDouble(13, item.getTotalTax());
-                        itemStmt.setString(14, item.getCurrency());
-                        itemStmt.executeUpdate();
-                    }
-                }
+                insertLineItems(conn, invoiceId, lineItems, InvoiceLineItem::getUnitPrice);
+                ROLLUPS.refreshDays(conn, oldDay, date);
                 conn.commit();
+                reverseBalance.run();
+                BALANCES.adjustForInvoice(customerId, supplierId != null ? Integer.valueOf(supplierId) : null, invoiceType,
+                    status, totalAmount);
             } catch (SQLException e) {
                 conn.rollback();
                 throw e;
             }
         } catch (SQLException e) {
             throw new DatabaseException("Failed to update invoice", e);
+        } finally {
+            endInvoiceOrPaymentChange();
         }
     }
 
+    private static final String INVOICE_HEADER_SELECT =
+        "SELECT i.invoiceId, i.customerId, c.name AS customerName, i.supplierId, s.name AS supplierName, i.date, " +
+        "i.totalAmount, i.taxAmount AS totalTax, i.currency, i.status, i.paymentInstructions, i.paymentTerm, i.notes, " +
+        "i.exchangeRate, i.shippingFee AS shippingCharge, i.transportingFee, i.uploadingFee, i.taxFee, i.invoiceType " +
+        "FROM Invoices i " +
+        "LEFT JOIN Customers c ON i.customerId = c.id " +
+        "LEFT JOIN Suppliers s ON i.supplierId = s.id";
+
     public List<InvoiceDetails> getAllInvoices() throws DatabaseException {
         List<InvoiceDetails> invoices = new ArrayList<>();
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT i.invoiceId, i.customerId, c.name AS customerName, i.supplierId, s.name AS supplierName, i.date, " +
-                 "i.totalAmount, i.taxAmount AS totalTax, i.currency, i.status, i.paymentInstructions, i.paymentTerm, i.notes, " +
-                 "i.exchangeRate, i.shippingFee AS shippingCharge, i.transportingFee, i.uploadingFee, i.taxFee, i.invoiceType " +
-                 "FROM Invoices i " +
-                 "LEFT JOIN Customers c ON i.customerId = c.id " +
-                 "LEFT JOIN Suppliers s ON i.supplierId = s.id")) {
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                List<InvoiceLineItem> lineItems = getInvoiceLineItems(rs.getString("invoiceId"));
-                InvoiceDetails invoice = new InvoiceDetails(
-                    rs.getString("invoiceId"), rs.getString("invoiceType"), rs.getString("customerName"),
-                    rs.getString("supplierName"), rs.getString("date"), rs.getDouble("totalAmount"), 0.0, 0.0,
-                    rs.getString("currency"), rs.getString("paymentTerm"), rs.getString("status"),
-                    rs.getString("paymentInstructions"), rs.getString("notes"), lineItems, rs.getDouble("totalAmount"),
-                    rs.getDouble("totalAmount"), rs.getDouble("totalTax"), 0.0, 0.0, 0.0,
-                    rs.getDouble("shippingCharge"), null, rs.getDouble("exchangeRate"), new HashMap<>(),
-                    rs.getString("currency")
-                );
-                invoice.setTransportingFee(rs.getDouble("transportingFee"));
-                invoice.setUploadingFee(rs.getDouble("uploadingFee"));
-                invoice.setTaxFee(rs.getDouble("taxFee"));
-                invoices.add(invoice);
+        try (Connection conn = dataSource.getConnection()) {
+            // Headers first, then every line item in one pass on the same connection
+            try (PreparedStatement stmt = conn.prepareStatement(INVOICE_HEADER_SELECT);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    invoices.add(mapInvoiceHeader(rs));
+                }
+            }
+            Map<String, List<InvoiceLineItem>> itemsByInvoice = new HashMap<>(invoices.size() * 2);
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM InvoiceLineItems ORDER BY invoiceId, lineItemId");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    itemsByInvoice.computeIfAbsent(rs.getString("invoiceId"), k -> new ArrayList<>()).add(mapLineItem(rs));
+                }
+            }
+            for (InvoiceDetails invoice : invoices) {
+                List<InvoiceLineItem> items = itemsByInvoice.get(invoice.getInvoiceId());
+                if (items != null) {
+                    invoice.getLineItems().addAll(items);
+                }
             }
         } catch (SQLException e) {
             throw new DatabaseException("Failed to fetch all invoices", e);
@@ -381,9 +726,65 @@ public void updateInvoiceLineItems(String invoiceId, List<InvoiceLineItem> lineI
         return invoices;
     }
 
+    /**
+     * Returns one page of invoice headers (no line items) after the given keyset position, newest first.
+     * Pass a null afterDate for the first page. Seeks on (date, invoiceId) instead of using OFFSET, so
+     * every page costs the same regardless of how deep the caller has scrolled.
+     */
+    public InvoicePage getInvoicePage(String afterDate, String afterInvoiceId, int pageSize) throws DatabaseException {
+        String sql = INVOICE_HEADER_SELECT +
+                     (afterDate != null ? " WHERE i.date < ? OR (i.date = ? AND i.invoiceId < ?)" : "") +
+                     " ORDER BY i.date DESC, i.invoiceId DESC LIMIT ?";
+        List<InvoiceDetails> invoices = new ArrayList<>(pageSize);
+        boolean hasMore = false;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterDate != null) {
+                SqlValues.setDate(stmt, index++, afterDate);
+                SqlValues.setDate(stmt, index++, afterDate);
+                stmt.setString(index++, afterInvoiceId);
+            }
+            stmt.setInt(index, pageSize + 1); // One extra row tells us whether another page exists
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (invoices.size() == pageSize) {
+                        hasMore = true;
+                        break;
+                    }
+                    invoices.add(mapInvoiceHeader(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to fetch invoice page", e);
+        }
+        InvoiceDetails last = invoices.isEmpty() ? null : invoices.get(invoices.size() - 1);
+        return new InvoicePage(invoices,
+            last != null ? last.getDate() : afterDate,
+            last != null ? last.getInvoiceId() : afterInvoiceId,
+            hasMore);
+    }
+
+    // Maps a row of INVOICE_HEADER_SELECT; line items are left empty for the caller to fill
+    private InvoiceDetails mapInvoiceHeader(ResultSet rs) throws SQLException {
+        InvoiceDetails invoice = new InvoiceDetails(
+            rs.getString("invoiceId"), rs.getString("invoiceType"), rs.getString("customerName"),
+            rs.getString("supplierName"), rs.getString("date"), rs.getDouble("totalAmount"), 0.0, 0.0,
+            rs.getString("currency"), rs.getString("paymentTerm"), rs.getString("status"),
+            rs.getString("paymentInstructions"), rs.getString("notes"), new ArrayList<>(), rs.getDouble("totalAmount"),
+            rs.getDouble("totalAmount"), rs.getDouble("totalTax"), 0.0, 0.0, 0.0,
+            rs.getDouble("shippingCharge"), null, rs.getDouble("exchangeRate"), new HashMap<>(),
+            rs.getString("currency")
+        );
+        invoice.setTransportingFee(rs.getDouble("transportingFee"));
+        invoice.setUploadingFee(rs.getDouble("uploadingFee"));
+        invoice.setTaxFee(rs.getDouble("taxFee"));
+        return invoice;
+    }
+
     //====================
 
-	private List<InvoiceLineItem> getInvoiceLineItems(String invoiceId) throws DatabaseException {
+	public List<InvoiceLineItem> getInvoiceLineItems(String invoiceId) throws DatabaseException {
     List<InvoiceLineItem> items = new ArrayList<>();
     String sql = "SELECT * FROM InvoiceLineItems WHERE invoiceId = ?";
     try (Connection conn = dataSource.getConnection();
@@ -391,13 +792,7 @@ public void updateInvoiceLineItems(String invoiceId, List<InvoiceLineItem> lineI
         stmt.setString(1, invoiceId);
         try (ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                items.add(new InvoiceLineItem(
-                    rs.getInt("lineItemId"), rs.getInt("productId"), rs.getInt("warehouseId"),
-                    rs.getInt("quantity"), rs.getString("unit"), rs.getDouble("unitPrice"),
-                    rs.getDouble("totalPrice"), rs.getDouble("paidAmount"), rs.getDouble("receivedAmount"),
-                    rs.getDouble("discount"), rs.getDouble("fixedDiscount"), rs.getDouble("taxRate"),
-                    rs.getDouble("totalTax"), rs.getString("currency")
-                ));
+                items.add(mapLineItem(rs));
             }
         }
     } catch (SQLException e) {
@@ -406,96 +801,177 @@ public void updateInvoiceLineItems(String invoiceId, List<InvoiceLineItem> lineI
     return items;
 }
 
+private InvoiceLineItem mapLineItem(ResultSet rs) throws SQLException {
+    return new InvoiceLineItem(
+        rs.getInt("lineItemId"), rs.getInt("productId"), rs.getInt("warehouseId"),
+        rs.getInt("quantity"), rs.getString("unit"), rs.getDouble("unitPrice"),
+        rs.getDouble("totalPrice"), rs.getDouble("paidAmount"), rs.getDouble("receivedAmount"),
+        rs.getDouble("discount"), rs.getDouble("fixedDiscount"), rs.getDouble("taxRate"),
+        rs.getDouble("totalTax"), rs.getString("currency")
+    );
+}
+
 	//=======
 
     public void deleteInvoice(String invoiceId) throws DatabaseException {
+        BALANCES.beginChange();
         try (Connection conn = dataSource.getConnection()) {
             conn.setAutoCommit(false);
             try (PreparedStatement stmt1 = conn.prepareStatement("DELETE FROM InvoiceLineItems WHERE invoiceId = ?");
                  PreparedStatement stmt2 = conn.prepareStatement("DELETE FROM Invoices WHERE invoiceId = ?")) {
+                Runnable reverseBalance = reverseInvoiceBalance(conn, invoiceId);
+                String oldDay = ROLLUPS.dayOf(conn, invoiceId);
                 stmt1.setString(1, invoiceId);
                 stmt1.executeUpdate();
                 stmt2.setString(1, invoiceId);
                 stmt2.executeUpdate();
+                ROLLUPS.refreshDays(conn, oldDay);
                 conn.commit();
+                reverseBalance.run();
             } catch (SQLException e) {
                 conn.rollback();
                 throw e;
             }
         } catch (SQLException e) {
             throw new DatabaseException("Failed to delete invoice: " + invoiceId, e);
+        } finally {
+            endInvoiceOrPaymentChange();
+        }
+    }
+
+    // Reads the invoice's current balance effect so it can be backed out once the change has committed
+    private Runnable reverseInvoiceBalance(Connection conn, String invoiceId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT customerId, supplierId, invoiceType, status, totalAmount FROM Invoices WHERE invoiceId = ?")) {
+            stmt.setString(1, invoiceId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return () -> { };
+                }
+                Integer customerId = nullableInt(rs, "customerId");
+                Integer supplierId = nullableInt(rs, "supplierId");
+                String invoiceType = rs.getString("invoiceType");
+                String status = rs.getString("status");
+                double totalAmount = rs.getDouble("totalAmount");
+                return () -> BALANCES.adjustForInvoice(customerId, supplierId, invoiceType, status, -totalAmount);
+            }
         }
     }
 
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
     //=========================
 
-	public List<InvoiceDetails> searchInvoices(String whereClause, List<String> params) throws DatabaseException {
+// Generated SQL per criteria shape; identical text lets the driver reuse the parsed statement and plan
+private static final Map<Integer, String> SEARCH_SQL_BY_SHAPE = new java.util.concurrent.ConcurrentHashMap<>();
+
+public List<InvoiceDetails> searchInvoices(InvoiceSearchCriteria criteria) throws DatabaseException {
     List<InvoiceDetails> invoices = new ArrayList<>();
-    String sql = "SELECT * FROM Invoices WHERE " + whereClause;
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(sql)) {
-        for (int i = 0; i < params.size(); i++) {
-            stmt.setString(i + 1, params.get(i));
+    String sql = SEARCH_SQL_BY_SHAPE.computeIfAbsent(criteria.shape(), DatabaseService::buildSearchSql);
+    try (Connection conn = dataSource.getConnection()) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bindSearchCriteria(stmt, criteria);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String invoiceType = rs.getString("invoiceType");
+                    boolean isImport = "Import Purchase".equals(invoiceType);
+                    String customerName = isImport || rs.getObject("customerId") == null ? "" :
+                                         (rs.getString("customerName") != null ? rs.getString("customerName") : "Unknown Customer");
+                    String supplierName = !isImport || rs.getObject("supplierId") == null ? "" :
+                                         (rs.getString("supplierName") != null ? rs.getString("supplierName") : "Unknown Supplier");
+                    InvoiceDetails invoice = new InvoiceDetails(
+                        rs.getString("invoiceId"), invoiceType,
+                        customerName, supplierName,
+                        rs.getString("date"), rs.getDouble("totalAmount") - rs.getDouble("taxAmount"),
+                        0.0, 0.0, rs.getString("currency"), rs.getString("paymentTerm"), rs.getString("status"),
+                        rs.getString("paymentInstructions"), rs.getString("notes"), new ArrayList<>(),
+                        rs.getDouble("totalAmount"), rs.getDouble("totalAmount"), rs.getDouble("taxAmount"),
+                        0.0, 0.0, 0.0, rs.getDouble("shippingFee"), null, rs.getDouble("exchangeRate"), null, null
+                    );
+                    invoice.setTransportingFee(rs.getDouble("transportingFee"));
+                    invoice.setUploadingFee(rs.getDouble("uploadingFee"));
+                    invoice.setTaxFee(rs.getDouble("taxFee"));
+                    invoices.add(invoice);
+                }
+            }
         }
-        try (ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                String invoiceType = rs.getString("invoiceType");
-                String customerName = invoiceType.equals("Import Purchase") ? "" : 
-                                     (rs.getInt("customerId") != 0 ? getCustomerName(rs.getInt("customerId")) : "");
-                String supplierName = invoiceType.equals("Import Purchase") ? 
-                                     (rs.getInt("supplierId") != 0 ? getSupplierName(rs.getInt("supplierId")) : "") : "";
-                List<InvoiceLineItem> lineItems = getInvoiceLineItems(rs.getString("invoiceId"));
-                InvoiceDetails invoice = new InvoiceDetails(
-                    rs.getString("invoiceId"), invoiceType,
-                    customerName, supplierName,
-                    rs.getString("date"), rs.getDouble("totalAmount") - rs.getDouble("taxAmount"),
-                    0.0, 0.0, rs.getString("currency"), rs.getString("paymentTerm"), rs.getString("status"),
-                    rs.getString("paymentInstructions"), rs.getString("notes"), lineItems,
-                    rs.getDouble("totalAmount"), rs.getDouble("totalAmount"), rs.getDouble("taxAmount"),
-                    0.0, 0.0, 0.0, rs.getDouble("shippingFee"), null, rs.getDouble("exchangeRate"), null, null
-                );
-                invoice.setTransportingFee(rs.getDouble("transportingFee"));
-                invoice.setUploadingFee(rs.getDouble("uploadingFee"));
-                invoice.setTaxFee(rs.getDouble("taxFee"));
-                invoices.add(invoice);
-            }
-            LOGGER.info("Retrieved {} invoices for query: {} with params: {}", invoices.size(), whereClause, params);
-            if (invoices.isEmpty()) {
-                LOGGER.warn("No invoices found for query: {} with params: {}", whereClause, params);
+        if (!invoices.isEmpty()) {
+            Map<String, List<InvoiceLineItem>> itemsByInvoice = new HashMap<>();
+            for (InvoiceDetails invoice : invoices) {
+                itemsByInvoice.put(invoice.getInvoiceId(), invoice.getLineItems());
             }
+            loadInvoiceLineItems(conn, itemsByInvoice);
+        }
+        LOGGER.info("Retrieved {} invoices for {}", invoices.size(), criteria);
+        if (invoices.isEmpty()) {
+            LOGGER.warn("No invoices found for {}", criteria);
         }
     } catch (SQLException e) {
-        LOGGER.error("Failed to search invoices with query: {} and params: {}", whereClause, params, e);
+        LOGGER.error("Failed to search invoices for {}", criteria, e);
         throw new DatabaseException("Failed to search invoices: " + e.getMessage(), e);
     }
     return invoices;
 }
 
-//===========================
+private static String buildSearchSql(int shape) {
+    StringBuilder sql = new StringBuilder(
+        "SELECT i.*, c.name AS customerName, s.name AS supplierName FROM Invoices i " +
+        "LEFT JOIN Customers c ON i.customerId = c.id " +
+        "LEFT JOIN Suppliers s ON i.supplierId = s.id WHERE 1=1");
+    if ((shape & InvoiceSearchCriteria.INVOICE_ID) != 0) sql.append(" AND i.invoiceId = ?");
+    if ((shape & InvoiceSearchCriteria.STATUS) != 0) sql.append(" AND i.status = ?");
+    if ((shape & InvoiceSearchCriteria.INVOICE_TYPE) != 0) sql.append(" AND i.invoiceType = ?");
+    if ((shape & InvoiceSearchCriteria.CUSTOMER_ID) != 0) sql.append(" AND i.customerId = ?");
+    if ((shape & InvoiceSearchCriteria.SUPPLIER_ID) != 0) sql.append(" AND i.supplierId = ?");
+    if ((shape & InvoiceSearchCriteria.FROM_DATE) != 0) sql.append(" AND i.date >= ?");
+    if ((shape & InvoiceSearchCriteria.TO_DATE) != 0) sql.append(" AND i.date <= ?");
+    if ((shape & InvoiceSearchCriteria.MIN_AMOUNT) != 0) sql.append(" AND i.totalAmount >= ?");
+    if ((shape & InvoiceSearchCriteria.MAX_AMOUNT) != 0) sql.append(" AND i.totalAmount <= ?");
+    if ((shape & InvoiceSearchCriteria.CURRENCY) != 0) sql.append(" AND i.currency = ?");
+    sql.append(" ORDER BY i.date DESC, i.invoiceId DESC");
+    return sql.toString();
+}
 
-private String getCustomerName(int customerId) throws DatabaseException {
-    String sql = "SELECT name FROM Customers WHERE id = ?";
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(sql)) {
-        stmt.setInt(1, customerId);
-        try (ResultSet rs = stmt.executeQuery()) {
-            return rs.next() ? rs.getString("name") : "Unknown Customer";
-        }
-    } catch (SQLException e) {
-        throw new DatabaseException("Failed to get customer name for ID: " + customerId, e);
-    }
+// Binds in the same order buildSearchSql appends its predicates
+private static void bindSearchCriteria(PreparedStatement stmt, InvoiceSearchCriteria criteria) throws SQLException {
+    int index = 1;
+    if (criteria.getInvoiceId() != null) stmt.setString(index++, criteria.getInvoiceId());
+    if (criteria.getStatus() != null) stmt.setString(index++, criteria.getStatus());
+    if (criteria.getInvoiceType() != null) stmt.setString(index++, criteria.getInvoiceType());
+    if (criteria.getCustomerId() != null) stmt.setInt(index++, criteria.getCustomerId());
+    if (criteria.getSupplierId() != null) stmt.setInt(index++, criteria.getSupplierId());
+    if (criteria.getFromDate() != null) SqlValues.setDate(stmt, index++, criteria.getFromDate());
+    if (criteria.getToDate() != null) SqlValues.setDate(stmt, index++, criteria.getToDate());
+    if (criteria.getMinAmount() != null) SqlValues.setAmount(stmt, index++, criteria.getMinAmount());
+    if (criteria.getMaxAmount() != null) SqlValues.setAmount(stmt, index++, criteria.getMaxAmount());
+    if (criteria.getCurrency() != null) stmt.setString(index++, criteria.getCurrency());
 }
 
-private String getSupplierName(int supplierId) throws DatabaseException {
-    String sql = "SELECT name FROM Suppliers WHERE id = ?";
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement stmt = conn.prepareStatement(sql)) {
-        stmt.setInt(1, supplierId);
-        try (ResultSet rs = stmt.executeQuery()) {
-            return rs.next() ? rs.getString("name") : "Unknown Supplier";
+// Max bind parameters per IN (...) list when loading line items for many invoices at once
+private static final int LINE_ITEM_CHUNK_SIZE = 500;
+
+/**
+ * Fills the given per-invoice lists with one IN (...) query per chunk of invoice IDs, on the caller's connection.
+ */
+private void loadInvoiceLineItems(Connection conn, Map<String, List<InvoiceLineItem>> itemsByInvoice) throws SQLException {
+    List<String> ids = new ArrayList<>(itemsByInvoice.keySet());
+    for (int from = 0; from < ids.size(); from += LINE_ITEM_CHUNK_SIZE) {
+        List<String> chunk = ids.subList(from, Math.min(from + LINE_ITEM_CHUNK_SIZE, ids.size()));
+        String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT * FROM InvoiceLineItems WHERE invoiceId IN (" + placeholders + ") ORDER BY invoiceId, lineItemId")) {
+            for (int i = 0; i < chunk.size(); i++) {
+                stmt.setString(i + 1, chunk.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    itemsByInvoice.get(rs.getString("invoiceId")).add(mapLineItem(rs));
+                }
+            }
         }
-    } catch (SQLException e) {
-        throw new DatabaseException("Failed to get supplier name for ID: " + supplierId, e);
     }
 }
 
@@ -503,68 +979,22 @@ private String getSupplierName(int supplierId) throws DatabaseException {
 //==========================
 
     public double getCustomerBalance(int customerId) throws DatabaseException {
-    double balance = 0.0;
-    String invoiceSql = "SELECT SUM(totalAmount) FROM Invoices WHERE customerId = ? AND invoiceType = 'Sale' AND status != 'PAID'";
-    String paymentSql = "SELECT SUM(amount) FROM Payments WHERE customerId = ? AND supplierId IS NULL";
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement invoiceStmt = conn.prepareStatement(invoiceSql);
-         PreparedStatement paymentStmt = conn.prepareStatement(paymentSql)) {
-        invoiceStmt.setInt(1, customerId);
-        try (ResultSet rs = invoiceStmt.executeQuery()) {
-            if (rs.next() && rs.getObject(1) != null) {
-                balance += rs.getDouble(1);
-                LOGGER.info("Customer ID {} invoice total: {}", customerId, balance);
-            } else {
-                LOGGER.info("No unpaid invoices for customer ID {}", customerId);
-            }
-        }
-        paymentStmt.setInt(1, customerId);
-        try (ResultSet rs = paymentStmt.executeQuery()) {
-            if (rs.next() && rs.getObject(1) != null) {
-                balance -= rs.getDouble(1);
-                LOGGER.info("Customer ID {} payment total subtracted, new balance: {}", customerId, balance);
-            } else {
-                LOGGER.info("No payments for customer ID {}", customerId);
-            }
+        try {
+            return BALANCES.getCustomerBalance(dataSource, customerId);
+        } catch (SQLException e) {
+            LOGGER.error("Failed to get customer balance for ID {}", customerId, e);
+            throw new DatabaseException("Failed to get customer balance: " + e.getMessage(), e);
         }
-    } catch (SQLException e) {
-        LOGGER.error("Failed to get customer balance for ID {}", customerId, e);
-        throw new DatabaseException("Failed to get customer balance: " + e.getMessage(), e);
     }
-    return balance;
-}
     //==========
-	public double getSupplierBalance(int supplierId) throws DatabaseException {
-    double balance = 0.0;
-    String invoiceSql = "SELECT SUM(totalAmount) FROM Invoices WHERE supplierId = ? AND invoiceType = 'Import Purchase' AND status != 'PAID'";
-    String paymentSql = "SELECT SUM(amount) FROM Payments WHERE supplierId = ? AND customerId IS NULL";
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement invoiceStmt = conn.prepareStatement(invoiceSql);
-         PreparedStatement paymentStmt = conn.prepareStatement(paymentSql)) {
-        invoiceStmt.setInt(1, supplierId);
-        try (ResultSet rs = invoiceStmt.executeQuery()) {
-            if (rs.next() && rs.getObject(1) != null) {
-                balance += rs.getDouble(1);
-                LOGGER.info("Supplier ID {} invoice total: {}", supplierId, balance);
-            } else {
-                LOGGER.info("No unpaid invoices for supplier ID {}", supplierId);
-            }
-        }
-        paymentStmt.setInt(1, supplierId);
-        try (ResultSet rs = paymentStmt.executeQuery()) {
-            if (rs.next() && rs.getObject(1) != null) {
-                balance -= rs.getDouble(1);
-                LOGGER.info("Supplier ID {} payment total subtracted, new balance: {}", supplierId, balance);
-            } else {
-                LOGGER.info("No payments for supplier ID {}", supplierId);
-            }
+    public double getSupplierBalance(int supplierId) throws DatabaseException {
+        try {
+            return BALANCES.getSupplierBalance(dataSource, supplierId);
+        } catch (SQLException e) {
+            LOGGER.error("Failed to get supplier balance for ID {}", supplierId, e);
+            throw new DatabaseException("Failed to get supplier balance: " + e.getMessage(), e);
         }
-    } catch (SQLException e) {
-        LOGGER.error("Failed to get supplier balance for ID {}", supplierId, e);
-        throw new DatabaseException("Failed to get supplier balance: " + e.getMessage(), e);
     }
-    return balance;
-}
 
 ///=============================
 	public void markPaymentReceived(String customerName, double amount, String currency, double exchangeRate, String supplierName, String invoiceId) 
@@ -583,15 +1013,17 @@ private String getSupplierName(int supplierId) throws DatabaseException {
     }
     String sql = "INSERT INTO Payments (customerId, supplierId, amount, currency, exchangeRate, date, status) " +
                  "VALUES (?, ?, ?, ?, ?, CURRENT_DATE, ?)";
+    BALANCES.beginChange();
     try (Connection conn = dataSource.getConnection();
          PreparedStatement stmt = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
         stmt.setObject(1, customerId, java.sql.Types.INTEGER);
         stmt.setObject(2, supplierId, java.sql.Types.INTEGER);
-        stmt.setDouble(3, amount);
+        SqlValues.setAmount(stmt, 3, amount);
         stmt.setString(4, currency);
         stmt.setDouble(5, exchangeRate);
         stmt.setString(6, customerId != null ? "RECEIVED" : "PAID"); // Set status dynamically
         int rows = stmt.executeUpdate();
+        BALANCES.adjustForPayment(customerId, supplierId, amount);
         LOGGER.info("Inserted payment: {} rows affected for {}", rows, customerName != null ? customerName : supplierName);
         try (ResultSet rs = stmt.getGeneratedKeys()) {
             if (rs.next()) {
@@ -608,29 +1040,39 @@ private String getSupplierName(int supplierId) throws DatabaseException {
     } catch (SQLException e) {
         LOGGER.error("Failed to mark payment for customer={}, supplier={}", customerName, supplierName, e);
         throw new DatabaseException("Failed to mark payment received: " + e.getMessage(), e);
+    } finally {
+        endInvoiceOrPaymentChange();
     }
 }
 
 private void updateInvoiceStatus(String invoiceId, double paymentAmount, boolean isCustomer) throws DatabaseException {
+    BALANCES.beginChange();
     try (Connection conn = dataSource.getConnection()) {
         conn.setAutoCommit(false);
         try {
             // Get invoice details
-            String sql = "SELECT totalAmount, status FROM Invoices WHERE invoiceId = ?";
+            String sql = "SELECT customerId, supplierId, invoiceType, totalAmount, status FROM Invoices WHERE invoiceId = ?";
             double totalAmount = 0.0;
             String currentStatus = "";
+            Integer customerId = null;
+            Integer supplierId = null;
+            String invoiceType = null;
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, invoiceId);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
                         totalAmount = rs.getDouble("totalAmount");
                         currentStatus = rs.getString("status");
+                        customerId = nullableInt(rs, "customerId");
+                        supplierId = nullableInt(rs, "supplierId");
+                        invoiceType = rs.getString("invoiceType");
                     }
                 }
             }
+            String newStatus = null;
             if ("OPEN".equals(currentStatus)) {
                 double remaining = totalAmount - paymentAmount;
-                String newStatus = remaining <= 0 ? "PAID" : "PARTIALLY_PAID";
+                newStatus = remaining <= 0 ? "PAID" : "PARTIALLY_PAID";
                 try (PreparedStatement stmt = conn.prepareStatement(
                     "UPDATE Invoices SET status = ? WHERE invoiceId = ?")) {
                     stmt.setString(1, newStatus);
@@ -640,12 +1082,18 @@ private void updateInvoiceStatus(String invoiceId, double paymentAmount, boolean
                 }
             }
             conn.commit();
+            if (newStatus != null) {
+                BALANCES.adjustForInvoice(customerId, supplierId, invoiceType, currentStatus, -totalAmount);
+                BALANCES.adjustForInvoice(customerId, supplierId, invoiceType, newStatus, totalAmount);
+            }
         } catch (SQLException e) {
             conn.rollback();
             throw new DatabaseException("Failed to update invoice status", e);
         }
     } catch (SQLException e) {
         throw new DatabaseException("Failed to update invoice status", e);
+    } finally {
+        endInvoiceOrPaymentChange();
     }
 }
 
@@ -658,6 +1106,7 @@ private void updateInvoiceStatus(String invoiceId, double paymentAmount, boolean
             stmt.setString(1, name);
             stmt.setString(2, contactInfo);
             stmt.executeUpdate();
+            LOOKUPS.invalidate(LookupDirectory.Kind.CUSTOMER);
             LOGGER.debug("Added new customer: {}", name);
         } catch (SQLException e) {
             LOGGER.error("Failed to add customer: {}", name, e);
@@ -672,6 +1121,7 @@ private void updateInvoiceStatus(String invoiceId, double paymentAmount, boolean
             stmt.setString(1, name);
             stmt.setString(2, contactInfo);
             stmt.executeUpdate();
+            LOOKUPS.invalidate(LookupDirectory.Kind.SUPPLIER);
             LOGGER.debug("Added new supplier: {}", name);
         } catch (SQLException e) {
             LOGGER.error("Failed to add supplier: {}", name, e);
@@ -681,106 +1131,101 @@ private void updateInvoiceStatus(String invoiceId, double paymentAmount, boolean
 
     //======
 
-public List<Map<String, String>> getCustomerActivity(int customerId) throws DatabaseException {
-    List<Map<String, String>> activities = new ArrayList<>();
-    String invoiceSql = "SELECT invoiceId AS id, invoiceType AS type, date, totalAmount AS amount, currency, status " +
-                       "FROM Invoices WHERE customerId = ? AND invoiceType = 'Sale'";
-    String paymentSql = "SELECT paymentId AS id, 'Payment' AS type, date, amount, currency, status " +
-                       "FROM Payments WHERE customerId = ? AND supplierId IS NULL";
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement invoiceStmt = conn.prepareStatement(invoiceSql);
-         PreparedStatement paymentStmt = conn.prepareStatement(paymentSql)) {
-        // Invoices
-        invoiceStmt.setInt(1, customerId);
-        try (ResultSet rs = invoiceStmt.executeQuery()) {
-            while (rs.next()) {
-                Map<String, String> activity = new HashMap<>();
-                String invoiceId = rs.getString("id");
-                activity.put("id", invoiceId);
-                activity.put("type", rs.getString("type"));
-                activity.put("date", rs.getString("date"));
-                activity.put("amount", String.valueOf(rs.getDouble("amount")));
-                activity.put("currency", rs.getString("currency"));
-                activity.put("status", rs.getString("status"));
-                activities.add(activity);
-                LOGGER.info("Customer activity added: ID='{}', Type='{}'", invoiceId, rs.getString("type"));
-            }
-        }
-        // Payments
-        paymentStmt.setInt(1, customerId);
-        try (ResultSet rs = paymentStmt.executeQuery()) {
-            while (rs.next()) {
-                Map<String, String> activity = new HashMap<>();
-                String paymentId = String.valueOf(rs.getInt("id"));
-                activity.put("id", paymentId);
-                activity.put("type", rs.getString("type"));
-                activity.put("date", rs.getString("date"));
-                activity.put("amount", String.valueOf(rs.getDouble("amount")));
-                activity.put("currency", rs.getString("currency"));
-                activity.put("status", rs.getString("status"));
-                activities.add(activity);
-                LOGGER.info("Customer payment added: ID='{}'", paymentId);
-            }
-        }
-        LOGGER.info("Retrieved {} activities for customer ID {}", activities.size(), customerId);
-    } catch (SQLException e) {
-        LOGGER.error("Failed to get customer activity for ID {}", customerId, e);
-        throw new DatabaseException("Failed to get customer activity: " + e.getMessage(), e);
-    }
-    return activities;
+public LedgerPage getCustomerLedgerPage(int customerId, LedgerPage previous, int pageSize) throws DatabaseException {
+    return getLedgerPage("customerId", "supplierId", "Sale", customerId, previous, pageSize);
 }
 
+public LedgerPage getSupplierLedgerPage(int supplierId, LedgerPage previous, int pageSize) throws DatabaseException {
+    return getLedgerPage("supplierId", "customerId", "Import Purchase", supplierId, previous, pageSize);
+}
 
+// One side of a contact's ledger; effect mirrors ContactBalanceService so the running balances end at the
+// contact's balance, and sortKey orders entries that share a date. With seek set, the branch starts after the
+// keyset cursor and stops after the page, so a deep page reads no more rows than the first.
+private static String ledgerBranch(String contactColumn, String otherColumn, String invoiceType, boolean seek) {
+    String invoiceKey = "CONCAT('I', invoiceId)";
+    String paymentKey = "CONCAT('P', LPAD(CAST(paymentId AS VARCHAR(20)), 20, '0'))";
+    String order = " ORDER BY date DESC, sortKey DESC LIMIT ?";
+    return "SELECT * FROM (" +
+           "SELECT invoiceId AS id, invoiceType AS type, date, totalAmount AS amount, currency, status, " +
+           "CASE WHEN status != 'PAID' THEN totalAmount ELSE 0 END AS effect, " + invoiceKey + " AS sortKey " +
+           "FROM Invoices WHERE " + contactColumn + " = ? AND invoiceType = '" + invoiceType + "'" +
+           (seek ? " AND (date < ? OR (date = ? AND " + invoiceKey + " < ?))" : "") + order +
+           ") invoices UNION ALL SELECT * FROM (" +
+           "SELECT CAST(paymentId AS VARCHAR(20)) AS id, 'Payment' AS type, date, amount, currency, status, " +
+           "-amount AS effect, " + paymentKey + " AS sortKey " +
+           "FROM Payments WHERE " + contactColumn + " = ? AND " + otherColumn + " IS NULL" +
+           (seek ? " AND (date < ? OR (date = ? AND " + paymentKey + " < ?))" : "") + order +
+           ") payments";
+}
 
-//=========
-
-public List<Map<String, String>> getSupplierActivity(int supplierId) throws DatabaseException {
-    List<Map<String, String>> activities = new ArrayList<>();
-    String invoiceSql = "SELECT invoiceId AS id, invoiceType AS type, date, totalAmount AS amount, currency, status " +
-                       "FROM Invoices WHERE supplierId = ? AND invoiceType = 'Import Purchase'";
-    String paymentSql = "SELECT paymentId AS id, 'Payment' AS type, date, amount, currency, status " +
-                       "FROM Payments WHERE supplierId = ? AND customerId IS NULL";
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement invoiceStmt = conn.prepareStatement(invoiceSql);
-         PreparedStatement paymentStmt = conn.prepareStatement(paymentSql)) {
-        // Invoices
-        invoiceStmt.setInt(1, supplierId);
-        try (ResultSet rs = invoiceStmt.executeQuery()) {
-            while (rs.next()) {
-                Map<String, String> activity = new HashMap<>();
-                String invoiceId = rs.getString("id");
-                activity.put("id", invoiceId);
-                activity.put("type", rs.getString("type"));
-                activity.put("date", rs.getString("date"));
-                activity.put("amount", String.valueOf(rs.getDouble("amount")));
-                activity.put("currency", rs.getString("currency"));
-                activity.put("status", rs.getString("status"));
-                activities.add(activity);
-                LOGGER.info("Supplier activity added: ID='{}', Type='{}'", invoiceId, rs.getString("type"));
-            }
-        }
-        // Payments
-        paymentStmt.setInt(1, supplierId);
-        try (ResultSet rs = paymentStmt.executeQuery()) {
-            while (rs.next()) {
-                Map<String, String> activity = new HashMap<>();
-                String paymentId = String.valueOf(rs.getInt("id"));
-                activity.put("id", paymentId);
-                activity.put("type", rs.getString("type"));
-                activity.put("date", rs.getString("date"));
-                activity.put("amount", String.valueOf(rs.getDouble("amount")));
-                activity.put("currency", rs.getString("currency"));
-                activity.put("status", rs.getString("status"));
-                activities.add(activity);
-                LOGGER.info("Supplier payment added: ID='{}'", paymentId);
-            }
-        }
-        LOGGER.info("Retrieved {} activities for supplier ID {}", activities.size(), supplierId);
+private LedgerPage getLedgerPage(String contactColumn, String otherColumn, String invoiceType, int contactId,
+                                 LedgerPage previous, int pageSize) throws DatabaseException {
+    boolean seek = previous != null && previous.getLastDate() != null;
+    String sql = "SELECT * FROM (" + ledgerBranch(contactColumn, otherColumn, invoiceType, seek) + ") entries " +
+                 "ORDER BY date DESC, sortKey DESC LIMIT ?";
+    List<LedgerEntry> entries = new ArrayList<>(pageSize);
+    boolean hasMore = false;
+    BigDecimal balance;
+    try (Connection conn = dataSource.getConnection()) {
+        // Newest first, so each entry's running balance is the one before it minus that entry's effect; the
+        // first page starts from the contact's total and every later page from where the previous one ended
+        balance = seek
+            ? previous.getBalanceBefore()
+            : ledgerTotal(conn, contactColumn, otherColumn, invoiceType, contactId);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int branch = 0; branch < 2; branch++) { // Invoices, then Payments
+                stmt.setInt(index++, contactId);
+                if (seek) {
+                    SqlValues.setDate(stmt, index++, previous.getLastDate());
+                    SqlValues.setDate(stmt, index++, previous.getLastDate());
+                    stmt.setString(index++, previous.getLastSortKey());
+                }
+                stmt.setInt(index++, pageSize + 1);
+            }
+            stmt.setInt(index, pageSize + 1); // One extra row tells us whether another page exists
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (entries.size() == pageSize) {
+                        hasMore = true;
+                        break;
+                    }
+                    entries.add(new LedgerEntry(rs.getString("id"), rs.getString("type"), rs.getString("date"),
+                        rs.getDouble("amount"), rs.getString("currency"), rs.getString("status"),
+                        balance.doubleValue(), rs.getString("sortKey")));
+                    BigDecimal effect = rs.getBigDecimal("effect");
+                    if (effect != null) {
+                        balance = balance.subtract(effect);
+                    }
+                }
+            }
+        }
     } catch (SQLException e) {
-        LOGGER.error("Failed to get supplier activity for ID {}", supplierId, e);
-        throw new DatabaseException("Failed to get supplier activity: " + e.getMessage(), e);
+        LOGGER.error("Failed to get ledger for contact ID {}", contactId, e);
+        throw new DatabaseException("Failed to get contact ledger: " + e.getMessage(), e);
+    }
+    LedgerEntry last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    return new LedgerPage(entries,
+        last != null ? last.getDate() : seek ? previous.getLastDate() : null,
+        last != null ? last.getSortKey() : seek ? previous.getLastSortKey() : null,
+        balance, hasMore);
+}
+
+// Sum of every entry's effect, i.e. the running balance of the newest entry; one aggregate with no ordering
+private static BigDecimal ledgerTotal(Connection conn, String contactColumn, String otherColumn, String invoiceType,
+                                      int contactId) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(
+             "SELECT (SELECT COALESCE(SUM(CASE WHEN status != 'PAID' THEN totalAmount ELSE 0 END), 0) FROM Invoices " +
+             "WHERE " + contactColumn + " = ? AND invoiceType = '" + invoiceType + "') - " +
+             "(SELECT COALESCE(SUM(amount), 0) FROM Payments WHERE " + contactColumn + " = ? AND " + otherColumn + " IS NULL)")) {
+        stmt.setInt(1, contactId);
+        stmt.setInt(2, contactId);
+        try (ResultSet rs = stmt.executeQuery()) {
+            BigDecimal total = rs.next() ? rs.getBigDecimal(1) : null;
+            return total != null ? total : BigDecimal.ZERO;
+        }
     }
-    return activities;
 }
 
 //================
@@ -817,13 +1262,13 @@ public List<Map<String, String>> getSupplierActivity(int supplierId) throws Data
         }
     }
 //================
-    public List<Attachment> getAttachments(String entityType, String entityId) throws DatabaseException {
-    List<Attachment> attachments = new ArrayList<>();
+    public List<AttachmentDescriptor> getAttachments(String entityType, String entityId) throws DatabaseException {
+    List<AttachmentDescriptor> attachments = new ArrayList<>();
     String sql = "SELECT a.id, a.entityType, a.entityId, a.contactId, " +
                 "CASE WHEN i.invoiceType = 'Import Purchase' THEN COALESCE(s.name, c.name, a.contactName, '') " +
                 "     WHEN i.invoiceType = 'Sale' THEN COALESCE(c.name, s.name, a.contactName, '') " +
                 "     ELSE COALESCE(c.name, s.name, a.contactName, '') END AS contactName, " +
-                "a.fileName, a.fileSize, a.uploadDate, a.content, i.invoiceType " +
+                "a.fileName, a.fileSize, a.uploadDate, i.invoiceType " +
                 "FROM Attachments a " +
                 "LEFT JOIN Invoices i ON a.entityId = i.invoiceId " +
                 "LEFT JOIN Customers c ON i.customerId = c.id " +
@@ -835,7 +1280,7 @@ public List<Map<String, String>> getSupplierActivity(int supplierId) throws Data
         stmt.setString(2, entityId);
         ResultSet rs = stmt.executeQuery();
         while (rs.next()) {
-            attachments.add(new Attachment(
+            attachments.add(new AttachmentDescriptor(
                 rs.getInt("id"),
                 rs.getString("entityType"),
                 rs.getString("entityId"),
@@ -844,7 +1289,6 @@ public List<Map<String, String>> getSupplierActivity(int supplierId) throws Data
                 rs.getString("fileName"),
                 rs.getLong("fileSize"),
                 rs.getString("uploadDate"),
-                rs.getBytes("content"),
                 rs.getString("invoiceType")
             ));
         }
@@ -855,20 +1299,42 @@ public List<Map<String, String>> getSupplierActivity(int supplierId) throws Data
 }
     //=======================
 
-     public void addAttachment(String entityId, String fileName, byte[] fileData) throws DatabaseException {
-        String sql = "INSERT INTO Attachments (entityType, entityId, fileName, fileSize, uploadDate, content) " +
-                     "VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, "invoices"); // Default to "invoices"; adjust based on context if needed
-            stmt.setString(2, entityId);
-            stmt.setString(3, fileName);
-            stmt.setLong(4, fileData.length);
-            stmt.setString(5, LocalDate.now().toString());
-            stmt.setBytes(6, fileData);
-            int rows = stmt.executeUpdate();
-            LOGGER.info("Added attachment for entity {}: {} ({} rows affected)", entityId, fileName, rows);
-        } catch (SQLException e) {
+     public void addAttachment(String entityId, String fileName, Path file) throws DatabaseException {
+        addAttachment("invoices", entityId, fileName, file); // Default to "invoices"; adjust based on context if needed
+    }
+
+    // Content goes to the shared blob store; identical files are stored once and only referenced again
+    public void addAttachment(String entityType, String entityId, String fileName, Path file) throws DatabaseException {
+        String sql = "INSERT INTO Attachments (entityType, entityId, fileName, fileSize, uploadDate, contentHash, extractedText) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try {
+            String text = AttachmentTextExtractor.extract(file, fileName);
+            int attachmentId;
+            try (Connection conn = dataSource.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    long size = Files.size(file);
+                    String hash = ATTACHMENTS.store(conn, file, fileName);
+                    stmt.setString(1, entityType);
+                    stmt.setString(2, entityId);
+                    stmt.setString(3, fileName);
+                    stmt.setLong(4, size);
+                    stmt.setString(5, LocalDate.now().toString());
+                    stmt.setString(6, hash);
+                    stmt.setString(7, text);
+                    int rows = stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        attachmentId = keys.next() ? keys.getInt(1) : -1;
+                    }
+                    conn.commit();
+                    LOGGER.info("Added attachment for entity {}: {} ({} bytes, {} rows affected)", entityId, fileName, size, rows);
+                } catch (SQLException | IOException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            reindexAttachment(attachmentId);
+        } catch (SQLException | IOException e) {
             LOGGER.error("Failed to add attachment for entity {}: {}", entityId, e.getMessage());
             throw new DatabaseException("Failed to add attachment: " + e.getMessage(), e);
         }
@@ -955,31 +1421,186 @@ public byte[] getAttachmentData(long attachmentId) throws DatabaseException {
   //====================  
 
     public byte[] getAttachmentContent(int attachmentId) throws DatabaseException {
+        try (Connection conn = dataSource.getConnection()) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            writeAttachmentContent(conn, attachmentId, content);
+            return content.toByteArray();
+        } catch (SQLException | IOException e) {
+            throw new DatabaseException("Failed to get attachment content", e);
+        }
+    }
+
+    // Full attachment including content, for previews; listings should use the descriptor queries
+    public Attachment getAttachment(int attachmentId) throws DatabaseException {
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT content FROM Attachments WHERE id = ?")) {
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id, entityType, entityId, contactId, contactName, fileName, fileSize, uploadDate " +
+                 "FROM Attachments WHERE id = ?")) {
             stmt.setInt(1, attachmentId);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getBytes("content");
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                writeAttachmentContent(conn, attachmentId, content);
+                return new Attachment(rs.getInt("id"), rs.getString("entityType"), rs.getString("entityId"),
+                    rs.getInt("contactId"), rs.getString("contactName"), rs.getString("fileName"),
+                    rs.getLong("fileSize"), rs.getString("uploadDate"), content.toByteArray());
             }
-            return new byte[0];
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
+            throw new DatabaseException("Failed to get attachment " + attachmentId, e);
+        }
+    }
+
+    // Streams the BLOB into a temporary file beside the target and moves it over the target only once the
+    // content was found, so a missing attachment or a failed read leaves the user's file as it was
+    public boolean copyAttachmentContent(int attachmentId, Path target) throws DatabaseException {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(target.toAbsolutePath().getParent(), ".attachment-" + attachmentId, ".tmp");
+            boolean found;
+            try (Connection conn = dataSource.getConnection();
+                 OutputStream out = Files.newOutputStream(temp)) {
+                found = writeAttachmentContent(conn, attachmentId, out);
+            }
+            if (found) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return found;
+        } catch (SQLException | IOException e) {
             throw new DatabaseException("Failed to get attachment content", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not delete temporary file {}", temp, e);
+                }
+            }
         }
     }
 
+    // Writes an attachment's bytes from the blob store, or from the legacy content column if not migrated yet;
+    // returns false when neither holds content for the attachment
+    private boolean writeAttachmentContent(Connection conn, int attachmentId, OutputStream out) throws SQLException, IOException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT contentHash FROM Attachments WHERE id = ?")) {
+            stmt.setInt(1, attachmentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                String hash = rs.getString("contentHash");
+                if (hash != null && ATTACHMENTS.copyTo(conn, hash, out)) {
+                    return true;
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT content FROM Attachments WHERE id = ?")) {
+            stmt.setInt(1, attachmentId);
+            try (ResultSet rs = stmt.executeQuery();
+                 InputStream content = rs.next() ? rs.getBinaryStream("content") : null) {
+                if (content == null) {
+                    LOGGER.warn("Attachment {} has no content in the blob store or the content column", attachmentId);
+                    return false;
+                }
+                content.transferTo(out);
+            }
+        }
+        return true;
+    }
+
 //==========================
     public void updateAttachment(int attachmentId, File file) throws DatabaseException {
+        try {
+            String text = AttachmentTextExtractor.extract(file.toPath(), file.getName());
+            try (Connection conn = dataSource.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    String oldHash = null;
+                    try (PreparedStatement stmt = conn.prepareStatement("SELECT contentHash FROM Attachments WHERE id = ? FOR UPDATE")) {
+                        stmt.setInt(1, attachmentId);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            if (rs.next()) {
+                                oldHash = rs.getString("contentHash");
+                            }
+                        }
+                    }
+                    String hash = ATTACHMENTS.store(conn, file.toPath(), file.getName());
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                             "UPDATE Attachments SET fileName = ?, fileSize = ?, uploadDate = ?, contentHash = ?, content = NULL, " +
+                             "extractedText = ? WHERE id = ?")) {
+                        stmt.setString(1, file.getName());
+                        stmt.setLong(2, file.length());
+                        stmt.setString(3, LocalDate.now().toString());
+                        stmt.setString(4, hash);
+                        stmt.setString(5, text);
+                        stmt.setInt(6, attachmentId);
+                        stmt.executeUpdate();
+                    }
+                    ATTACHMENTS.release(conn, oldHash);
+                    conn.commit();
+                } catch (SQLException | IOException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            reindexAttachment(attachmentId);
+        } catch (SQLException | IOException e) {
+            throw new DatabaseException("Failed to update attachment", e);
+        }
+    }
+
+    // Moves attachments stored before the blob store existed and extracts search text from older PDFs;
+    // meant to run once in the background at startup
+    public int migrateAttachmentContent() throws DatabaseException {
+        try {
+            int migrated = ATTACHMENTS.migrateLegacyContent(dataSource);
+            backfillAttachmentText();
+            return migrated;
+        } catch (SQLException | IOException e) {
+            throw new DatabaseException("Failed to migrate attachment content", e);
+        }
+    }
+
+    private void backfillAttachmentText() throws SQLException, IOException {
+        Map<Integer, String> pending = new LinkedHashMap<>();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "UPDATE Attachments SET fileName = ?, fileSize = ?, uploadDate = ? WHERE id = ?")) {
-            stmt.setString(1, file.getName());
-            stmt.setLong(2, file.length());
-            stmt.setString(3, LocalDate.now().toString());
-            stmt.setInt(4, attachmentId);
-            stmt.executeUpdate();
+                 "SELECT id, fileName FROM Attachments WHERE extractedText IS NULL AND LOWER(fileName) LIKE '%.pdf'");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                pending.put(rs.getInt("id"), rs.getString("fileName"));
+            }
+        }
+        for (Map.Entry<Integer, String> entry : pending.entrySet()) {
+            Path temp = Files.createTempFile("attachment-" + entry.getKey(), ".pdf");
+            try (Connection conn = dataSource.getConnection()) {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    writeAttachmentContent(conn, entry.getKey(), out);
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "UPDATE Attachments SET extractedText = ? WHERE id = ? AND extractedText IS NULL")) {
+                    stmt.setString(1, AttachmentTextExtractor.extract(temp, entry.getValue()));
+                    stmt.setInt(2, entry.getKey());
+                    stmt.executeUpdate();
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            reindexAttachment(entry.getKey());
+        }
+        if (!pending.isEmpty()) {
+            LOGGER.info("Extracted search text from {} existing PDF attachments", pending.size());
+        }
+    }
+
+    // The row is committed by now, so an index failure must not fail the caller; the next search reloads instead
+    private void reindexAttachment(int attachmentId) {
+        try {
+            ATTACHMENT_INDEX.reindex(dataSource, attachmentId);
         } catch (SQLException e) {
-            throw new DatabaseException("Failed to update attachment", e);
+            LOGGER.warn("Failed to reindex attachment {}: {}", attachmentId, e.getMessage());
+            ATTACHMENT_INDEX.invalidate();
         }
     }
 
@@ -1010,8 +1631,8 @@ public byte[] getAttachmentData(long attachmentId) throws DatabaseException {
              PreparedStatement stmt = conn.prepareStatement(
                  "INSERT INTO Expenses (category, amount, date, description, currency) VALUES (?, ?, ?, ?, ?)")) {
             stmt.setString(1, category);
-            stmt.setDouble(2, amount);
-            stmt.setString(3, date);
+            SqlValues.setAmount(stmt, 2, amount);
+            SqlValues.setDate(stmt, 3, date);
             stmt.setString(4, description);
             stmt.setString(5, currency);
             stmt.executeUpdate();
@@ -1077,6 +1698,39 @@ public byte[] getAttachmentData(long attachmentId) throws DatabaseException {
         }
     }
 
+    // All dashboard KPIs in one round trip, served from cache for dashboard.cacheTtlSeconds (default 30)
+    public DashboardSnapshot getDashboardSnapshot(String startDate, String endDate) throws DatabaseException {
+        String key = startDate + ".." + endDate;
+        DashboardSnapshot cached = DASHBOARD_CACHE.get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.getComputedAtMillis() < DASHBOARD_TTL_MILLIS) {
+            return cached;
+        }
+        long writesBefore = FINANCIAL_WRITES.get();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(DASHBOARD_SQL)) {
+            SqlValues.setDate(stmt, 1, LocalDate.now());
+            SqlValues.setDate(stmt, 2, startDate);
+            SqlValues.setDate(stmt, 3, endDate);
+            SqlValues.setDate(stmt, 4, startDate);
+            SqlValues.setDate(stmt, 5, endDate);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                String topCustomer = rs.getString("topCustomer");
+                DashboardSnapshot snapshot = new DashboardSnapshot(startDate, endDate, rs.getDouble("totalSales"),
+                    rs.getDouble("overdue"), rs.getDouble("cash"), topCustomer != null ? topCustomer : "N/A",
+                    rs.getDouble("topCustomerSales"), rs.getDouble("totalTax"), now);
+                // A write that finished meanwhile may not be reflected; serve it once but do not cache it
+                if (FINANCIAL_WRITES.get() == writesBefore) {
+                    DASHBOARD_CACHE.put(key, snapshot);
+                }
+                return snapshot;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to load dashboard figures", e);
+        }
+    }
+
     public double getTotalSales() throws DatabaseException {
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
@@ -1095,7 +1749,7 @@ public byte[] getAttachmentData(long attachmentId) throws DatabaseException {
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                  "SELECT SUM(totalAmount) AS overdue FROM Invoices WHERE status = 'OPEN' AND date < ?")) {
-            stmt.setString(1, LocalDate.now().toString());
+            SqlValues.setDate(stmt, 1, LocalDate.now());
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return rs.getDouble("overdue");
@@ -1133,12 +1787,12 @@ public double getCashBalance() throws DatabaseException {
         Map<String, Double> sales = new HashMap<>();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT c.name, SUM(i.totalAmount) AS total " +
-                 "FROM Invoices i JOIN Customers c ON i.customerId = c.id " +
-                 "WHERE i.invoiceType = 'Sale' AND i.date BETWEEN ? AND ? " +
+                 "SELECT c.name, SUM(r.totalAmount) AS total " +
+                 "FROM DailyInvoiceRollup r JOIN Customers c ON r.customerId = c.id " +
+                 "WHERE r.invoiceType = 'Sale' AND r.day BETWEEN ? AND ? " +
                  "GROUP BY c.name")) {
-            stmt.setString(1, startDate);
-            stmt.setString(2, endDate);
+            SqlValues.setDate(stmt, 1, startDate);
+            SqlValues.setDate(stmt, 2, endDate);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 sales.put(rs.getString("name"), rs.getDouble("total"));
@@ -1153,10 +1807,10 @@ public double getCashBalance() throws DatabaseException {
         Map<String, Double> taxes = new HashMap<>();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT currency, SUM(taxAmount) AS totalTax FROM Invoices " +
-                 "WHERE date BETWEEN ? AND ? GROUP BY currency")) {
-            stmt.setString(1, startDate);
-            stmt.setString(2, endDate);
+                 "SELECT currency, SUM(taxAmount) AS totalTax FROM DailyInvoiceRollup " +
+                 "WHERE day BETWEEN ? AND ? GROUP BY currency")) {
+            SqlValues.setDate(stmt, 1, startDate);
+            SqlValues.setDate(stmt, 2, endDate);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 taxes.put(rs.getString("currency"), rs.getDouble("totalTax"));
@@ -1213,10 +1867,10 @@ public double getCashBalance() throws DatabaseException {
         Map<String, Double> summary = new HashMap<>();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT SUM(totalAmount) AS sales, SUM(taxAmount) AS taxes FROM Invoices " +
-                 "WHERE date BETWEEN ? AND ? AND invoiceType = 'Sale'")) {
-            stmt.setString(1, startDate);
-            stmt.setString(2, endDate);
+                 "SELECT SUM(totalAmount) AS sales, SUM(taxAmount) AS taxes FROM DailyInvoiceRollup " +
+                 "WHERE day BETWEEN ? AND ? AND invoiceType = 'Sale'")) {
+            SqlValues.setDate(stmt, 1, startDate);
+            SqlValues.setDate(stmt, 2, endDate);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 summary.put("Sales", rs.getDouble("sales"));
@@ -1235,10 +1889,10 @@ public double getCashBalance() throws DatabaseException {
                  "SELECT " +
                  "(SELECT COALESCE(SUM(amount), 0) FROM Payments WHERE contactType = 'Customer' AND date BETWEEN ? AND ?) AS inflow, " +
                  "(SELECT COALESCE(SUM(amount), 0) FROM Payments WHERE contactType = 'Supplier' AND date BETWEEN ? AND ?) AS outflow")) {
-            stmt.setString(1, startDate);
-            stmt.setString(2, endDate);
-            stmt.setString(3, startDate);
-            stmt.setString(4, endDate);
+            SqlValues.setDate(stmt, 1, startDate);
+            SqlValues.setDate(stmt, 2, endDate);
+            SqlValues.setDate(stmt, 3, startDate);
+            SqlValues.setDate(stmt, 4, endDate);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 cashFlow.put("Inflow", rs.getDouble("inflow"));
@@ -1255,7 +1909,7 @@ public double getCashBalance() throws DatabaseException {
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                  "SELECT SUM(totalAmount) AS receivables FROM Invoices WHERE status = 'OPEN' AND date <= ? AND customerId IS NOT NULL")) {
-            stmt.setString(1, endDate);
+            SqlValues.setDate(stmt, 1, endDate);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 balanceSheet.put("Receivables", rs.getDouble("receivables"));
@@ -1270,9 +1924,9 @@ public double getCashBalance() throws DatabaseException {
         Map<String, Double> profitLoss = new HashMap<>();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT SUM(totalAmount) AS revenue FROM Invoices WHERE invoiceType = 'Sale' AND date BETWEEN ? AND ?")) {
-            stmt.setString(1, startDate);
-            stmt.setString(2, endDate);
+                 "SELECT SUM(totalAmount) AS revenue FROM DailyInvoiceRollup WHERE invoiceType = 'Sale' AND day BETWEEN ? AND ?")) {
+            SqlValues.setDate(stmt, 1, startDate);
+            SqlValues.setDate(stmt, 2, endDate);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 profitLoss.put("Revenue", rs.getDouble("revenue"));
@@ -1289,7 +1943,7 @@ public double getCashBalance() throws DatabaseException {
              PreparedStatement stmt = conn.prepareStatement(
                  "SELECT invoiceId, totalAmount, DATEDIFF(CURRENT_DATE, date) AS daysOverdue " +
                  "FROM Invoices WHERE status = 'OPEN' AND date < ?")) {
-            stmt.setString(1, LocalDate.now().toString());
+            SqlValues.setDate(stmt, 1, LocalDate.now());
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 aging.add(new Object[]{rs.getString("invoiceId"), rs.getDouble("totalAmount"), rs.getInt("daysOverdue")});
@@ -1304,13 +1958,12 @@ public double getCashBalance() throws DatabaseException {
         Map<String, Double> sales = new HashMap<>();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT p.name, SUM(li.totalPrice) AS total " +
-                 "FROM InvoiceLineItems li JOIN Products p ON li.productId = p.id " +
-                 "JOIN Invoices i ON li.invoiceId = i.invoiceId " +
-                 "WHERE i.date BETWEEN ? AND ? AND i.invoiceType = 'Sale' " +
+                 "SELECT p.name, SUM(r.totalPrice) AS total " +
+                 "FROM DailyProductRollup r JOIN Products p ON r.productId = p.id " +
+                 "WHERE r.day BETWEEN ? AND ? AND r.invoiceType = 'Sale' " +
                  "GROUP BY p.name")) {
-            stmt.setString(1, startDate);
-            stmt.setString(2, endDate);
+            SqlValues.setDate(stmt, 1, startDate);
+            SqlValues.setDate(stmt, 2, endDate);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 sales.put(rs.getString("name"), rs.getDouble("total"));
@@ -1339,8 +1992,8 @@ public double getCashBalance() throws DatabaseException {
                  "AND e.date BETWEEN ? AND ? " +
                  "WHERE b.startDate <= ? AND b.endDate >= ? " +
                  "GROUP BY b.category, b.amount")) {
-            stmt.setString(1, startDate);
-            stmt.setString(2, endDate);
+            SqlValues.setDate(stmt, 1, startDate);
+            SqlValues.setDate(stmt, 2, endDate);
             stmt.setString(3, startDate);
             stmt.setString(4, endDate);
             ResultSet rs = stmt.executeQuery();
@@ -1387,7 +2040,7 @@ public double getCashBalance() throws DatabaseException {
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                  "SELECT invoiceId, totalAmount FROM Invoices WHERE status = 'OPEN' AND date < ? LIMIT ? OFFSET ?")) {
-            stmt.setString(1, LocalDate.now().toString());
+            SqlValues.setDate(stmt, 1, LocalDate.now());
             stmt.setInt(2, pageSize);
             stmt.setInt(3, (page - 1) * pageSize);
             ResultSet rs = stmt.executeQuery();
@@ -1439,17 +2092,19 @@ public int markPaymentReceived(String customerName, double amount, String curren
                                Integer customerId, Integer supplierId, String date, String status) throws DatabaseException {
     String sql = "INSERT INTO Payments (customerId, supplierId, amount, currency, exchangeRate, date, status) " +
                  "VALUES (?, ?, ?, ?, ?, ?, ?)"; // Adjusted to 7 placeholders
+    BALANCES.beginChange();
     try (Connection conn = dataSource.getConnection();
          PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
         pstmt.setObject(1, customerId, Types.INTEGER);
         pstmt.setObject(2, supplierId, Types.INTEGER);
-        pstmt.setDouble(3, amount);
+        SqlValues.setAmount(pstmt, 3, amount);
         pstmt.setString(4, currency);
         pstmt.setDouble(5, exchangeRate);
-        pstmt.setString(6, date);
+        SqlValues.setDate(pstmt, 6, date);
         pstmt.setString(7, status);
         int rows = pstmt.executeUpdate();
         if (rows > 0) {
+            BALANCES.adjustForPayment(customerId, supplierId, amount);
             ResultSet rs = pstmt.getGeneratedKeys();
             if (rs.next()) {
                 int paymentId = rs.getInt(1);
@@ -1460,6 +2115,8 @@ public int markPaymentReceived(String customerName, double amount, String curren
         throw new DatabaseException("Failed to retrieve generated payment ID", null);
     } catch (SQLException e) {
         throw new DatabaseException("Failed to mark payment", e);
+    } finally {
+        endInvoiceOrPaymentChange();
     }
 }
 
@@ -1492,21 +2149,26 @@ public Map<String, String> getPaymentDetails(int paymentId) throws DatabaseExcep
 
 public void updatePayment(int paymentId, double amount, String date, String currency, String status) throws DatabaseException {
     String sql = "UPDATE Payments SET amount = ?, date = ?, currency = ?, status = ? WHERE paymentId = ?";
+    BALANCES.beginChange();
     try (Connection conn = dataSource.getConnection();
          PreparedStatement pstmt = conn.prepareStatement(sql)) {
-        pstmt.setDouble(1, amount);
-        pstmt.setString(2, date);
+        DoubleConsumer balanceChange = paymentBalanceChange(conn, paymentId);
+        SqlValues.setAmount(pstmt, 1, amount);
+        SqlValues.setDate(pstmt, 2, date);
         pstmt.setString(3, currency);
         pstmt.setString(4, status);
         pstmt.setInt(5, paymentId);
         int rows = pstmt.executeUpdate();
         if (rows > 0) {
+            balanceChange.accept(amount);
             LOGGER.info("Updated payment #{}", paymentId);
         } else {
             throw new DatabaseException("Payment #" + paymentId + " not found", null);
         }
     } catch (SQLException e) {
         throw new DatabaseException("Failed to update payment", e);
+    } finally {
+        endInvoiceOrPaymentChange();
     }
 }
 
@@ -1528,17 +2190,38 @@ public boolean paymentExists(int paymentId) throws DatabaseException {
 
 public void deletePayment(int paymentId) throws DatabaseException {
     String sql = "DELETE FROM Payments WHERE paymentId = ?";
+    BALANCES.beginChange();
     try (Connection conn = dataSource.getConnection();
          PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        DoubleConsumer balanceChange = paymentBalanceChange(conn, paymentId);
         pstmt.setInt(1, paymentId);
         int rows = pstmt.executeUpdate();
         if (rows > 0) {
+            balanceChange.accept(0);
             LOGGER.info("Deleted payment #{}", paymentId);
         } else {
             throw new DatabaseException("Payment #" + paymentId + " not found", null);
         }
     } catch (SQLException e) {
         throw new DatabaseException("Failed to delete payment", e);
+    } finally {
+        endInvoiceOrPaymentChange();
+    }
+}
+
+// Reads a payment before it changes; the returned callback applies the balance effect of its new amount (0 = deleted)
+private DoubleConsumer paymentBalanceChange(Connection conn, int paymentId) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement("SELECT customerId, supplierId, amount FROM Payments WHERE paymentId = ?")) {
+        stmt.setInt(1, paymentId);
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) {
+                return newAmount -> { };
+            }
+            Integer customerId = nullableInt(rs, "customerId");
+            Integer supplierId = nullableInt(rs, "supplierId");
+            double oldAmount = rs.getDouble("amount");
+            return newAmount -> BALANCES.adjustForPayment(customerId, supplierId, newAmount - oldAmount);
+        }
     }
 }
 
@@ -1579,16 +2262,16 @@ private List<Map<String, String>> getPayments(String sql, int contactId) throws
 
 //================
 
-public List<Attachment> getAttachmentsForInvoice(String invoiceId) throws DatabaseException {
-    String sql = "SELECT id, entityType, entityId, contactId, contactName, fileName, fileSize, uploadDate, content " +
+public List<AttachmentDescriptor> getAttachmentsForInvoice(String invoiceId) throws DatabaseException {
+    String sql = "SELECT id, entityType, entityId, contactId, contactName, fileName, fileSize, uploadDate " +
                  "FROM Attachments WHERE entityType = 'INVOICE' AND entityId = ?";
-    List<Attachment> attachments = new ArrayList<>();
+    List<AttachmentDescriptor> attachments = new ArrayList<>();
     try (Connection conn = dataSource.getConnection();
          PreparedStatement pstmt = conn.prepareStatement(sql)) {
         pstmt.setString(1, invoiceId);
         ResultSet rs = pstmt.executeQuery();
         while (rs.next()) {
-            Attachment attachment = new Attachment(
+            AttachmentDescriptor attachment = new AttachmentDescriptor(
                 rs.getInt("id"),
                 rs.getString("entityType"),
                 rs.getString("entityId"),
@@ -1597,7 +2280,7 @@ public List<Attachment> getAttachmentsForInvoice(String invoiceId) throws Databa
                 rs.getString("fileName"),
                 rs.getLong("fileSize"),
                 rs.getString("uploadDate"),
-                rs.getBytes("content")
+                null // invoiceType is not part of this listing
             );
             attachments.add(attachment);
         }
@@ -1608,31 +2291,13 @@ public List<Attachment> getAttachmentsForInvoice(String invoiceId) throws Databa
     }
 }
 
-public List<Attachment> searchAttachments(String query) throws DatabaseException {
-    String sql = "SELECT id, entityType, entityId, contactId, contactName, fileName, fileSize, uploadDate, content " +
-                 "FROM Attachments WHERE fileName LIKE ? OR entityId LIKE ?";
-    List<Attachment> attachments = new ArrayList<>();
-    try (Connection conn = dataSource.getConnection();
-         PreparedStatement pstmt = conn.prepareStatement(sql)) {
-        String likeQuery = "%" + query + "%";
-        pstmt.setString(1, likeQuery);
-        pstmt.setString(2, likeQuery);
-        ResultSet rs = pstmt.executeQuery();
-        while (rs.next()) {
-            Attachment attachment = new Attachment(
-                rs.getInt("id"),
-                rs.getString("entityType"),
-                rs.getString("entityId"),
-                rs.getInt("contactId"),
-                rs.getString("contactName"),
-                rs.getString("fileName"),
-                rs.getLong("fileSize"),
-                rs.getString("uploadDate"),
-                rs.getBytes("content")
-            );
-            attachments.add(attachment);
-        }
-        LOGGER.info("Found {} attachments matching query '{}'", attachments.size(), query);
+// Ranked lookup in the in-memory attachment index; no table scan and no BLOB reads
+public List<AttachmentDescriptor> searchAttachments(String query) throws DatabaseException {
+    try {
+        long start = System.nanoTime();
+        List<AttachmentDescriptor> attachments = ATTACHMENT_INDEX.search(dataSource, query, ATTACHMENT_SEARCH_LIMIT);
+        LOGGER.debug("Found {} attachments matching query '{}' in {} us", attachments.size(), query,
+            (System.nanoTime() - start) / 1_000);
         return attachments;
     } catch (SQLException e) {
         throw new DatabaseException("Failed to search attachments with query " + query, e);
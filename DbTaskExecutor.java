@@ -0,0 +1,205 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking database work for the UI. At most one task per pooled connection runs at a time (a semaphore
+ * sized to the Hikari pool), so tasks wait in a queue here rather than inside HikariCP's getConnection().
+ *
+ * Tasks come in two classes with a queue each. INTERACTIVE is what a user is waiting on (table loads, lookups,
+ * saves); BACKGROUND is reports, imports and scheduled jobs. Interactive tasks go first, but after
+ * INTERACTIVE_BURST of them in a row a waiting background task is admitted, and background tasks never take
+ * the last permit, so a slow report cannot starve the other panes and reports still make progress.
+ *
+ * Admitted tasks run on virtual threads when the JVM has them (Java 21+) and on a cached pool of daemon
+ * platform threads otherwise; either way the semaphore, not the thread count, bounds concurrency.
+ */
+public final class DbTaskExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DbTaskExecutor.class);
+    private static final int INTERACTIVE_BURST = 4;
+
+    public enum TaskClass { INTERACTIVE, BACKGROUND }
+
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final ExecutorService threads = newThreadExecutor();
+    private final Deque<Runnable> interactiveQueue = new ArrayDeque<>();
+    private final Deque<Runnable> backgroundQueue = new ArrayDeque<>();
+    private final ExecutorService interactive = new ClassView(TaskClass.INTERACTIVE);
+    private final ExecutorService background = new ClassView(TaskClass.BACKGROUND);
+    private int runningBackground;
+    private int interactiveStreak;
+    private volatile boolean shutdown;
+
+    public DbTaskExecutor(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    public ExecutorService interactive() {
+        return interactive;
+    }
+
+    public ExecutorService background() {
+        return background;
+    }
+
+    // Queue depths and admitted tasks, read by the Metrics gauges
+    public synchronized int interactiveQueued() {
+        return interactiveQueue.size();
+    }
+
+    public synchronized int backgroundQueued() {
+        return backgroundQueue.size();
+    }
+
+    public int running() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    private void enqueue(TaskClass taskClass, Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        synchronized (this) {
+            (taskClass == TaskClass.INTERACTIVE ? interactiveQueue : backgroundQueue).addLast(task);
+        }
+        admit();
+    }
+
+    // Starts queued tasks while permits are free; called on submit and whenever a task finishes
+    private void admit() {
+        while (true) {
+            Runnable task;
+            TaskClass taskClass;
+            synchronized (this) {
+                if (shutdown || !permits.tryAcquire()) {
+                    return;
+                }
+                boolean backgroundAllowed = !backgroundQueue.isEmpty() && runningBackground < maxConcurrent - 1;
+                if (!interactiveQueue.isEmpty() && (interactiveStreak < INTERACTIVE_BURST || !backgroundAllowed)) {
+                    task = interactiveQueue.pollFirst();
+                    taskClass = TaskClass.INTERACTIVE;
+                    interactiveStreak++;
+                } else if (backgroundAllowed || (maxConcurrent == 1 && !backgroundQueue.isEmpty())) {
+                    task = backgroundQueue.pollFirst();
+                    taskClass = TaskClass.BACKGROUND;
+                    interactiveStreak = 0;
+                    runningBackground++;
+                } else {
+                    permits.release();
+                    return;
+                }
+            }
+            try {
+                threads.execute(() -> run(taskClass, task));
+            } catch (RejectedExecutionException e) {
+                finished(taskClass);
+                return;
+            }
+        }
+    }
+
+    private void run(TaskClass taskClass, Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            LOGGER.error("Unhandled error in {} database task", taskClass, t);
+        } finally {
+            finished(taskClass);
+            admit();
+        }
+    }
+
+    private void finished(TaskClass taskClass) {
+        synchronized (this) {
+            if (taskClass == TaskClass.BACKGROUND) {
+                runningBackground--;
+            }
+        }
+        permits.release();
+    }
+
+    public void shutdownNow() {
+        shutdown = true;
+        synchronized (this) {
+            interactiveQueue.clear();
+            backgroundQueue.clear();
+        }
+        threads.shutdownNow();
+    }
+
+    private static ExecutorService newThreadExecutor() {
+        try {
+            ExecutorService virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LOGGER.info("Database tasks run on virtual threads");
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            // Java 17: no virtual threads; idle platform threads are reclaimed after a minute
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = runnable -> {
+                Thread thread = new Thread(runnable, "db-task-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+
+    // ExecutorService face of one task class; lifecycle calls act on the whole executor
+    private final class ClassView extends AbstractExecutorService {
+        private final TaskClass taskClass;
+
+        ClassView(TaskClass taskClass) {
+            this.taskClass = taskClass;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            enqueue(taskClass, command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+            threads.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            DbTaskExecutor.this.shutdownNow();
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return threads.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return threads.awaitTermination(timeout, unit);
+        }
+    }
+}
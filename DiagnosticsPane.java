@@ -0,0 +1,113 @@
+package com.example.financial;
+
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.*;
+
+import java.util.Map;
+
+/**
+ * Read-only view of Metrics and SlowQueryLog: pool, executor and FX-thread figures, per-method database timings,
+ * and the statements with the most total time; selecting a statement shows its last slow run with binds and plan.
+ * Reading these touches no database, so refreshing runs on the FX thread.
+ */
+public class DiagnosticsPane extends VBox {
+    private static final int TOP_STATEMENTS = Integer.getInteger("sql.log.topN", 50);
+    private final GridPane overviewGrid = new GridPane();
+    private TableView<Metrics.MethodStats> methodTable;
+    private TableView<SlowQueryLog.StatementSummary> statementTable;
+    private TextArea statementDetail;
+
+    public DiagnosticsPane() {
+        initializeUI();
+        refresh();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initializeUI() {
+        setSpacing(10);
+        setPadding(new javafx.geometry.Insets(10));
+
+        Button refreshButton = new Button("Refresh");
+        refreshButton.setOnAction(e -> refresh());
+        getChildren().add(refreshButton);
+
+        if (Metrics.enabled()) {
+            overviewGrid.setHgap(20);
+            overviewGrid.setVgap(5);
+
+            methodTable = new TableView<>();
+            TableColumn<Metrics.MethodStats, String> methodCol = new TableColumn<>("Method");
+            methodCol.setCellValueFactory(new PropertyValueFactory<>("method"));
+            methodCol.setPrefWidth(260);
+            TableColumn<Metrics.MethodStats, Long> callsCol = new TableColumn<>("Calls");
+            callsCol.setCellValueFactory(new PropertyValueFactory<>("calls"));
+            methodTable.getColumns().addAll((TableColumn<Metrics.MethodStats, ?>[]) new TableColumn[] {methodCol, callsCol,
+                numberColumn("Total ms", "totalMillis"), numberColumn("Mean ms", "meanMillis"),
+                numberColumn("p95 ms", "p95Millis"), numberColumn("Max ms", "maxMillis"),
+                numberColumn("Mean rows", "meanRows"), numberColumn("On FX thread ms", "fxMillis")});
+            methodTable.setPlaceholder(new Label("No database calls recorded yet"));
+            VBox.setVgrow(methodTable, Priority.ALWAYS);
+
+            getChildren().addAll(overviewGrid, methodTable);
+        } else {
+            getChildren().add(new Label("Metrics are off. Start the application with -Dmetrics.enabled=true to collect them."));
+        }
+
+        if (SlowQueryLog.enabled()) {
+            statementTable = new TableView<>();
+            TableColumn<SlowQueryLog.StatementSummary, String> sqlCol = new TableColumn<>("Statement");
+            sqlCol.setCellValueFactory(new PropertyValueFactory<>("sql"));
+            sqlCol.setPrefWidth(420);
+            TableColumn<SlowQueryLog.StatementSummary, Long> callsCol = new TableColumn<>("Calls");
+            callsCol.setCellValueFactory(new PropertyValueFactory<>("calls"));
+            TableColumn<SlowQueryLog.StatementSummary, Long> slowCol = new TableColumn<>("Slow");
+            slowCol.setCellValueFactory(new PropertyValueFactory<>("slowCalls"));
+            statementTable.getColumns().addAll((TableColumn<SlowQueryLog.StatementSummary, ?>[]) new TableColumn[] {sqlCol, callsCol,
+                numberColumn("Total ms", "totalMillis"), numberColumn("Mean ms", "meanMillis"),
+                numberColumn("Max ms", "maxMillis"), numberColumn("Mean rows", "meanRows"), slowCol});
+            statementTable.setPlaceholder(new Label("No statements recorded yet"));
+            VBox.setVgrow(statementTable, Priority.ALWAYS);
+
+            statementDetail = new TextArea();
+            statementDetail.setEditable(false);
+            statementDetail.setPrefRowCount(8);
+            statementTable.getSelectionModel().selectedItemProperty().addListener((obs, oldValue, selected) ->
+                statementDetail.setText(selected == null ? "" : selected.getSql() + "\n\n"
+                    + (selected.getLastSlow().isEmpty() ? "No slow runs" : selected.getLastSlow())));
+
+            getChildren().addAll(new Label("Statements by total time"), statementTable, statementDetail);
+        } else {
+            getChildren().add(new Label("Statement log is off. Start the application with -Dsql.log.enabled=true to collect it."));
+        }
+    }
+
+    private static <S> TableColumn<S, Double> numberColumn(String title, String property) {
+        TableColumn<S, Double> column = new TableColumn<>(title);
+        column.setCellValueFactory(new PropertyValueFactory<>(property));
+        column.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Double value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null || value.isNaN() ? null : String.format("%.2f", value));
+            }
+        });
+        return column;
+    }
+
+    public void refresh() {
+        if (methodTable != null) {
+            overviewGrid.getChildren().clear();
+            int row = 0;
+            for (Map.Entry<String, String> entry : Metrics.overview().entrySet()) {
+                overviewGrid.add(new Label(entry.getKey()), 0, row);
+                overviewGrid.add(new Label(entry.getValue()), 1, row);
+                row++;
+            }
+            methodTable.getItems().setAll(Metrics.methodStats());
+        }
+        if (statementTable != null) {
+            statementTable.getItems().setAll(SlowQueryLog.top(TOP_STATEMENTS));
+        }
+    }
+}
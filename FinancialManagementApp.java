@@ -36,7 +36,11 @@ public class FinancialManagementApp extends Application {
     private static HikariDataSource dataSource;
     private static final int SCHEDULER_POOL_SIZE = 1;
     private static final long SCHEDULER_INTERVAL_MINUTES = 1440; // 1 day
-    public static final ExecutorService executor = Executors.newFixedThreadPool(10);
+    // Hikari pool size; the task executor admits as many tasks as there are connections
+    static final int DB_POOL_SIZE = Integer.getInteger("db.poolSize", 10);
+    private static final DbTaskExecutor DB_TASKS = new DbTaskExecutor(DB_POOL_SIZE);
+    public static final ExecutorService executor = DB_TASKS.interactive(); // Work a user is waiting on
+    public static final ExecutorService backgroundExecutor = DB_TASKS.background(); // Reports, imports, scheduled jobs
     private ResourceBundle messages;
     private ScheduledExecutorService scheduler;
     private DatabaseService dbService;
@@ -56,6 +60,8 @@ public class FinancialManagementApp extends Application {
             config.setDriverClassName("org.h2.Driver");
             config.setUsername("sa");
             config.setPassword("");
+            config.setMaximumPoolSize(DB_POOL_SIZE);
+            Metrics.bindPool(config);
             dataSource = new HikariDataSource(config);
             LOGGER.info("Database configured with URL: {}", config.getJdbcUrl());
         }
@@ -67,6 +73,7 @@ public class FinancialManagementApp extends Application {
         auditService = new AuditService(dbService);
         exchangeRateService = new ExchangeRateService();
         currentUser = "user";
+        Metrics.start(DB_TASKS);
 
         setLanguage("en");
 
@@ -88,6 +95,13 @@ public class FinancialManagementApp extends Application {
             return;
         }
 
+        try {
+            dbService.migrateSchema();
+        } catch (DatabaseException e) {
+            // Typed binds still work against the old column types, only without the range indexes
+            LOGGER.error("Schema migration failed; continuing with the schema as it is", e);
+        }
+
         TabPane tabPane = createTabPane();
         root.setCenter(tabPane);
 
@@ -103,6 +117,30 @@ public class FinancialManagementApp extends Application {
         primaryStage.setUserData(this); // NEW: Set app instance as UserData for access from panes
         primaryStage.show();
         startScheduledTasks();
+        migrateSchemaInBackground();
+        migrateAttachmentsInBackground();
+    }
+
+    // Index builds from SchemaMigrations; queries work without them meanwhile, just slower
+    private void migrateSchemaInBackground() {
+        CompletableFuture.runAsync(() -> {
+            try {
+                dbService.migrateSchemaInBackground();
+            } catch (DatabaseException e) {
+                LOGGER.error("Background schema migration failed; it will be retried on next start", e);
+            }
+        }, backgroundExecutor);
+    }
+
+    // Moves attachment content saved before the deduplicating blob store; rows migrate one at a time
+    private void migrateAttachmentsInBackground() {
+        CompletableFuture.runAsync(() -> {
+            try {
+                dbService.migrateAttachmentContent();
+            } catch (DatabaseException e) {
+                LOGGER.error("Attachment content migration failed; it will resume on next start", e);
+            }
+        }, backgroundExecutor);
     }
 
     private void setLanguage(String language) {
@@ -134,6 +172,7 @@ public class FinancialManagementApp extends Application {
                 tabPane.getTabs().get(7).setText(messages.getString("reports"));
                 tabPane.getTabs().get(8).setText(messages.getString("adjustments"));
                 tabPane.getTabs().get(9).setText(messages.getString("auditTrail"));
+                tabPane.getTabs().get(10).setText("Diagnostics");
             }
         }
     }
@@ -205,7 +244,8 @@ private HBox createTopBar() {
             new Tab(messages.getString("expenses"), new ExpensesPane(messages, dbService, auditService)),
             new Tab(messages.getString("reports"), new ReportPane(messages, dbService, auditService)),
             new Tab(messages.getString("adjustments"), new AdjustmentsPane(messages, dbService, auditService)),
-            new Tab(messages.getString("auditTrail"), new AuditTrailPane(messages, dbService, auditService))
+            new Tab(messages.getString("auditTrail"), new AuditTrailPane(messages, dbService, auditService)),
+            new Tab("Diagnostics", new DiagnosticsPane())
         );
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
         restrictAccessBasedOnRole(tabPane, currentUser);
@@ -348,15 +388,7 @@ private HBox createTopBar() {
     VBox dialogContent = new VBox(10);
     TextField customerField = new TextField();
     customerField.setPromptText("Type to search (e.g., Cust or Supp)");
-    customerField.textProperty().addListener((obs, oldVal, newVal) -> {
-        try {
-            suggestContacts(customerField, newVal);
-        } catch (DatabaseException e) {
-            LOGGER.error("Failed to suggest contacts", e);
-            javafx.application.Platform.runLater(() -> 
-                new Alert(Alert.AlertType.ERROR, "Error suggesting contacts: " + e.getMessage()).showAndWait());
-        }
-    });
+    SearchFieldController.withSuggestions(customerField, this::suggestContacts, contact -> customerField.requestFocus());
     dialogContent.getChildren().add(customerField);
 
     customerDialog.getDialogPane().setContent(dialogContent);
@@ -666,47 +698,11 @@ private void searchPayments(int contactId, boolean isCustomer, String contactNam
 
 //========================
 
-    private void suggestContacts(TextField field, String input) throws DatabaseException {
-        ContextMenu suggestions = new ContextMenu();
-        if (input == null || input.trim().isEmpty()) {
-            suggestions.hide();
-            return;
-        }
-        try {
-            String lowerInput = input.toLowerCase();
-            List<String> customers = dbService.getCustomersWithNames();
-            List<String> suppliers = dbService.getSuppliersWithNames();
-            suggestions.getItems().clear();
-            for (String customer : customers) {
-                if (customer.toLowerCase().contains(lowerInput)) {
-                    MenuItem item = new MenuItem(customer);
-                    item.setOnAction(e -> {
-                        field.setText(customer);
-                        suggestions.hide();
-                        field.requestFocus();
-                    });
-                    suggestions.getItems().add(item);
-                }
-            }
-            for (String supplier : suppliers) {
-                if (supplier.toLowerCase().contains(lowerInput)) {
-                    MenuItem item = new MenuItem(supplier);
-                    item.setOnAction(e -> {
-                        field.setText(supplier);
-                        suggestions.hide();
-                        field.requestFocus();
-                    });
-                    suggestions.getItems().add(item);
-                }
-            }
-            if (!suggestions.getItems().isEmpty()) {
-                suggestions.show(field, javafx.geometry.Side.BOTTOM, 0, 0);
-            } else {
-                suggestions.hide();
-            }
-        } catch (DatabaseException e) {
-            throw e;
-        }
+    // Customers first, then suppliers, for the payment dialog's contact field
+    private List<String> suggestContacts(String input) throws DatabaseException {
+        List<String> contacts = new ArrayList<>(dbService.suggestCustomers(input));
+        contacts.addAll(dbService.suggestSuppliers(input));
+        return contacts;
     }
 
     private void changeDatabase() {
@@ -785,7 +781,7 @@ private void searchPayments(int contactId, boolean isCustomer, String contactNam
                     } catch (DatabaseException e) {
                         LOGGER.error("Error in scheduled task", e);
                     }
-                }, executor).exceptionally(throwable -> {
+                }, backgroundExecutor).exceptionally(throwable -> {
                     LOGGER.error("Error in scheduled task", throwable);
                     return null;
                 });
@@ -825,7 +821,11 @@ private void searchPayments(int contactId, boolean isCustomer, String contactNam
                 if (scheduler != null && !scheduler.isShutdown()) scheduler.shutdownNow();
                 if (executor != null && !executor.isShutdown()) executor.shutdownNow();
             } finally {
+                if (auditService != null) {
+                    auditService.close(); // flushes queued audit entries while the pool is still open
+                }
                 dbService.close();
+                Metrics.stop();
             }
         }
     }
@@ -894,8 +894,9 @@ private void searchPayments(int contactId, boolean isCustomer, String contactNam
                 config.setUsername(username);
                 config.setPassword(password);
                 config.setDriverClassName("org.h2.Driver");
-                config.setMaximumPoolSize(10);
-                DatabaseService.dataSource = new HikariDataSource(config);
+                config.setMaximumPoolSize(DB_POOL_SIZE);
+                Metrics.bindPool(config);
+                DatabaseService.dataSource = InstrumentedDataSource.wrap(new HikariDataSource(config));
                 LOGGER.info("Database configured with URL: {}", url);
                 confirmed = true;
 
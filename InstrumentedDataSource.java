@@ -0,0 +1,330 @@
+package com.example.financial;
+
+import javafx.application.Platform;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC interception layer around DatabaseService.dataSource, installed by wrap() when Metrics or SlowQueryLog is
+ * on. Connections, statements and result sets are wrapped with JDK proxies; everything the two consumers do not
+ * need goes straight to the pooled objects.
+ *
+ * For Metrics, a connection lease - from getConnection() to close() - is timed as one call of the method that
+ * asked for it. Every DatabaseService method opens its own connection in a try-with-resources block, so the
+ * method is found by walking the stack once per lease.
+ *
+ * For SlowQueryLog, each execute is timed until its result set (or, for updates, the execute itself) is done,
+ * together with its SQL, bind values and row count.
+ */
+final class InstrumentedDataSource implements DataSource {
+    private static final String PACKAGE = InstrumentedDataSource.class.getPackageName() + ".";
+    private static final String SERVICE = DatabaseService.class.getName();
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final DataSource delegate;
+
+    private InstrumentedDataSource(DataSource delegate) {
+        this.delegate = delegate;
+    }
+
+    /** Returns the source itself when nothing is listening, so DatabaseService pays nothing per connection. */
+    static DataSource wrap(DataSource dataSource) {
+        return Metrics.enabled() || SlowQueryLog.enabled() ? new InstrumentedDataSource(dataSource) : dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        return lease(delegate.getConnection(), start);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        return lease(delegate.getConnection(username, password), start);
+    }
+
+    private Connection lease(Connection connection, long start) {
+        Lease lease = Metrics.enabled()
+            ? new Lease(connection, caller(), start, Platform.isFxApplicationThread())
+            : new Lease(connection, null, start, false);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, lease);
+    }
+
+    // The nearest DatabaseService frame, else the nearest application frame (AuditService, the panes, ...)
+    static String caller() {
+        List<StackWalker.StackFrame> frames = WALKER.walk(stream -> stream
+            .filter(frame -> frame.getClassName().startsWith(PACKAGE))
+            .filter(frame -> !frame.getClassName().startsWith(InstrumentedDataSource.class.getName()))
+            .filter(frame -> !frame.getClassName().equals(SlowQueryLog.class.getName()))
+            .limit(12)
+            .collect(Collectors.toList()));
+        Optional<StackWalker.StackFrame> service = frames.stream()
+            .filter(frame -> frame.getClassName().equals(SERVICE))
+            .findFirst();
+        return service.or(() -> frames.stream().findFirst()).map(InstrumentedDataSource::describe).orElse("other");
+    }
+
+    private static String describe(StackWalker.StackFrame frame) {
+        String className = frame.getClassName().substring(PACKAGE.length());
+        int nested = className.indexOf('$');
+        if (nested > 0) {
+            className = className.substring(0, nested);
+        }
+        String method = frame.getMethodName();
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', "lambda$".length());
+            method = end > 0 ? method.substring("lambda$".length(), end) : method;
+        }
+        return className + "." + method;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // One connection from getConnection() to close(); records its meters exactly once
+    private final class Lease implements InvocationHandler {
+        private final Connection target;
+        private final String method;
+        private final long start;
+        private final boolean fxThread;
+        private long rows;
+        private boolean closed;
+
+        Lease(Connection target, String method, long start, boolean fxThread) {
+            this.target = target;
+            this.method = method;
+            this.start = start;
+            this.fxThread = fxThread;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            if ("close".equals(m.getName())) {
+                try {
+                    target.close();
+                } finally {
+                    record();
+                }
+                return null;
+            }
+            Object result = InstrumentedDataSource.invoke(target, m, args);
+            if (result instanceof Statement && m.getReturnType().isInterface()) {
+                // prepareStatement/prepareCall carry their SQL; createStatement passes it to execute later
+                String sql = m.getName().startsWith("prepare") ? (String) args[0] : null;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {m.getReturnType()},
+                    new StatementHandler((Statement) result, this, sql));
+            }
+            return result;
+        }
+
+        private void record() {
+            if (closed || method == null) {
+                return;
+            }
+            closed = true;
+            long elapsed = System.nanoTime() - start;
+            Metrics.MethodMeters meters = Metrics.MethodMeters.of(method);
+            meters.calls.record(elapsed, TimeUnit.NANOSECONDS);
+            meters.rows.record(rows);
+            if (fxThread) {
+                meters.fxBlocking.record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Lease lease;
+        private final String preparedSql;
+        private final Map<Integer, Object> binds = new TreeMap<>();
+        private int batched;
+        private Execution current;
+
+        StatementHandler(Statement target, Lease lease, String preparedSql) {
+            this.target = target;
+            this.lease = lease;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            if (!SlowQueryLog.enabled()) {
+                return wrapResult(m, InstrumentedDataSource.invoke(target, m, args), null);
+            }
+            String name = m.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                binds.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                binds.clear();
+            } else if ("addBatch".equals(name)) {
+                batched++;
+            } else if ("clearBatch".equals(name)) {
+                batched = 0;
+            } else if ("close".equals(name)) {
+                finish();
+            }
+            if (!name.startsWith("execute")) {
+                return wrapResult(m, InstrumentedDataSource.invoke(target, m, args), current);
+            }
+
+            finish();
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            Execution execution = new Execution(sql, new TreeMap<>(binds), batched);
+            current = execution;
+            batched = 0;
+            Object result;
+            try {
+                result = InstrumentedDataSource.invoke(target, m, args);
+            } catch (Throwable t) {
+                execution.finish();
+                throw t;
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                execution.rows = ((Number) result).longValue();
+                execution.finish();
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    execution.rows += Math.max(count, 0);
+                }
+                execution.finish();
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    execution.rows += Math.max(count, 0);
+                }
+                execution.finish();
+            }
+            return wrapResult(m, result, execution);
+        }
+
+        private Object wrapResult(Method m, Object result, Execution execution) {
+            if (result instanceof ResultSet && !"getGeneratedKeys".equals(m.getName())) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                    new RowCounter((ResultSet) result, lease, execution));
+            }
+            return result;
+        }
+
+        private void finish() {
+            if (current != null) {
+                current.finish();
+                current = null;
+            }
+        }
+    }
+
+    // One execute call, open until its rows have been read; reports to SlowQueryLog exactly once
+    private final class Execution {
+        private final String sql;
+        private final Map<Integer, Object> binds;
+        private final int batchSize;
+        private final long start = System.nanoTime();
+        private long rows;
+        private boolean finished;
+
+        Execution(String sql, Map<Integer, Object> binds, int batchSize) {
+            this.sql = sql;
+            this.binds = binds;
+            this.batchSize = batchSize;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                SlowQueryLog.record(delegate, sql, binds, batchSize, System.nanoTime() - start, rows);
+            }
+        }
+    }
+
+    private static final class RowCounter implements InvocationHandler {
+        private final ResultSet target;
+        private final Lease lease;
+        private final Execution execution;
+
+        RowCounter(ResultSet target, Lease lease, Execution execution) {
+            this.target = target;
+            this.lease = lease;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            if ("next".equals(m.getName())) {
+                boolean hasRow = target.next();
+                if (hasRow) {
+                    lease.rows++;
+                    if (execution != null) {
+                        execution.rows++;
+                    }
+                }
+                return hasRow;
+            }
+            if ("close".equals(m.getName()) && execution != null) {
+                try {
+                    target.close();
+                } finally {
+                    execution.finish();
+                }
+                return null;
+            }
+            return InstrumentedDataSource.invoke(target, m, args);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
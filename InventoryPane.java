@@ -5,15 +5,11 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.file.Files; // Added import for Files.readAllBytes
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.example.financial.DatabaseService.Product;
 
 public class InventoryPane extends VBox {
     private static final Logger LOGGER = LoggerFactory.getLogger(InventoryPane.class);
@@ -57,7 +53,7 @@ public class InventoryPane extends VBox {
         inputGrid.add(new Label(messages.getString("productId")), 0, 0);
         productField = new TextField();
         productField.setPromptText("Type to search (e.g., Prod)");
-        productField.textProperty().addListener((obs, oldVal, newVal) -> suggestProducts(newVal));
+        SearchFieldController.withSuggestions(productField, dbService::suggestProducts, this::updateUnitCombo);
         inputGrid.add(productField, 1, 0);
 
         inputGrid.add(new Label(messages.getString("warehouseId")), 0, 1);
@@ -82,7 +78,7 @@ public class InventoryPane extends VBox {
         inputGrid.add(new Label("Customer Name"), 0, 5);
         customerNameField = new TextField();
         customerNameField.setPromptText("Type to search (e.g., Cust)");
-        customerNameField.textProperty().addListener((obs, oldVal, newVal) -> suggestCustomers(customerNameField, newVal));
+        SearchFieldController.withSuggestions(customerNameField, dbService::suggestCustomers, customer -> { });
         inputGrid.add(customerNameField, 1, 5);
 
         HBox buttons = new HBox(10);
@@ -99,68 +95,6 @@ public class InventoryPane extends VBox {
         getChildren().addAll(inventoryTable, inputGrid, buttons);
     }
 
-    private void suggestProducts(String input) {
-        ContextMenu suggestions = new ContextMenu();
-        if (input == null || input.trim().isEmpty()) {
-            suggestions.hide();
-            return;
-        }
-        try {
-            String lowerInput = input.toLowerCase();
-            List<Product> products = dbService.getProducts();
-            for (Product p : products) {
-                String item = p.getId() + " - " + p.getName();
-                if (item.toLowerCase().contains(lowerInput)) {
-                    MenuItem menuItem = new MenuItem(item);
-                    menuItem.setOnAction(e -> {
-                        productField.setText(item);
-                        updateUnitCombo(item);
-                        suggestions.hide();
-                    });
-                    suggestions.getItems().add(menuItem);
-                }
-            }
-            if (!suggestions.getItems().isEmpty()) {
-                suggestions.show(productField, javafx.geometry.Side.BOTTOM, 0, 0);
-            } else {
-                suggestions.hide();
-            }
-        } catch (DatabaseException e) {
-            LOGGER.error("Failed to fetch products for suggestion", e);
-            new Alert(Alert.AlertType.ERROR, "Error loading products: " + e.getMessage()).showAndWait();
-        }
-    }
-
-    private void suggestCustomers(TextField inputField, String input) {
-        ContextMenu suggestions = new ContextMenu();
-        if (input == null || input.trim().isEmpty()) {
-            suggestions.hide();
-            return;
-        }
-        try {
-            String lowerInput = input.toLowerCase();
-            List<String> customers = dbService.getCustomersWithNames();
-            for (String customer : customers) {
-                if (customer.toLowerCase().contains(lowerInput)) {
-                    MenuItem item = new MenuItem(customer);
-                    item.setOnAction(e -> {
-                        inputField.setText(customer);
-                        suggestions.hide();
-                    });
-                    suggestions.getItems().add(item);
-                }
-            }
-            if (!suggestions.getItems().isEmpty()) {
-                suggestions.show(inputField, javafx.geometry.Side.BOTTOM, 0, 0);
-            } else {
-                suggestions.hide();
-            }
-        } catch (DatabaseException e) {
-            LOGGER.error("Failed to fetch customer names for suggestion", e);
-            new Alert(Alert.AlertType.ERROR, "Error loading customers: " + e.getMessage()).showAndWait();
-        }
-    }
-
     private void updateUnitCombo(String productText) {
         try {
             if (productText != null && !productText.trim().isEmpty()) {
@@ -242,13 +176,10 @@ public class InventoryPane extends VBox {
                 fileChooser.setTitle("Add Attachment");
                 File file = fileChooser.showOpenDialog(getScene().getWindow());
                 if (file != null) {
-                    byte[] fileData = Files.readAllBytes(file.toPath()); // Convert File to byte[]
-                    dbService.addAttachment("Inventory", transactionId, fileData); // Updated to match new signature
+                    dbService.addAttachment("Inventory", transactionId, file.getName(), file.toPath());
                     auditService.logAction("user", "attachments", null, "Uploaded attachment for Inventory " + transactionId + ": " + file.getName(), null, null);
                     javafx.application.Platform.runLater(() -> new Alert(Alert.AlertType.INFORMATION, "Attachment added: " + file.getName()).showAndWait());
                 }
-            } catch (IOException e) {
-                ErrorHandler.handleException(e, "Failed to read file for attachment", null);
             } catch (DatabaseException e) {
                 ErrorHandler.handleException(e, "Failed to add attachment", null);
             }
@@ -266,7 +197,7 @@ public class InventoryPane extends VBox {
                     return;
                 }
                 String transactionId = productText.split(" - ")[0] + "-" + warehouseIdText;
-                List<Attachment> attachments = dbService.getAttachments("Inventory", transactionId);
+                List<AttachmentDescriptor> attachments = dbService.getAttachments("Inventory", transactionId);
                 if (attachments.isEmpty()) {
                     javafx.application.Platform.runLater(() -> new Alert(Alert.AlertType.INFORMATION, "No attachments found for this inventory item").showAndWait());
                     return;
@@ -277,22 +208,22 @@ public class InventoryPane extends VBox {
                     dialog.setTitle("View Attachments");
                     dialog.setHeaderText("Attachments for Inventory " + transactionId);
 
-                    TableView<Attachment> attachmentTable = new TableView<>();
-                    TableColumn<Attachment, Integer> idCol = new TableColumn<>("ID");
+                    TableView<AttachmentDescriptor> attachmentTable = new TableView<>();
+                    TableColumn<AttachmentDescriptor, Integer> idCol = new TableColumn<>("ID");
                     idCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-                    TableColumn<Attachment, String> nameCol = new TableColumn<>("File Name");
+                    TableColumn<AttachmentDescriptor, String> nameCol = new TableColumn<>("File Name");
                     nameCol.setCellValueFactory(new PropertyValueFactory<>("fileName"));
-                    TableColumn<Attachment, Long> sizeCol = new TableColumn<>("Size (bytes)");
+                    TableColumn<AttachmentDescriptor, Long> sizeCol = new TableColumn<>("Size (bytes)");
                     sizeCol.setCellValueFactory(new PropertyValueFactory<>("fileSize"));
-                    TableColumn<Attachment, String> dateCol = new TableColumn<>("Upload Date");
+                    TableColumn<AttachmentDescriptor, String> dateCol = new TableColumn<>("Upload Date");
                     dateCol.setCellValueFactory(new PropertyValueFactory<>("uploadDate"));
-                    attachmentTable.getColumns().addAll((TableColumn<Attachment, ?>[]) new TableColumn[] {idCol, nameCol, sizeCol, dateCol});
+                    attachmentTable.getColumns().addAll((TableColumn<AttachmentDescriptor, ?>[]) new TableColumn[] {idCol, nameCol, sizeCol, dateCol});
                     attachmentTable.getItems().addAll(attachments);
                     attachmentTable.setPrefHeight(200);
 
                     Button downloadButton = new Button("Download");
                     downloadButton.setOnAction(e -> {
-                        Attachment selected = attachmentTable.getSelectionModel().getSelectedItem();
+                        AttachmentDescriptor selected = attachmentTable.getSelectionModel().getSelectedItem();
                         if (selected != null) {
                             downloadAttachment(selected.getId(), selected.getFileName());
                         } else {
@@ -302,7 +233,7 @@ public class InventoryPane extends VBox {
 
                     Button editButton = new Button("Edit");
                     editButton.setOnAction(e -> {
-                        Attachment selected = attachmentTable.getSelectionModel().getSelectedItem();
+                        AttachmentDescriptor selected = attachmentTable.getSelectionModel().getSelectedItem();
                         if (selected != null) {
                             editAttachment(selected.getId());
                         } else {
@@ -324,19 +255,19 @@ public class InventoryPane extends VBox {
 
     private void downloadAttachment(int attachmentId, String fileName) {
         try {
-            byte[] content = dbService.getAttachmentContent(attachmentId);
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Save Attachment");
             fileChooser.setInitialFileName(fileName);
             File file = fileChooser.showSaveDialog(getScene().getWindow());
             if (file != null) {
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    fos.write(content);
+                if (!dbService.copyAttachmentContent(attachmentId, file.toPath())) {
+                    new Alert(Alert.AlertType.WARNING, "Attachment content not found; nothing was saved").showAndWait();
+                    return;
                 }
                 auditService.logAction("user", "attachments", String.valueOf(attachmentId), "Downloaded attachment: " + fileName, null, null);
                 new Alert(Alert.AlertType.INFORMATION, "Attachment saved to " + file.getAbsolutePath()).showAndWait();
             }
-        } catch (DatabaseException | IOException e) {
+        } catch (DatabaseException e) {
             ErrorHandler.handleException(e, "Failed to download attachment", null);
         }
     }
@@ -0,0 +1,70 @@
+package com.example.financial;
+
+import java.util.List;
+
+/**
+ * An invoice that has not been stored yet; carries the same values as DatabaseService.saveInvoice
+ * so many of them can be written in one DatabaseService.saveInvoices call.
+ */
+public class InvoiceDraft {
+    private final Integer customerId;
+    private final Integer supplierId;
+    private final String invoiceType;
+    private final String date;
+    private final double totalAmount;
+    private final double taxAmount;
+    private final String currency;
+    private final List<InvoiceLineItem> lineItems;
+    private final String status;
+    private final String paymentInstructions;
+    private final String paymentTerm;
+    private final String notes;
+    private final double exchangeRate;
+    private double shippingFee;
+    private double transportingFee;
+    private double uploadingFee;
+    private double taxFee;
+
+    public InvoiceDraft(Integer customerId, Integer supplierId, String invoiceType, String date, double totalAmount,
+                        double taxAmount, String currency, List<InvoiceLineItem> lineItems, String status,
+                        String paymentInstructions, String paymentTerm, String notes, double exchangeRate) {
+        this.customerId = customerId;
+        this.supplierId = supplierId;
+        this.invoiceType = invoiceType;
+        this.date = date;
+        this.totalAmount = totalAmount;
+        this.taxAmount = taxAmount;
+        this.currency = currency;
+        this.lineItems = lineItems;
+        this.status = status;
+        this.paymentInstructions = paymentInstructions;
+        this.paymentTerm = paymentTerm;
+        this.notes = notes;
+        this.exchangeRate = exchangeRate;
+    }
+
+    // Getters
+    public Integer getCustomerId() { return customerId; }
+    public Integer getSupplierId() { return supplierId; }
+    public String getInvoiceType() { return invoiceType; }
+    public String getDate() { return date; }
+    public double getTotalAmount() { return totalAmount; }
+    public double getTaxAmount() { return taxAmount; }
+    public String getCurrency() { return currency; }
+    public List<InvoiceLineItem> getLineItems() { return lineItems; }
+    public String getStatus() { return status; }
+    public String getPaymentInstructions() { return paymentInstructions; }
+    public String getPaymentTerm() { return paymentTerm; }
+    public String getNotes() { return notes; }
+    public double getExchangeRate() { return exchangeRate; }
+    public double getShippingFee() { return shippingFee; }
+    public double getTransportingFee() { return transportingFee; }
+    public double getUploadingFee() { return uploadingFee; }
+    public double getTaxFee() { return taxFee; }
+
+    // Setters
+    public void setShippingFee(double shippingFee) { this.shippingFee = shippingFee; }
+    public void setTransportingFee(double transportingFee) { this.transportingFee = transportingFee; }
+    public void setUploadingFee(double uploadingFee) { this.uploadingFee = uploadingFee; }
+    public void setTaxFee(double taxFee) { this.taxFee = taxFee; }
+}
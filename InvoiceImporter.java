@@ -0,0 +1,396 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streams historical invoices from a CSV or JSON Lines file into the database.
+ *
+ * Each record is one line item; consecutive records with the same invoiceRef form one invoice and the
+ * header fields are taken from its first record. Columns / keys:
+ * invoiceRef, invoiceType, date, customer, supplier, currency, exchangeRate, status, paymentTerm, notes,
+ * product, warehouseId, quantity, unit, unitPrice, discount, taxRate.
+ * customer, supplier and product may be an id or an exact name.
+ *
+ * The file is read one line at a time. Invoices are written through DatabaseService.saveInvoices every
+ * import.commitSize invoices, and the last line of each chunk is stored in ImportCheckpoints in the same
+ * transaction, keyed by the file's absolute path; a rerun resumes after it without storing any chunk twice.
+ * An invoice with an invalid record, such as a date that is not yyyy-MM-dd, is skipped as a whole; a line that cannot be
+ * parsed at all is skipped on its own. Both are reported in the result.
+ */
+public class InvoiceImporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvoiceImporter.class);
+    private static final int COMMIT_SIZE = Integer.getInteger("import.commitSize", 500);
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final DatabaseService dbService;
+    private Map<String, Integer> customers;
+    private Map<String, Integer> suppliers;
+    private Map<String, Integer> products;
+
+    public InvoiceImporter(DatabaseService dbService) {
+        this.dbService = dbService;
+    }
+
+    public ImportResult importFile(Path file) throws IOException, DatabaseException {
+        loadLookups();
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).matches(".*\\.(json|jsonl|ndjson)$");
+        String source = sourceKey(file);
+        long resumeAfter = dbService.getImportCheckpoint(source);
+        if (resumeAfter > 0) {
+            LOGGER.info("Resuming import after line {}", resumeAfter);
+        }
+        ImportResult result = new ImportResult();
+        long start = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> header = null;
+            List<InvoiceDraft> drafts = new ArrayList<>();
+            List<Map<String, String>> group = new ArrayList<>();
+            String groupRef = null;
+            long groupStartLine = 0;
+            long lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (!json && header == null) {
+                    header = parseCsvLine(line);
+                    continue;
+                }
+                if (lineNo <= resumeAfter) {
+                    continue;
+                }
+                Map<String, String> record;
+                try {
+                    record = json ? parseJsonLine(line) : toRecord(header, parseCsvLine(line));
+                } catch (ValidationException e) {
+                    result.reject(lineNo, e.getMessage());
+                    continue;
+                }
+                String ref = record.get("invoiceRef");
+                if (groupRef != null && !groupRef.equals(ref)) {
+                    addDraft(group, groupStartLine, drafts, result);
+                    group.clear();
+                    // A group always ends just before the current line, so committing here never splits an invoice
+                    if (drafts.size() >= COMMIT_SIZE) {
+                        commit(drafts, source, lineNo - 1, result, start);
+                    }
+                }
+                if (group.isEmpty()) {
+                    groupRef = ref;
+                    groupStartLine = lineNo;
+                }
+                group.add(record);
+            }
+            if (!group.isEmpty()) {
+                addDraft(group, groupStartLine, drafts, result);
+            }
+            commit(drafts, source, lineNo, result, start);
+        }
+
+        dbService.clearImportCheckpoint(source);
+        result.elapsedNanos = System.nanoTime() - start;
+        LOGGER.info("Imported {} invoices ({} rows) from {} in {} ms, {} rows/sec, {} rejected", result.invoices, result.rows,
+            file, result.elapsedNanos / 1_000_000, String.format("%.0f", result.getRowsPerSecond()), result.rejected);
+        return result;
+    }
+
+    private void commit(List<InvoiceDraft> drafts, String source, long lineNo, ImportResult result, long start)
+            throws DatabaseException {
+        dbService.saveInvoices(drafts, source, lineNo);
+        result.invoices += drafts.size();
+        for (InvoiceDraft draft : drafts) {
+            result.rows += draft.getLineItems().size();
+        }
+        drafts.clear();
+        result.elapsedNanos = System.nanoTime() - start;
+        LOGGER.info("Import checkpoint at line {}: {} invoices, {} rows/sec", lineNo, result.invoices,
+            String.format("%.0f", result.getRowsPerSecond()));
+    }
+
+    private void addDraft(List<Map<String, String>> group, long firstLine, List<InvoiceDraft> drafts, ImportResult result) {
+        try {
+            drafts.add(toDraft(group));
+        } catch (ValidationException e) {
+            result.reject(firstLine, "invoice " + group.get(0).get("invoiceRef") + ": " + e.getMessage());
+        }
+    }
+
+    private InvoiceDraft toDraft(List<Map<String, String>> group) throws ValidationException {
+        Map<String, String> first = group.get(0);
+        ErrorHandler.validateRequiredField(first.get("invoiceRef"), "invoiceRef");
+        ErrorHandler.validateRequiredField(first.get("invoiceType"), "invoiceType");
+        ErrorHandler.validateRequiredField(first.get("date"), "date");
+        String date = first.get("date").trim();
+        try {
+            LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Invalid date '" + first.get("date") + "', expected yyyy-MM-dd");
+        }
+        String invoiceType = first.get("invoiceType");
+        String currency = valueOr(first.get("currency"), "USD");
+        double exchangeRate = isBlank(first.get("exchangeRate")) ? 1.0
+            : ErrorHandler.validatePositiveDouble(first.get("exchangeRate"), "exchangeRate", 0.000001, Double.MAX_VALUE);
+        Integer customerId = resolve(customers, first.get("customer"), "customer");
+        Integer supplierId = resolve(suppliers, first.get("supplier"), "supplier");
+        if (customerId == null && supplierId == null) {
+            throw new ValidationException("customer or supplier is required");
+        }
+
+        List<InvoiceLineItem> lineItems = new ArrayList<>(group.size());
+        double total = 0;
+        double tax = 0;
+        for (Map<String, String> row : group) {
+            ErrorHandler.validateRequiredField(row.get("product"), "product");
+            int productId = resolve(products, row.get("product"), "product");
+            int warehouseId = isBlank(row.get("warehouseId")) ? 1
+                : (int) ErrorHandler.validatePositiveDouble(row.get("warehouseId"), "warehouseId", 1, Integer.MAX_VALUE);
+            int quantity = (int) ErrorHandler.validatePositiveDouble(row.get("quantity"), "quantity", 1, Integer.MAX_VALUE);
+            double unitPrice = ErrorHandler.validatePositiveDouble(row.get("unitPrice"), "unitPrice", 0, Double.MAX_VALUE);
+            double discount = isBlank(row.get("discount")) ? 0
+                : ErrorHandler.validatePositiveDouble(row.get("discount"), "discount", 0, 100);
+            double taxRate = isBlank(row.get("taxRate")) ? 0
+                : ErrorHandler.validatePositiveDouble(row.get("taxRate"), "taxRate", 0, 100);
+            // Same pricing as InvoicePane.addLineItem
+            double totalPrice = quantity * unitPrice * (1 - discount / 100.0);
+            double totalTax = totalPrice * taxRate / 100.0;
+            lineItems.add(new InvoiceLineItem(0, productId, warehouseId, quantity, valueOr(row.get("unit"), "piece"),
+                unitPrice, totalPrice, 0.0, 0.0, discount, 0.0, taxRate, totalTax, currency));
+            total += totalPrice;
+            tax += totalTax;
+        }
+        return new InvoiceDraft(customerId, supplierId, invoiceType, date, total + tax, tax, currency,
+            lineItems, valueOr(first.get("status"), "Paid"), null, first.get("paymentTerm"), first.get("notes"), exchangeRate);
+    }
+
+    private static Integer resolve(Map<String, Integer> lookup, String value, String fieldName) throws ValidationException {
+        if (isBlank(value)) {
+            return null;
+        }
+        Integer id = lookup.get(value.trim().toLowerCase(Locale.ROOT));
+        if (id == null) {
+            throw new ValidationException("Unknown " + fieldName + ": " + value);
+        }
+        return id;
+    }
+
+    // Contacts and products are looked up per record, so they are read once per import instead of per row
+    private void loadLookups() throws DatabaseException {
+        customers = idNameLookup(dbService.getCustomersWithNames());
+        suppliers = idNameLookup(dbService.getSuppliersWithNames());
+        products = new HashMap<>();
+        for (DatabaseService.Product product : dbService.getProducts()) {
+            products.put(String.valueOf(product.getId()), product.getId());
+            products.putIfAbsent(product.getName().trim().toLowerCase(Locale.ROOT), product.getId());
+        }
+    }
+
+    private static Map<String, Integer> idNameLookup(List<String> idNames) {
+        Map<String, Integer> lookup = new HashMap<>();
+        for (String idName : idNames) {
+            String[] parts = idName.split(" - ", 2);
+            int id = Integer.parseInt(parts[0].trim());
+            lookup.put(String.valueOf(id), id);
+            if (parts.length > 1) {
+                lookup.putIfAbsent(parts[1].trim().toLowerCase(Locale.ROOT), id);
+            }
+        }
+        return lookup;
+    }
+
+    // ImportCheckpoints key: SHA-256 of the absolute path, so any path length fits the CHAR(64) key
+    private static String sourceKey(Path file) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(file.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Map<String, String> toRecord(List<String> header, List<String> values) throws ValidationException {
+        if (values.size() > header.size()) {
+            throw new ValidationException("Expected " + header.size() + " columns but found " + values.size());
+        }
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            record.put(header.get(i).trim(), values.get(i));
+        }
+        return record;
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes, not line breaks
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // One flat JSON object per line; values may be strings, numbers, booleans or null
+    static Map<String, String> parseJsonLine(String line) throws ValidationException {
+        Map<String, String> record = new LinkedHashMap<>();
+        int[] pos = {skipWhitespace(line, 0)};
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') {
+            return record;
+        }
+        while (true) {
+            String key = readJsonString(line, pos);
+            expect(line, pos, ':');
+            pos[0] = skipWhitespace(line, pos[0]);
+            String value;
+            if (peek(line, pos) == '"') {
+                value = readJsonString(line, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = line.substring(start, pos[0]);
+                if (value.equals("null")) {
+                    value = null;
+                }
+            }
+            record.put(key, value);
+            pos[0] = skipWhitespace(line, pos[0]);
+            if (peek(line, pos) == ',') {
+                pos[0]++;
+                continue;
+            }
+            expect(line, pos, '}');
+            return record;
+        }
+    }
+
+    private static String readJsonString(String line, int[] pos) throws ValidationException {
+        expect(line, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (pos[0] < line.length()) {
+            char c = line.charAt(pos[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\\' && pos[0] < line.length()) {
+                char escaped = line.charAt(pos[0]++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (pos[0] + 4 > line.length()) {
+                            throw new ValidationException("Invalid JSON escape at column " + pos[0]);
+                        }
+                        value.append((char) Integer.parseInt(line.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        throw new ValidationException("Unterminated JSON string");
+    }
+
+    private static void expect(String line, int[] pos, char expected) throws ValidationException {
+        pos[0] = skipWhitespace(line, pos[0]);
+        if (pos[0] >= line.length() || line.charAt(pos[0]) != expected) {
+            throw new ValidationException("Expected '" + expected + "' at column " + (pos[0] + 1));
+        }
+        pos[0]++;
+    }
+
+    private static char peek(String line, int[] pos) {
+        pos[0] = skipWhitespace(line, pos[0]);
+        return pos[0] < line.length() ? line.charAt(pos[0]) : 0;
+    }
+
+    private static int skipWhitespace(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String valueOr(String value, String fallback) {
+        return isBlank(value) ? fallback : value.trim();
+    }
+
+    public static class ImportResult {
+        private int invoices;
+        private int rows;
+        private int rejected;
+        private long elapsedNanos;
+        private final List<String> errors = new ArrayList<>();
+
+        void reject(long lineNo, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + lineNo + ": " + message);
+            }
+            LOGGER.warn("Import rejected line {}: {}", lineNo, message);
+        }
+
+        public int getInvoices() { return invoices; }
+        public int getRows() { return rows; }
+        public int getRejected() { return rejected; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+        public List<String> getErrors() { return errors; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
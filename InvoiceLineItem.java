@@ -55,6 +55,7 @@ public class InvoiceLineItem {
     public String getCurrency() { return currency; }
 
     // Setters
+    public void setId(int id) { this.id = id; }
     public void setUnitPrice(double unitPrice) { this.unitPrice = unitPrice; }
     public void setTotalPrice(double totalPrice) { this.totalPrice = totalPrice; }
 }
\ No newline at end of file
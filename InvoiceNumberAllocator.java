@@ -0,0 +1,141 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out invoice numbers per prefix (Sell, Purch, Imp, Cred, ...) from blocks reserved in the
+ * InvoiceSequences counter table (schema migration V6). Each reservation is a short transaction of its own that bumps the
+ * counter under a row lock, so several app instances on the same database never receive overlapping
+ * blocks. Inside a block, numbers come from an AtomicLong without touching the database.
+ *
+ * Numbers of a block that is not used up (app restart, rolled-back save) are skipped, not reused.
+ * A refill takes a pooled connection of its own, so callers reserve numbers before checking out theirs.
+ */
+public class InvoiceNumberAllocator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvoiceNumberAllocator.class);
+
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    // One refill at a time per prefix; refills of different prefixes run in parallel
+    private final Map<String, Object> refillLocks = new ConcurrentHashMap<>();
+
+    public InvoiceNumberAllocator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.blockSize = blockSize;
+    }
+
+    public long next(DataSource dataSource, String prefix) throws SQLException {
+        while (true) {
+            Block block = blocks.get(prefix);
+            if (block != null && block.dataSource == dataSource) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    return value;
+                }
+            }
+            synchronized (refillLocks.computeIfAbsent(prefix, p -> new Object())) {
+                // Another thread may have refilled while we waited
+                Block current = blocks.get(prefix);
+                if (current == block || current.dataSource != dataSource) {
+                    blocks.put(prefix, reserveBlock(dataSource, prefix));
+                }
+            }
+        }
+    }
+
+    private Block reserveBlock(DataSource dataSource, String prefix) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long end = bumpCounter(conn, prefix);
+                if (end < 0) {
+                    seedCounter(conn, prefix);
+                    end = bumpCounter(conn, prefix);
+                    if (end < 0) {
+                        throw new SQLException("No InvoiceSequences row for prefix " + prefix + " after seeding it");
+                    }
+                }
+                conn.commit();
+                LOGGER.debug("Reserved invoice numbers {}..{} for prefix {}", end - blockSize, end - 1, prefix);
+                return new Block(dataSource, end - blockSize, end);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Returns the new exclusive upper bound of the reserved block, or -1 when the prefix has no counter row yet
+    private long bumpCounter(Connection conn, String prefix) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement(
+                 "UPDATE InvoiceSequences SET nextValue = nextValue + ? WHERE prefix = ?")) {
+            update.setInt(1, blockSize);
+            update.setString(2, prefix);
+            if (update.executeUpdate() == 0) {
+                return -1;
+            }
+        }
+        try (PreparedStatement select = conn.prepareStatement("SELECT nextValue FROM InvoiceSequences WHERE prefix = ?")) {
+            select.setString(1, prefix);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    // One-time scan of existing invoice IDs so numbering continues after the highest number in use
+    private void seedCounter(Connection conn, String prefix) throws SQLException {
+        long start = 1;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT MAX(CAST(SUBSTRING(invoiceId, ?) AS INTEGER)) FROM Invoices WHERE invoiceId LIKE ?")) {
+            stmt.setInt(1, prefix.length() + 2);
+            stmt.setString(2, prefix + " %");
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    start = rs.getLong(1) + 1;
+                }
+            }
+        }
+        // Savepoint so a duplicate key does not abort the surrounding transaction (PostgreSQL would)
+        Savepoint beforeInsert = conn.setSavepoint();
+        try (PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO InvoiceSequences (prefix, nextValue) VALUES (?, ?)")) {
+            insert.setString(1, prefix);
+            insert.setLong(2, start);
+            insert.executeUpdate();
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            // Integrity constraint violation: another instance seeded the row first; its value wins
+            conn.rollback(beforeInsert);
+            LOGGER.debug("Invoice sequence for prefix {} already seeded", prefix);
+        }
+    }
+
+    private static class Block {
+        private final DataSource dataSource;
+        private final AtomicLong next;
+        private final long end;
+
+        Block(DataSource dataSource, long start, long end) {
+            this.dataSource = dataSource;
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
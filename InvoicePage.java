@@ -0,0 +1,26 @@
+package com.example.financial;
+
+import java.util.List;
+
+/**
+ * One page of invoice headers ordered by (date, invoiceId), newest first.
+ * The last row's date and invoiceId are the keyset cursor for the next page.
+ */
+public class InvoicePage {
+    private final List<InvoiceDetails> invoices;
+    private final String lastDate;
+    private final String lastInvoiceId;
+    private final boolean hasMore;
+
+    public InvoicePage(List<InvoiceDetails> invoices, String lastDate, String lastInvoiceId, boolean hasMore) {
+        this.invoices = invoices;
+        this.lastDate = lastDate;
+        this.lastInvoiceId = lastInvoiceId;
+        this.hasMore = hasMore;
+    }
+
+    public List<InvoiceDetails> getInvoices() { return invoices; }
+    public String getLastDate() { return lastDate; }
+    public String getLastInvoiceId() { return lastInvoiceId; }
+    public boolean hasMore() { return hasMore; }
+}
@@ -7,11 +7,11 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import javafx.application.Platform;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -79,11 +79,7 @@ public class InvoicePane extends VBox {
         content.getChildren().add(new Label("Customer"));
         customerField = new TextField();
         customerField.setPromptText("Type to search (e.g., Cust)");
-        customerField.textProperty().addListener((obs, oldVal, newVal) -> {
-            if (customerField.getScene() != null) {
-                suggestCustomers(newVal);
-            }
-        });
+        SearchFieldController.withSuggestions(customerField, dbService::suggestCustomers, customer -> customerField.requestFocus());
         try {
             List<String> customers = dbService.getCustomersWithNames();
             if (!customers.isEmpty()) customerField.setText(customers.get(0));
@@ -95,11 +91,7 @@ public class InvoicePane extends VBox {
         content.getChildren().add(new Label("Supplier"));
         supplierField = new TextField();
         supplierField.setPromptText("Type to search (e.g., Supp)");
-        supplierField.textProperty().addListener((obs, oldVal, newVal) -> {
-            if (supplierField.getScene() != null) {
-                suggestSuppliers(newVal);
-            }
-        });
+        SearchFieldController.withSuggestions(supplierField, dbService::suggestSuppliers, supplier -> supplierField.requestFocus());
         try {
             List<String> suppliers = dbService.getSuppliersWithNames();
             if (!suppliers.isEmpty()) supplierField.setText(suppliers.get(0));
@@ -240,7 +232,10 @@ public class InvoicePane extends VBox {
         itemInput.add(new Label("Product"), 0, 0);
         productField = new TextField();
         productField.setPromptText("Type to search (e.g., Prod)");
-        productField.textProperty().addListener((obs, oldVal, newVal) -> suggestProducts(newVal));
+        SearchFieldController.withSuggestions(productField, dbService::suggestProducts, product -> {
+            updateUnitCombo(product);
+            productField.requestFocus();
+        });
         itemInput.add(productField, 1, 0);
 
         itemInput.add(new Label("Warehouse ID"), 0, 1);
@@ -310,7 +305,9 @@ public class InvoicePane extends VBox {
         attachmentButton.setOnAction(e -> addAttachment());
         viewAttachmentsButton = new Button("View Attachments");
         viewAttachmentsButton.setOnAction(e -> viewAttachments());
-        invoiceButtons.getChildren().addAll(newInvoiceButton, saveButton, editInvoiceButton, deleteInvoiceButton, printButton, exportButton, attachmentButton, viewAttachmentsButton);
+        Button importButton = new Button("Import Invoices");
+        importButton.setOnAction(e -> importInvoices());
+        invoiceButtons.getChildren().addAll(newInvoiceButton, saveButton, editInvoiceButton, deleteInvoiceButton, printButton, exportButton, attachmentButton, viewAttachmentsButton, importButton);
         content.getChildren().add(invoiceButtons);
 
         getChildren().add(scrollPane);
@@ -443,40 +440,107 @@ public class InvoicePane extends VBox {
 //==================
       @SuppressWarnings("unchecked")  
     private void browseInvoices() {
-        try {
-            List<InvoiceDetails> invoices = dbService.getAllInvoices();
-            TableView<InvoiceDetails> invoiceTable = new TableView<>();
-            TableColumn<InvoiceDetails, String> idCol = new TableColumn<>("Invoice ID");
-            idCol.setCellValueFactory(new PropertyValueFactory<>("invoiceId"));
-            TableColumn<InvoiceDetails, String> typeCol = new TableColumn<>("Type");
-            typeCol.setCellValueFactory(new PropertyValueFactory<>("invoiceType"));
-            TableColumn<InvoiceDetails, String> customerCol = new TableColumn<>("Customer");
-            customerCol.setCellValueFactory(new PropertyValueFactory<>("customerName"));
-            TableColumn<InvoiceDetails, String> supplierCol = new TableColumn<>("Supplier");
-            supplierCol.setCellValueFactory(new PropertyValueFactory<>("supplierName"));
-            TableColumn<InvoiceDetails, String> dateCol = new TableColumn<>("Date");
-            dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
-            TableColumn<InvoiceDetails, Double> amountCol = new TableColumn<>("Total Amount");
-            amountCol.setCellValueFactory(new PropertyValueFactory<>("totalAmount"));
-            invoiceTable.getColumns().addAll((TableColumn<InvoiceDetails, ?>[]) new TableColumn[] {idCol, typeCol, customerCol, supplierCol, dateCol, amountCol});
-            invoiceTable.getItems().addAll(invoices);
-
-            invoiceTable.setOnMouseClicked(e -> {
-                if (e.getClickCount() == 2) {
-                    InvoiceDetails selected = invoiceTable.getSelectionModel().getSelectedItem();
-                    if (selected != null) {
-                        loadInvoiceForEdit(selected);
-                    }
+        TableView<InvoiceDetails> invoiceTable = new TableView<>();
+        TableColumn<InvoiceDetails, String> idCol = new TableColumn<>("Invoice ID");
+        idCol.setCellValueFactory(new PropertyValueFactory<>("invoiceId"));
+        TableColumn<InvoiceDetails, String> typeCol = new TableColumn<>("Type");
+        typeCol.setCellValueFactory(new PropertyValueFactory<>("invoiceType"));
+        TableColumn<InvoiceDetails, String> customerCol = new TableColumn<>("Customer");
+        customerCol.setCellValueFactory(new PropertyValueFactory<>("customerName"));
+        TableColumn<InvoiceDetails, String> supplierCol = new TableColumn<>("Supplier");
+        supplierCol.setCellValueFactory(new PropertyValueFactory<>("supplierName"));
+        TableColumn<InvoiceDetails, String> dateCol = new TableColumn<>("Date");
+        dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
+        TableColumn<InvoiceDetails, Double> amountCol = new TableColumn<>("Total Amount");
+        amountCol.setCellValueFactory(new PropertyValueFactory<>("totalAmount"));
+        invoiceTable.getColumns().addAll((TableColumn<InvoiceDetails, ?>[]) new TableColumn[] {idCol, typeCol, customerCol, supplierCol, dateCol, amountCol});
+        invoiceTable.setPlaceholder(new Label("Loading invoices..."));
+
+        PagedInvoiceLoader loader = new PagedInvoiceLoader(invoiceTable);
+
+        invoiceTable.setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) {
+                InvoiceDetails selected = invoiceTable.getSelectionModel().getSelectedItem();
+                if (selected != null) {
+                    openInvoiceFromBrowser(selected);
                 }
-            });
+            }
+        });
 
-            Stage browseStage = new Stage();
-            browseStage.setTitle("Browse Invoices");
-            browseStage.setScene(new Scene(new VBox(invoiceTable), 800, 400));
-            browseStage.show();
-        } catch (DatabaseException e) {
-            LOGGER.error("Failed to browse invoices", e);
-            new Alert(Alert.AlertType.ERROR, "Failed to load invoices: " + e.getMessage()).showAndWait();
+        Stage browseStage = new Stage();
+        browseStage.setTitle("Browse Invoices");
+        browseStage.setScene(new Scene(new VBox(invoiceTable), 800, 400));
+        browseStage.show();
+
+        // The vertical scroll bar only exists once the table has been laid out
+        for (javafx.scene.Node node : invoiceTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == javafx.geometry.Orientation.VERTICAL) {
+                ScrollBar scrollBar = (ScrollBar) node;
+                scrollBar.valueProperty().addListener((obs, oldVal, newVal) -> {
+                    if (newVal.doubleValue() >= scrollBar.getMax() * 0.9) {
+                        loader.loadNextPage();
+                    }
+                });
+            }
+        }
+        loader.loadNextPage();
+    }
+
+    // Line items are not part of the browse page; fetch them only for the invoice being opened
+    private void openInvoiceFromBrowser(InvoiceDetails header) {
+        CompletableFuture.runAsync(() -> {
+            try {
+                List<InvoiceLineItem> items = dbService.getInvoiceLineItems(header.getInvoiceId());
+                Platform.runLater(() -> {
+                    header.getLineItems().clear();
+                    header.getLineItems().addAll(items);
+                    loadInvoiceForEdit(header);
+                });
+            } catch (DatabaseException e) {
+                ErrorHandler.handleException(e, "Failed to load invoice " + header.getInvoiceId(), null);
+            }
+        }, FinancialManagementApp.executor);
+    }
+
+    /**
+     * Feeds the browse table one keyset page at a time. Only one page request is in flight at once,
+     * and loading stops once the database reports there are no more rows.
+     */
+    private class PagedInvoiceLoader {
+        private static final int PAGE_SIZE = 200;
+        private final TableView<InvoiceDetails> table;
+        private final AtomicBoolean loading = new AtomicBoolean(false);
+        private volatile String lastDate;
+        private volatile String lastInvoiceId;
+        private volatile boolean hasMore = true;
+
+        PagedInvoiceLoader(TableView<InvoiceDetails> table) {
+            this.table = table;
+        }
+
+        void loadNextPage() {
+            if (!hasMore || !loading.compareAndSet(false, true)) {
+                return;
+            }
+            CompletableFuture.runAsync(() -> {
+                try {
+                    InvoicePage page = dbService.getInvoicePage(lastDate, lastInvoiceId, PAGE_SIZE);
+                    lastDate = page.getLastDate();
+                    lastInvoiceId = page.getLastInvoiceId();
+                    hasMore = page.hasMore();
+                    Platform.runLater(() -> {
+                        table.getItems().addAll(page.getInvoices());
+                        if (table.getItems().isEmpty()) {
+                            table.setPlaceholder(new Label("No invoices found"));
+                        }
+                    });
+                } catch (DatabaseException e) {
+                    LOGGER.error("Failed to browse invoices", e);
+                    Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Failed to load invoices: " + e.getMessage()).showAndWait());
+                } finally {
+                    loading.set(false);
+                }
+            }, FinancialManagementApp.executor);
         }
     }
 
@@ -495,104 +559,6 @@ public class InvoicePane extends VBox {
         updateTotalAmount();
     }
 
-    private void suggestCustomers(String input) {
-        ContextMenu suggestions = new ContextMenu();
-        if (input == null || input.trim().isEmpty()) {
-            suggestions.hide();
-            return;
-        }
-        try {
-            String lowerInput = input.toLowerCase();
-            List<String> customers = dbService.getCustomersWithNames();
-            suggestions.getItems().clear();
-            for (String customer : customers) {
-                if (customer.toLowerCase().contains(lowerInput)) {
-                    MenuItem menuItem = new MenuItem(customer);
-                    menuItem.setOnAction(e -> {
-                        customerField.setText(customer);
-                        suggestions.hide();
-                        customerField.requestFocus();
-                    });
-                    suggestions.getItems().add(menuItem);
-                }
-            }
-            if (!suggestions.getItems().isEmpty()) {
-                suggestions.show(customerField, javafx.geometry.Side.BOTTOM, 0, 0);
-            } else {
-                suggestions.hide();
-            }
-        } catch (DatabaseException e) {
-            LOGGER.error("Failed to fetch customers for suggestion", e);
-            new Alert(Alert.AlertType.ERROR, "Error loading customers: " + e.getMessage()).showAndWait();
-        }
-    }
-
-    private void suggestSuppliers(String input) {
-        ContextMenu suggestions = new ContextMenu();
-        if (input == null || input.trim().isEmpty()) {
-            suggestions.hide();
-            return;
-        }
-        try {
-            String lowerInput = input.toLowerCase();
-            List<String> suppliers = dbService.getSuppliersWithNames();
-            suggestions.getItems().clear();
-            for (String supplier : suppliers) {
-                if (supplier.toLowerCase().contains(lowerInput)) {
-                    MenuItem menuItem = new MenuItem(supplier);
-                    menuItem.setOnAction(e -> {
-                        supplierField.setText(supplier);
-                        suggestions.hide();
-                        supplierField.requestFocus();
-                    });
-                    suggestions.getItems().add(menuItem);
-                }
-            }
-            if (!suggestions.getItems().isEmpty()) {
-                suggestions.show(supplierField, javafx.geometry.Side.BOTTOM, 0, 0);
-            } else {
-                suggestions.hide();
-            }
-        } catch (DatabaseException e) {
-            LOGGER.error("Failed to fetch suppliers for suggestion", e);
-            new Alert(Alert.AlertType.ERROR, "Error loading suppliers: " + e.getMessage()).showAndWait();
-        }
-    }
-
-    private void suggestProducts(String input) {
-        ContextMenu suggestions = new ContextMenu();
-        if (input == null || input.trim().isEmpty()) {
-            suggestions.hide();
-            return;
-        }
-        try {
-            String lowerInput = input.toLowerCase();
-            List<Product> products = dbService.getProducts();
-            suggestions.getItems().clear();
-            for (Product p : products) {
-                String item = p.getId() + " - " + p.getName();
-                if (item.toLowerCase().contains(lowerInput)) {
-                    MenuItem menuItem = new MenuItem(item);
-                    menuItem.setOnAction(e -> {
-                        productField.setText(item);
-                        updateUnitCombo(item);
-                        suggestions.hide();
-                        productField.requestFocus();
-                    });
-                    suggestions.getItems().add(menuItem);
-                }
-            }
-            if (!suggestions.getItems().isEmpty()) {
-                suggestions.show(productField, javafx.geometry.Side.BOTTOM, 0, 0);
-            } else {
-                suggestions.hide();
-            }
-        } catch (DatabaseException e) {
-            LOGGER.error("Failed to fetch products for suggestion", e);
-            new Alert(Alert.AlertType.ERROR, "Error loading products: " + e.getMessage()).showAndWait();
-        }
-    }
-
     private void addLineItem() {
         try {
             String productText = productField.getText();
@@ -793,6 +759,33 @@ public class InvoicePane extends VBox {
         }
     }
 
+    private void importInvoices() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Invoices");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV / JSON Lines", "*.csv", "*.json", "*.jsonl", "*.ndjson"),
+            new FileChooser.ExtensionFilter("All Files", "*.*"));
+        File file = fileChooser.showOpenDialog(null);
+        if (file == null) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                InvoiceImporter.ImportResult result = new InvoiceImporter(dbService).importFile(file.toPath());
+                StringBuilder message = new StringBuilder(String.format("Imported %d invoices (%d line items) in %d ms, %.0f rows/sec",
+                    result.getInvoices(), result.getRows(), result.getElapsedMillis(), result.getRowsPerSecond()));
+                if (result.getRejected() > 0) {
+                    message.append("\n").append(result.getRejected()).append(" rejected:");
+                    result.getErrors().stream().limit(10).forEach(error -> message.append("\n").append(error));
+                }
+                Platform.runLater(() -> new Alert(result.getRejected() > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION,
+                    message.toString()).showAndWait());
+            } catch (Exception e) {
+                ErrorHandler.handleException(e, "Failed to import invoices (rerun to resume from the last checkpoint)", null);
+            }
+        }, FinancialManagementApp.backgroundExecutor);
+    }
+
     private void exportInvoice() {
         if (currentInvoiceId == null) {
             new Alert(Alert.AlertType.WARNING, "No invoice to export").showAndWait();
@@ -841,11 +834,10 @@ public class InvoicePane extends VBox {
         File file = fileChooser.showOpenDialog(null);
         if (file != null) {
             try {
-                byte[] fileData = Files.readAllBytes(file.toPath());
-                dbService.addAttachment(currentInvoiceId, file.getName(), fileData);
+                dbService.addAttachment(currentInvoiceId, file.getName(), file.toPath());
                 updateAttachmentButton();
                 new Alert(Alert.AlertType.INFORMATION, "Attachment added: " + file.getName()).showAndWait();
-            } catch (IOException | DatabaseException e) {
+            } catch (DatabaseException e) {
                 LOGGER.error("Failed to add attachment for invoice {}: {}", currentInvoiceId, e.getMessage());
                 new Alert(Alert.AlertType.ERROR, "Failed to add attachment: " + e.getMessage()).showAndWait();
             }
@@ -858,7 +850,7 @@ public class InvoicePane extends VBox {
             return;
         }
         try {
-            List<Attachment> attachments = dbService.getAttachmentsForInvoice(currentInvoiceId);
+            List<AttachmentDescriptor> attachments = dbService.getAttachmentsForInvoice(currentInvoiceId);
             if (attachments.isEmpty()) {
                 new Alert(Alert.AlertType.INFORMATION, "No attachments found for this invoice").showAndWait();
                 return;
@@ -868,22 +860,22 @@ public class InvoicePane extends VBox {
             dialog.setTitle("View Attachments");
             dialog.setHeaderText("Attachments for Invoice " + currentInvoiceId);
 
-            TableView<Attachment> attachmentTable = new TableView<>();
-            TableColumn<Attachment, Integer> idCol = new TableColumn<>("ID");
+            TableView<AttachmentDescriptor> attachmentTable = new TableView<>();
+            TableColumn<AttachmentDescriptor, Integer> idCol = new TableColumn<>("ID");
             idCol.setCellValueFactory(new PropertyValueFactory<>("id"));
-            TableColumn<Attachment, String> nameCol = new TableColumn<>("File Name");
+            TableColumn<AttachmentDescriptor, String> nameCol = new TableColumn<>("File Name");
             nameCol.setCellValueFactory(new PropertyValueFactory<>("fileName"));
-            TableColumn<Attachment, Long> sizeCol = new TableColumn<>("Size (bytes)");
+            TableColumn<AttachmentDescriptor, Long> sizeCol = new TableColumn<>("Size (bytes)");
             sizeCol.setCellValueFactory(new PropertyValueFactory<>("fileSize"));
-            TableColumn<Attachment, String> dateCol = new TableColumn<>("Upload Date");
+            TableColumn<AttachmentDescriptor, String> dateCol = new TableColumn<>("Upload Date");
             dateCol.setCellValueFactory(new PropertyValueFactory<>("uploadDate"));
-            attachmentTable.getColumns().addAll((TableColumn<Attachment, ?>[]) new TableColumn[] {idCol, nameCol, sizeCol, dateCol});
+            attachmentTable.getColumns().addAll((TableColumn<AttachmentDescriptor, ?>[]) new TableColumn[] {idCol, nameCol, sizeCol, dateCol});
             attachmentTable.getItems().addAll(attachments);
             attachmentTable.setPrefHeight(200);
 
             Button downloadButton = new Button("Download");
             downloadButton.setOnAction(e -> {
-                Attachment selected = attachmentTable.getSelectionModel().getSelectedItem();
+                AttachmentDescriptor selected = attachmentTable.getSelectionModel().getSelectedItem();
                 if (selected != null) {
                     downloadAttachment(selected.getId(), selected.getFileName());
                 } else {
@@ -893,7 +885,7 @@ public class InvoicePane extends VBox {
 
             Button editButton = new Button("Edit");
             editButton.setOnAction(e -> {
-                Attachment selected = attachmentTable.getSelectionModel().getSelectedItem();
+                AttachmentDescriptor selected = attachmentTable.getSelectionModel().getSelectedItem();
                 if (selected != null) {
                     editAttachment(selected.getId());
                 } else {
@@ -913,18 +905,18 @@ public class InvoicePane extends VBox {
 
     private void downloadAttachment(int attachmentId, String fileName) {
         try {
-            byte[] content = dbService.getAttachmentContent(attachmentId);
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Save Attachment");
             fileChooser.setInitialFileName(fileName);
             File file = fileChooser.showSaveDialog(null);
             if (file != null) {
-                try (FileOutputStream fos = new FileOutputStream(file)) {
-                    fos.write(content);
+                if (!dbService.copyAttachmentContent(attachmentId, file.toPath())) {
+                    new Alert(Alert.AlertType.WARNING, "Attachment content not found; nothing was saved").showAndWait();
+                    return;
                 }
                 new Alert(Alert.AlertType.INFORMATION, "Attachment saved to " + file.getAbsolutePath()).showAndWait();
             }
-        } catch (DatabaseException | IOException e) {
+        } catch (DatabaseException e) {
             new Alert(Alert.AlertType.ERROR, "Failed to download attachment: " + e.getMessage()).showAndWait();
         }
     }
@@ -0,0 +1,77 @@
+package com.example.financial;
+
+import java.time.LocalDate;
+
+/**
+ * Typed filter for DatabaseService.searchInvoices. Every field is optional; unset (null) fields are left out
+ * of the generated WHERE clause. Two criteria with the same set fields share one SQL shape.
+ */
+public class InvoiceSearchCriteria {
+    static final int INVOICE_ID = 1;
+    static final int STATUS = 1 << 1;
+    static final int INVOICE_TYPE = 1 << 2;
+    static final int CUSTOMER_ID = 1 << 3;
+    static final int SUPPLIER_ID = 1 << 4;
+    static final int FROM_DATE = 1 << 5;
+    static final int TO_DATE = 1 << 6;
+    static final int MIN_AMOUNT = 1 << 7;
+    static final int MAX_AMOUNT = 1 << 8;
+    static final int CURRENCY = 1 << 9;
+
+    private String invoiceId;
+    private String status;
+    private String invoiceType;
+    private Integer customerId;
+    private Integer supplierId;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private Double minAmount;
+    private Double maxAmount;
+    private String currency;
+
+    public String getInvoiceId() { return invoiceId; }
+    public String getStatus() { return status; }
+    public String getInvoiceType() { return invoiceType; }
+    public Integer getCustomerId() { return customerId; }
+    public Integer getSupplierId() { return supplierId; }
+    public LocalDate getFromDate() { return fromDate; }
+    public LocalDate getToDate() { return toDate; }
+    public Double getMinAmount() { return minAmount; }
+    public Double getMaxAmount() { return maxAmount; }
+    public String getCurrency() { return currency; }
+
+    public void setInvoiceId(String invoiceId) { this.invoiceId = invoiceId; }
+    public void setStatus(String status) { this.status = status; }
+    public void setInvoiceType(String invoiceType) { this.invoiceType = invoiceType; }
+    public void setCustomerId(Integer customerId) { this.customerId = customerId; }
+    public void setSupplierId(Integer supplierId) { this.supplierId = supplierId; }
+    public void setFromDate(LocalDate fromDate) { this.fromDate = fromDate; }
+    public void setToDate(LocalDate toDate) { this.toDate = toDate; }
+    public void setMinAmount(Double minAmount) { this.minAmount = minAmount; }
+    public void setMaxAmount(Double maxAmount) { this.maxAmount = maxAmount; }
+    public void setCurrency(String currency) { this.currency = currency; }
+
+    // Bit set of the populated fields, used as the cache key for the generated SQL
+    int shape() {
+        int shape = 0;
+        if (invoiceId != null) shape |= INVOICE_ID;
+        if (status != null) shape |= STATUS;
+        if (invoiceType != null) shape |= INVOICE_TYPE;
+        if (customerId != null) shape |= CUSTOMER_ID;
+        if (supplierId != null) shape |= SUPPLIER_ID;
+        if (fromDate != null) shape |= FROM_DATE;
+        if (toDate != null) shape |= TO_DATE;
+        if (minAmount != null) shape |= MIN_AMOUNT;
+        if (maxAmount != null) shape |= MAX_AMOUNT;
+        if (currency != null) shape |= CURRENCY;
+        return shape;
+    }
+
+    @Override
+    public String toString() {
+        return "InvoiceSearchCriteria{invoiceId=" + invoiceId + ", status=" + status + ", invoiceType=" + invoiceType +
+               ", customerId=" + customerId + ", supplierId=" + supplierId + ", fromDate=" + fromDate +
+               ", toDate=" + toDate + ", minAmount=" + minAmount + ", maxAmount=" + maxAmount +
+               ", currency=" + currency + "}";
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.financial;
+
+/**
+ * One invoice or payment in a contact's ledger. runningBalance is the contact's balance after this entry,
+ * counted in date order with the same rules as the balance figure: unpaid invoices add their total,
+ * payments subtract their amount.
+ */
+public class LedgerEntry {
+    private final String id;
+    private final String type;
+    private final String date;
+    private final double amount;
+    private final String currency;
+    private final String status;
+    private final double runningBalance;
+    private final String sortKey;
+
+    public LedgerEntry(String id, String type, String date, double amount, String currency, String status,
+                       double runningBalance, String sortKey) {
+        this.id = id;
+        this.type = type;
+        this.date = date;
+        this.amount = amount;
+        this.currency = currency;
+        this.status = status;
+        this.runningBalance = runningBalance;
+        this.sortKey = sortKey;
+    }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public String getDate() { return date; }
+    public double getAmount() { return amount; }
+    public String getCurrency() { return currency; }
+    public String getStatus() { return status; }
+    public double getRunningBalance() { return runningBalance; }
+    // Tie-breaker within a date; together with the date it is the keyset cursor
+    public String getSortKey() { return sortKey; }
+    public boolean isPayment() { return "Payment".equals(type); }
+}
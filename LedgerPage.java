@@ -0,0 +1,33 @@
+package com.example.financial;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One page of a contact's ledger, newest entry first.
+ * The last entry's date and sort key are the keyset cursor for the next page, and balanceBefore is the running
+ * balance the next page starts from; pass the page back to DatabaseService to fetch the one after it.
+ */
+public class LedgerPage {
+    private final List<LedgerEntry> entries;
+    private final String lastDate;
+    private final String lastSortKey;
+    private final BigDecimal balanceBefore;
+    private final boolean hasMore;
+
+    public LedgerPage(List<LedgerEntry> entries, String lastDate, String lastSortKey, BigDecimal balanceBefore,
+                      boolean hasMore) {
+        this.entries = entries;
+        this.lastDate = lastDate;
+        this.lastSortKey = lastSortKey;
+        this.balanceBefore = balanceBefore;
+        this.hasMore = hasMore;
+    }
+
+    public List<LedgerEntry> getEntries() { return entries; }
+    public String getLastDate() { return lastDate; }
+    public String getLastSortKey() { return lastSortKey; }
+    // Contact's balance before the last entry on this page, i.e. the running balance of the entry after it
+    public BigDecimal getBalanceBefore() { return balanceBefore; }
+    public boolean hasMore() { return hasMore; }
+}
@@ -0,0 +1,208 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Customer, supplier and product names held in memory for autocomplete, as "id - name" entries like
+ * getCustomersWithNames() returns.
+ *
+ * Each kind is loaded with one query on first use and replaced wholesale when invalidated (DatabaseService
+ * does that after adding a contact). Queries of three or more characters match anywhere in the entry through
+ * a trigram index; shorter ones match the start of a word. Matches at the start of the name rank first, then
+ * matches at the start of any word, then the rest; ties go to the shorter name.
+ */
+public class LookupDirectory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LookupDirectory.class);
+
+    public enum Kind {
+        CUSTOMER("SELECT id, name FROM Customers"),
+        SUPPLIER("SELECT id, name FROM Suppliers"),
+        PRODUCT("SELECT id, name FROM Products");
+
+        private final String sql;
+
+        Kind(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final Map<Kind, Index> indexes = new ConcurrentHashMap<>();
+    // Bumped by invalidate(); a load that started under an older generation does not install its snapshot
+    private final Map<Kind, AtomicLong> generations = new EnumMap<>(Kind.class);
+
+    public LookupDirectory() {
+        for (Kind kind : Kind.values()) {
+            generations.put(kind, new AtomicLong());
+        }
+    }
+
+    public List<String> suggest(DataSource dataSource, Kind kind, String query, int limit) throws SQLException {
+        if (query == null || query.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return index(dataSource, kind).suggest(query.trim().toLowerCase(Locale.ROOT), limit);
+    }
+
+    public void invalidate(Kind kind) {
+        generations.get(kind).incrementAndGet();
+        indexes.remove(kind);
+    }
+
+    private Index index(DataSource dataSource, Kind kind) throws SQLException {
+        Index index = indexes.get(kind);
+        if (index != null && index.dataSource == dataSource) {
+            return index;
+        }
+        long generation = generations.get(kind).get();
+        long start = System.nanoTime();
+        List<String> entries = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(kind.sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String name = rs.getString("name") == null ? "" : rs.getString("name");
+                entries.add(rs.getInt("id") + " - " + name);
+                names.add(name);
+            }
+        }
+        Index loaded = new Index(dataSource, entries, names);
+        // Installed only if no invalidate() ran since the query started, replacing a snapshot of another
+        // DataSource; otherwise this result still serves the current caller but is not kept
+        indexes.compute(kind, (k, current) ->
+            generations.get(kind).get() == generation && (current == null || current.dataSource != dataSource)
+                ? loaded : current);
+        LOGGER.debug("Loaded {} {} entries into the lookup directory in {} ms", entries.size(), kind,
+            (System.nanoTime() - start) / 1_000_000);
+        return loaded;
+    }
+
+    // Immutable snapshot of one kind; replaced, never modified
+    private static final class Index {
+        private static final int[] NONE = new int[0];
+
+        private final DataSource dataSource;
+        private final String[] entries;
+        private final String[] lowerEntries;
+        private final String[] lowerNames;
+        private final Map<String, int[]> trigrams = new HashMap<>();
+        private final TreeMap<String, int[]> words = new TreeMap<>();
+
+        Index(DataSource dataSource, List<String> entries, List<String> names) {
+            this.dataSource = dataSource;
+            this.entries = entries.toArray(new String[0]);
+            this.lowerEntries = new String[this.entries.length];
+            this.lowerNames = new String[this.entries.length];
+            Map<String, List<Integer>> trigramLists = new HashMap<>();
+            Map<String, List<Integer>> wordLists = new HashMap<>();
+            for (int i = 0; i < this.entries.length; i++) {
+                lowerEntries[i] = this.entries[i].toLowerCase(Locale.ROOT);
+                lowerNames[i] = names.get(i).toLowerCase(Locale.ROOT);
+                String entry = lowerEntries[i];
+                for (int j = 0; j + 3 <= entry.length(); j++) {
+                    List<Integer> list = trigramLists.computeIfAbsent(entry.substring(j, j + 3), t -> new ArrayList<>());
+                    if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                        list.add(i);
+                    }
+                }
+                for (String word : entry.split("[^\\p{L}\\p{N}]+")) {
+                    if (!word.isEmpty()) {
+                        List<Integer> list = wordLists.computeIfAbsent(word, w -> new ArrayList<>());
+                        if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                            list.add(i);
+                        }
+                    }
+                }
+            }
+            trigramLists.forEach((trigram, list) -> trigrams.put(trigram, toArray(list)));
+            wordLists.forEach((word, list) -> words.put(word, toArray(list)));
+        }
+
+        List<String> suggest(String query, int limit) {
+            int[] candidates;
+            if (query.length() >= 3) {
+                // Every match contains all of the query's trigrams, so the rarest one bounds the candidates
+                candidates = null;
+                for (int j = 0; j + 3 <= query.length(); j++) {
+                    int[] list = trigrams.getOrDefault(query.substring(j, j + 3), NONE);
+                    if (candidates == null || list.length < candidates.length) {
+                        candidates = list;
+                    }
+                }
+            } else {
+                candidates = wordPrefixMatches(query);
+            }
+
+            List<int[]> ranked = new ArrayList<>();
+            for (int i : candidates) {
+                if (lowerEntries[i].contains(query)) {
+                    ranked.add(new int[] {i, rank(i, query)});
+                }
+            }
+            ranked.sort((a, b) -> {
+                if (a[1] != b[1]) {
+                    return Integer.compare(a[1], b[1]);
+                }
+                int byLength = Integer.compare(lowerNames[a[0]].length(), lowerNames[b[0]].length());
+                return byLength != 0 ? byLength : lowerEntries[a[0]].compareTo(lowerEntries[b[0]]);
+            });
+            List<String> results = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int k = 0; k < ranked.size() && k < limit; k++) {
+                results.add(entries[ranked.get(k)[0]]);
+            }
+            return results;
+        }
+
+        private int[] wordPrefixMatches(String prefix) {
+            boolean[] seen = new boolean[entries.length];
+            int count = 0;
+            for (int[] list : words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (int i : list) {
+                    if (!seen[i]) {
+                        seen[i] = true;
+                        count++;
+                    }
+                }
+            }
+            int[] matches = new int[count];
+            for (int i = 0, k = 0; k < count; i++) {
+                if (seen[i]) {
+                    matches[k++] = i;
+                }
+            }
+            return matches;
+        }
+
+        private int rank(int i, String query) {
+            if (lowerNames[i].startsWith(query) || lowerEntries[i].startsWith(query)) {
+                return 0;
+            }
+            int at = lowerEntries[i].indexOf(query);
+            return at > 0 && !Character.isLetterOrDigit(lowerEntries[i].charAt(at - 1)) ? 1 : 2;
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            Arrays.setAll(array, list::get);
+            return array;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.financial;
+
+import com.sun.net.httpserver.HttpServer;
+import com.zaxxer.hikari.HikariConfig;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import javafx.application.Platform;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Opt-in runtime metrics, off unless the JVM is started with -Dmetrics.enabled=true. When off, every entry point
+ * returns after one static boolean check: InstrumentedDataSource records no meters, Hikari gets no registry and
+ * no threads are started.
+ *
+ * When on, meters go to a JMX registry and a Prometheus registry at once:
+ * <ul>
+ *   <li>db.call - timer per DatabaseService method, from asking for a connection until closing it</li>
+ *   <li>db.rows - rows read through ResultSet.next() per method</li>
+ *   <li>db.fx.blocking - the share of db.call spent on the JavaFX application thread</li>
+ *   <li>fx.event.lag - how long a Platform.runLater posted every metrics.fxProbeMillis waits to run</li>
+ *   <li>db.executor.queued / db.executor.running - DbTaskExecutor queue depth and admitted tasks</li>
+ *   <li>hikaricp.* - HikariCP's own meters; hikaricp.connections.acquire is the connection wait</li>
+ * </ul>
+ * The Prometheus text is served on 127.0.0.1:metrics.prometheus.port/metrics when that port is set and written to
+ * metrics.dumpFile every metrics.dumpSeconds when that path is set. DiagnosticsPane shows the same numbers in-app.
+ */
+public final class Metrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Metrics.class);
+    private static final boolean ENABLED = Boolean.getBoolean("metrics.enabled");
+    private static final int PROMETHEUS_PORT = Integer.getInteger("metrics.prometheus.port", 0);
+    private static final String DUMP_FILE = System.getProperty("metrics.dumpFile", "");
+    private static final int DUMP_SECONDS = Integer.getInteger("metrics.dumpSeconds", 60);
+    private static final int FX_PROBE_MILLIS = Integer.getInteger("metrics.fxProbeMillis", 1000);
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private static ScheduledExecutorService scheduler;
+    private static HttpServer httpServer;
+
+    private Metrics() {
+    }
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** Must be called before the pool is built; Hikari binds its meters when the pool starts. */
+    public static void bindPool(HikariConfig config) {
+        if (ENABLED) {
+            config.setMetricRegistry(Registries.COMPOSITE);
+        }
+    }
+
+    public static synchronized void start(DbTaskExecutor tasks) {
+        if (!ENABLED || scheduler != null) {
+            return;
+        }
+        MeterRegistry registry = Registries.COMPOSITE;
+        Gauge.builder("db.executor.queued", tasks, DbTaskExecutor::interactiveQueued).tag("class", "interactive").register(registry);
+        Gauge.builder("db.executor.queued", tasks, DbTaskExecutor::backgroundQueued).tag("class", "background").register(registry);
+        Gauge.builder("db.executor.running", tasks, DbTaskExecutor::running).register(registry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startFxProbe();
+        if (!DUMP_FILE.isEmpty()) {
+            Path target = Paths.get(DUMP_FILE);
+            scheduler.scheduleWithFixedDelay(() -> dump(target), DUMP_SECONDS, DUMP_SECONDS, TimeUnit.SECONDS);
+        }
+        if (PROMETHEUS_PORT > 0) {
+            startHttpServer();
+        }
+        LOGGER.info("Metrics enabled (prometheus port {}, dump file '{}')", PROMETHEUS_PORT, DUMP_FILE);
+    }
+
+    public static synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (!DUMP_FILE.isEmpty()) {
+            dump(Paths.get(DUMP_FILE));
+        }
+    }
+
+    // Posts a no-op to the FX thread and times how long it waits; anything holding that thread shows up here
+    private static void startFxProbe() {
+        Timer lag = Timer.builder("fx.event.lag").publishPercentiles(PERCENTILES).register(Registries.COMPOSITE);
+        AtomicBoolean pending = new AtomicBoolean();
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!pending.compareAndSet(false, true)) {
+                return; // the previous probe has not run yet; don't pile more onto a blocked thread
+            }
+            long posted = System.nanoTime();
+            try {
+                Platform.runLater(() -> {
+                    lag.record(System.nanoTime() - posted, TimeUnit.NANOSECONDS);
+                    pending.set(false);
+                });
+            } catch (IllegalStateException e) {
+                pending.set(false); // toolkit not running (yet)
+            }
+        }, FX_PROBE_MILLIS, FX_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void startHttpServer() {
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), PROMETHEUS_PORT), 0);
+            httpServer.createContext("/metrics", exchange -> {
+                byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            httpServer.start();
+        } catch (IOException e) {
+            LOGGER.error("Could not start the metrics endpoint on port {}", PROMETHEUS_PORT, e);
+            httpServer = null;
+        }
+    }
+
+    // Written next to the target and moved over it, so a reader never sees a half-written file
+    private static void dump(Path target) {
+        try {
+            Path absolute = target.toAbsolutePath();
+            Path temp = Files.createTempFile(absolute.getParent(), "metrics", ".tmp");
+            Files.write(temp, scrape().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write metrics to {}", target, e);
+        }
+    }
+
+    /** Prometheus text format of everything registered so far; empty when metrics are off. */
+    public static String scrape() {
+        return ENABLED ? Registries.PROMETHEUS.scrape() : "";
+    }
+
+    /** One row per DatabaseService method seen so far, slowest total first. */
+    public static List<MethodStats> methodStats() {
+        List<MethodStats> stats = new ArrayList<>();
+        if (!ENABLED) {
+            return stats;
+        }
+        for (Timer timer : Registries.PROMETHEUS.find("db.call").timers()) {
+            String method = timer.getId().getTag("method");
+            DistributionSummary rows = Registries.PROMETHEUS.find("db.rows").tag("method", method).summary();
+            Timer fx = Registries.PROMETHEUS.find("db.fx.blocking").tag("method", method).timer();
+            stats.add(new MethodStats(method, timer.count(), timer.totalTime(TimeUnit.MILLISECONDS),
+                timer.mean(TimeUnit.MILLISECONDS), percentile(timer.takeSnapshot(), 0.95),
+                timer.max(TimeUnit.MILLISECONDS), rows == null ? 0 : rows.mean(),
+                fx == null ? 0 : fx.totalTime(TimeUnit.MILLISECONDS)));
+        }
+        stats.sort(Comparator.comparingDouble(MethodStats::getTotalMillis).reversed());
+        return stats;
+    }
+
+    /** Pool, executor and FX-thread figures for the diagnostics tab, label to formatted value. */
+    public static Map<String, String> overview() {
+        Map<String, String> overview = new LinkedHashMap<>();
+        if (!ENABLED) {
+            return overview;
+        }
+        MeterRegistry registry = Registries.PROMETHEUS;
+        Timer acquire = registry.find("hikaricp.connections.acquire").timer();
+        overview.put("Connection wait (mean / max ms)", acquire == null ? "-"
+            : String.format("%.2f / %.2f", acquire.mean(TimeUnit.MILLISECONDS), acquire.max(TimeUnit.MILLISECONDS)));
+        Gauge pending = registry.find("hikaricp.connections.pending").gauge();
+        overview.put("Threads waiting for a connection", pending == null ? "-" : String.format("%.0f", pending.value()));
+        Timer lag = registry.find("fx.event.lag").timer();
+        overview.put("FX event lag (p95 / max ms)", lag == null ? "-"
+            : String.format("%.2f / %.2f", percentile(lag.takeSnapshot(), 0.95), lag.max(TimeUnit.MILLISECONDS)));
+        double fxBlocking = registry.find("db.fx.blocking").timers().stream()
+            .mapToDouble(timer -> timer.totalTime(TimeUnit.MILLISECONDS)).sum();
+        overview.put("Database time on FX thread (ms)", String.format("%.1f", fxBlocking));
+        overview.put("Queued interactive tasks", gauge(registry, "db.executor.queued", "interactive"));
+        overview.put("Queued background tasks", gauge(registry, "db.executor.queued", "background"));
+        overview.put("Running database tasks", gauge(registry, "db.executor.running", null));
+        return overview;
+    }
+
+    private static String gauge(MeterRegistry registry, String name, String taskClass) {
+        Gauge gauge = taskClass == null ? registry.find(name).gauge() : registry.find(name).tag("class", taskClass).gauge();
+        return gauge == null ? "-" : String.format("%.0f", gauge.value());
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    // Meters for one DatabaseService method, cached so a connection lease does no registry lookups
+    static final class MethodMeters {
+        private static final Map<String, MethodMeters> BY_METHOD = new ConcurrentHashMap<>();
+
+        final Timer calls;
+        final DistributionSummary rows;
+        final Timer fxBlocking;
+
+        private MethodMeters(String method) {
+            MeterRegistry registry = Registries.COMPOSITE;
+            calls = Timer.builder("db.call").tag("method", method)
+                .publishPercentiles(PERCENTILES).publishPercentileHistogram().register(registry);
+            rows = DistributionSummary.builder("db.rows").tag("method", method).register(registry);
+            fxBlocking = Timer.builder("db.fx.blocking").tag("method", method).register(registry);
+        }
+
+        static MethodMeters of(String method) {
+            return BY_METHOD.computeIfAbsent(method, MethodMeters::new);
+        }
+    }
+
+    // Built on first use, which only happens when metrics are enabled
+    private static final class Registries {
+        static final PrometheusMeterRegistry PROMETHEUS = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        static final CompositeMeterRegistry COMPOSITE = new CompositeMeterRegistry();
+
+        static {
+            COMPOSITE.add(new JmxMeterRegistry(JmxConfig.DEFAULT, Clock.SYSTEM));
+            COMPOSITE.add(PROMETHEUS);
+        }
+    }
+
+    public static class MethodStats {
+        private final String method;
+        private final long calls;
+        private final double totalMillis;
+        private final double meanMillis;
+        private final double p95Millis;
+        private final double maxMillis;
+        private final double meanRows;
+        private final double fxMillis;
+
+        public MethodStats(String method, long calls, double totalMillis, double meanMillis, double p95Millis,
+                           double maxMillis, double meanRows, double fxMillis) {
+            this.method = method;
+            this.calls = calls;
+            this.totalMillis = totalMillis;
+            this.meanMillis = meanMillis;
+            this.p95Millis = p95Millis;
+            this.maxMillis = maxMillis;
+            this.meanRows = meanRows;
+            this.fxMillis = fxMillis;
+        }
+
+        public String getMethod() { return method; }
+        public long getCalls() { return calls; }
+        public double getTotalMillis() { return totalMillis; }
+        public double getMeanMillis() { return meanMillis; }
+        public double getP95Millis() { return p95Millis; }
+        public double getMaxMillis() { return maxMillis; }
+        public double getMeanRows() { return meanRows; }
+        public double getFxMillis() { return fxMillis; }
+    }
+}
@@ -2,18 +2,30 @@ package com.example.financial;
 
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.ResourceBundle;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class ReportPane extends VBox {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReportPane.class);
+    private static final String ALL_SECTIONS = "All Sections";
+    // Sections of one report that may hold a connection at the same time
+    private static final int SECTION_PARALLELISM = Integer.getInteger("report.parallelism", 4);
+
     private final ResourceBundle messages;
     private final DatabaseService dbService;
     private final AuditService auditService;
     private ComboBox<String> reportTypeCombo;
     private DatePicker startDatePicker, endDatePicker;
     private TextArea reportArea;
+    private int reportRun; // Only touched on the FX thread; results of an older run are dropped
 
     public ReportPane(ResourceBundle messages, DatabaseService dbService, AuditService auditService) {
         this.messages = messages;
@@ -30,7 +42,7 @@ public class ReportPane extends VBox {
         controls.setPadding(new javafx.geometry.Insets(10));
 
         reportTypeCombo = new ComboBox<>();
-        reportTypeCombo.getItems().addAll("Financial Summary", "Cash Flow", "Balance Sheet", "Profit & Loss", "Aging Report",
+        reportTypeCombo.getItems().addAll(ALL_SECTIONS, "Financial Summary", "Cash Flow", "Balance Sheet", "Profit & Loss", "Aging Report",
             "Sales by Customer", "Sales by Product", "Tax Report", "Cash Flow Projection", "Budget vs Actual", "Cash Flow Forecast");
         reportTypeCombo.setValue("Financial Summary");
         controls.getChildren().add(new Label(messages.getString("reportType")));
@@ -59,77 +71,147 @@ public class ReportPane extends VBox {
     }
 
     private void generateReport() {
-        CompletableFuture.runAsync(() -> {
-            try {
-                String reportType = reportTypeCombo.getValue();
-                if (startDatePicker.getValue() == null || endDatePicker.getValue() == null) {
-                    javafx.application.Platform.runLater(() -> 
-                        new Alert(Alert.AlertType.ERROR, "Please select start and end dates").showAndWait());
-                    return;
-                }
-                String startDate = startDatePicker.getValue().toString();
-                String endDate = endDatePicker.getValue().toString();
-                StringBuilder report = new StringBuilder(reportType + " Report (" + startDate + " to " + endDate + ")\n");
-                report.append("------------------------------------------------\n");
-
-                switch (reportType) {
-                    case "Financial Summary":
-                        Map<String, Double> financialSummary = dbService.generateCompanyFinancialSummary(startDate, endDate);
-                        financialSummary.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Cash Flow":
-                        Map<String, Double> cashFlow = dbService.generateCashFlowStatement(startDate, endDate);
-                        cashFlow.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Balance Sheet":
-                        Map<String, Double> balanceSheet = dbService.generateBalanceSheet(startDate, endDate);
-                        balanceSheet.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Profit & Loss":
-                        Map<String, Double> profitLoss = dbService.generateProfitLossStatement(startDate, endDate);
-                        profitLoss.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Aging Report":
-                        List<Object[]> aging = dbService.getAgingAnalysis();
-                        report.append("Invoice ID | Customer | Amount | Days Overdue\n");
-                        for (Object[] row : aging) {
-                            report.append(row[0]).append(" | ").append(row[1]).append(" | ")
-                                  .append(String.format("%.2f", (Double) row[2])).append(" | ").append(row[3]).append("\n");
+        String reportType = reportTypeCombo.getValue();
+        if (startDatePicker.getValue() == null || endDatePicker.getValue() == null) {
+            new Alert(Alert.AlertType.ERROR, "Please select start and end dates").showAndWait();
+            return;
+        }
+        String startDate = startDatePicker.getValue().toString();
+        String endDate = endDatePicker.getValue().toString();
+        List<Section> sections = new ArrayList<>();
+        for (String name : reportTypeCombo.getItems()) {
+            if (!ALL_SECTIONS.equals(name) && (ALL_SECTIONS.equals(reportType) || name.equals(reportType))) {
+                sections.add(new Section(name));
+            }
+        }
+        int run = ++reportRun;
+        String header = reportType + " Report (" + startDate + " to " + endDate + ")\n" +
+                        "------------------------------------------------\n";
+        render(header, sections);
+
+        // A few lanes work through the queue, so one report never holds more than SECTION_PARALLELISM connections
+        Queue<Section> pending = new ConcurrentLinkedQueue<>(sections);
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(SECTION_PARALLELISM, sections.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = CompletableFuture.runAsync(() -> {
+                Section section;
+                while ((section = pending.poll()) != null) {
+                    section.run(startDate, endDate);
+                    javafx.application.Platform.runLater(() -> {
+                        if (run == reportRun) {
+                            render(header, sections);
                         }
-                        break;
-                    case "Sales by Customer":
-                        Map<String, Double> salesByCustomer = dbService.getSalesByCustomer(startDate, endDate);
-                        salesByCustomer.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Sales by Product":
-                        Map<String, Double> salesByProduct = dbService.getSalesByProduct(startDate, endDate);
-                        salesByProduct.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Tax Report":
-                        Map<String, Double> taxReport = dbService.getTaxReport(startDate, endDate);
-                        taxReport.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Cash Flow Projection":
-                        Map<String, Double> projection = dbService.getCashFlowProjection(startDate, endDate);
-                        projection.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Budget vs Actual":
-                        Map<String, Double> budgetVsActual = dbService.getBudgetVsActual(startDate, endDate);
-                        budgetVsActual.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    case "Cash Flow Forecast":
-                        Map<String, Double> forecast = dbService.getCashFlowForecast(startDate, endDate, 7);
-                        forecast.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
-                        break;
-                    default:
-                        report.append("Unknown report type\n");
+                    });
                 }
-
-                javafx.application.Platform.runLater(() -> reportArea.setText(report.toString()));
+            }, FinancialManagementApp.backgroundExecutor);
+        }
+        CompletableFuture.allOf(lanes).thenRun(() -> {
+            // Failed sections already say so inline; one alert per run, not one per section
+            long failed = sections.stream().filter(section -> section.failed).count();
+            if (failed > 0) {
+                javafx.application.Platform.runLater(() -> {
+                    if (run == reportRun) {
+                        new Alert(Alert.AlertType.ERROR, failed + " of " + sections.size()
+                            + " report section(s) failed; see the report for details").showAndWait();
+                    }
+                });
+            }
+            try {
                 auditService.logAction("user", "reports", null, "Generated " + reportType + " report", null, null);
             } catch (Exception e) {
-                ErrorHandler.handleException(e, "Failed to generate report", null);
+                ErrorHandler.handleException(e, "Failed to log report generation", null);
+            }
+        });
+    }
+
+    // Finished sections show their result and timing; the rest show as still loading
+    private void render(String header, List<Section> sections) {
+        StringBuilder report = new StringBuilder(header);
+        for (Section section : sections) {
+            report.append('\n').append(section.title());
+            report.append(section.body != null ? section.body : "Loading...\n");
+        }
+        reportArea.setText(report.toString());
+    }
+
+    private String sectionBody(String name, String startDate, String endDate) throws Exception {
+        StringBuilder report = new StringBuilder();
+        switch (name) {
+            case "Financial Summary":
+                appendAmounts(report, dbService.generateCompanyFinancialSummary(startDate, endDate));
+                break;
+            case "Cash Flow":
+                appendAmounts(report, dbService.generateCashFlowStatement(startDate, endDate));
+                break;
+            case "Balance Sheet":
+                appendAmounts(report, dbService.generateBalanceSheet(startDate, endDate));
+                break;
+            case "Profit & Loss":
+                appendAmounts(report, dbService.generateProfitLossStatement(startDate, endDate));
+                break;
+            case "Aging Report":
+                List<Object[]> aging = dbService.getAgingAnalysis();
+                report.append("Invoice ID | Customer | Amount | Days Overdue\n");
+                for (Object[] row : aging) {
+                    report.append(row[0]).append(" | ").append(row[1]).append(" | ")
+                          .append(String.format("%.2f", (Double) row[2])).append(" | ").append(row[3]).append("\n");
+                }
+                break;
+            case "Sales by Customer":
+                appendAmounts(report, dbService.getSalesByCustomer(startDate, endDate));
+                break;
+            case "Sales by Product":
+                appendAmounts(report, dbService.getSalesByProduct(startDate, endDate));
+                break;
+            case "Tax Report":
+                appendAmounts(report, dbService.getTaxReport(startDate, endDate));
+                break;
+            case "Cash Flow Projection":
+                appendAmounts(report, dbService.getCashFlowProjection(startDate, endDate));
+                break;
+            case "Budget vs Actual":
+                appendAmounts(report, dbService.getBudgetVsActual(startDate, endDate));
+                break;
+            case "Cash Flow Forecast":
+                appendAmounts(report, dbService.getCashFlowForecast(startDate, endDate, 7));
+                break;
+            default:
+                report.append("Unknown report type\n");
+        }
+        return report.toString();
+    }
+
+    private static void appendAmounts(StringBuilder report, Map<String, Double> amounts) {
+        amounts.forEach((k, v) -> report.append(k).append(": ").append(String.format("%.2f", v)).append(" USD\n"));
+    }
+
+    // One report section; body and elapsedMillis are written by a lane and read on the FX thread
+    private final class Section {
+        private final String name;
+        private volatile String body;
+        private volatile long elapsedMillis;
+        private volatile boolean failed;
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        void run(String startDate, String endDate) {
+            long start = System.nanoTime();
+            String result;
+            try {
+                result = sectionBody(name, startDate, endDate);
+            } catch (Exception e) {
+                LOGGER.error("Failed to generate {} section", name, e);
+                failed = true;
+                result = "Failed: " + e.getMessage() + "\n";
             }
-        }, FinancialManagementApp.executor);
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            body = result;
+        }
+
+        String title() {
+            return body == null ? "== " + name + " ==\n" : "== " + name + " (" + elapsedMillis + " ms) ==\n";
+        }
     }
 }
\ No newline at end of file
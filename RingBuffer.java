@@ -0,0 +1,86 @@
+package com.example.financial;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer. Each slot carries a sequence number: a producer
+ * claims the slot whose sequence equals the tail position with one CAS, stores the item and publishes it by
+ * advancing the sequence; the consumer takes it once the sequence says it is published and hands the slot back
+ * a lap later. offer() never blocks and returns false when the buffer is full.
+ *
+ * Only one thread may call poll()/drainTo(); offer() and size() may be called from any thread.
+ */
+final class RingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    RingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1; // next power of two, so a slot is position & mask
+        mask = size - 1;
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(E item) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long lag = sequences.get(slot) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.lazySet(slot, item);
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                return false; // the consumer has not freed this slot from the previous lap
+            } else {
+                position = tail.get(); // another producer took it; retry at the new tail
+            }
+        }
+    }
+
+    E poll() {
+        long position = head.get();
+        int slot = (int) (position & mask);
+        if (sequences.get(slot) != position + 1) {
+            return null; // empty, or claimed but not yet published
+        }
+        E item = items.get(slot);
+        items.lazySet(slot, null);
+        sequences.set(slot, position + mask + 1);
+        head.set(position + 1);
+        return item;
+    }
+
+    int drainTo(List<E> target, int max) {
+        int drained = 0;
+        E item;
+        while (drained < max && (item = poll()) != null) {
+            target.add(item);
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.financial;
+
+import com.example.financial.SchemaMigrator.Index;
+
+import java.util.List;
+
+import static com.example.financial.SchemaMigrator.indexes;
+import static com.example.financial.SchemaMigrator.code;
+import static com.example.financial.SchemaMigrator.sql;
+
+/**
+ * Every schema change made after the baseline schema.sql, in version order. Append new migrations with the
+ * next version number; never edit or renumber one that has shipped, since SchemaMigrator checks the recorded
+ * checksum of every applied migration at startup.
+ */
+public final class SchemaMigrations {
+    private SchemaMigrations() {
+    }
+
+    public static List<SchemaMigrator.Migration> all() {
+        return List.of(
+            code(1, "typed date and amount columns", TypedColumnMigration.checksumSource(), new TypedColumnMigration()),
+            indexes(2, "date range and overdue indexes",
+                new Index("idx_invoices_type_date", "Invoices", "invoiceType, date"),
+                new Index("idx_invoices_status_date", "Invoices", "status, date"),
+                new Index("idx_invoices_customer_status", "Invoices", "customerId, status"),
+                new Index("idx_payments_date", "Payments", "date"),
+                new Index("idx_expenses_category_date", "Expenses", "category, date")),
+            code(3, "audit entries into AuditLogs", AuditLogMigration.checksumSource(), new AuditLogMigration()),
+            sql(4, "import checkpoints",
+                "CREATE TABLE IF NOT EXISTS ImportCheckpoints (source CHAR(64) PRIMARY KEY, lastLine BIGINT NOT NULL)"),
+            code(5, "daily rollups", DailyRollupMigration.checksumSource(), new DailyRollupMigration()),
+            sql(6, "invoice number sequences",
+                "CREATE TABLE IF NOT EXISTS InvoiceSequences (prefix VARCHAR(16) PRIMARY KEY, nextValue BIGINT NOT NULL)"),
+            code(7, "attachment blob store", AttachmentBlobMigration.checksumSource(), new AttachmentBlobMigration()),
+            indexes(8, "rollup and invoice date indexes",
+                new Index("idx_daily_invoice_rollup", "DailyInvoiceRollup", "day, invoiceType"),
+                new Index("idx_daily_product_rollup", "DailyProductRollup", "day, invoiceType"),
+                new Index("idx_invoices_date", "Invoices", "date"))
+        );
+    }
+}
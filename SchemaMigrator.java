@@ -0,0 +1,303 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Applies the versioned schema changes in SchemaMigrations on top of the baseline schema.sql and records each
+ * one in SchemaHistory with its checksum and how long it took.
+ *
+ * migrate() runs at startup and applies pending foreground migrations in version order; it refuses to run if
+ * an applied migration's checksum no longer matches its definition, since the database would then not be in
+ * the state the code expects. Background migrations only build indexes, which nothing depends on for
+ * correctness, so migrateBackground() builds them after the UI is up: CONCURRENTLY on PostgreSQL, as an
+ * in-place, lock-free ALTER on MySQL, and as a plain CREATE INDEX on H2, which has no online variant.
+ */
+public class SchemaMigrator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    public enum Engine { H2, MYSQL, POSTGRESQL, OTHER }
+
+    // One unit of a Java-coded migration; runs with auto-commit on, like a script
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection conn, Engine engine) throws SQLException;
+    }
+
+    public static final class Migration {
+        private final int version;
+        private final String description;
+        private final boolean background;
+        private final String checksum;
+        private final Step step;
+
+        private Migration(int version, String description, boolean background, String checksumSource, Step step) {
+            this.version = version;
+            this.description = description;
+            this.background = background;
+            this.checksum = sha256(checksumSource);
+            this.step = step;
+        }
+
+        public int getVersion() { return version; }
+        public String getDescription() { return description; }
+        public boolean isBackground() { return background; }
+        public String getChecksum() { return checksum; }
+    }
+
+    public static final class Index {
+        private final String name;
+        private final String table;
+        private final String columns;
+
+        public Index(String name, String table, String columns) {
+            this.name = name;
+            this.table = table;
+            this.columns = columns;
+        }
+
+        @Override
+        public String toString() {
+            return name + " ON " + table + " (" + columns + ")";
+        }
+    }
+
+    // Plain DDL/DML statements, run in order
+    public static Migration sql(int version, String description, String... statements) {
+        String source = String.join(";\n", statements);
+        return new Migration(version, description, false, source, (conn, engine) -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String statement : statements) {
+                    stmt.execute(statement);
+                }
+            }
+        });
+    }
+
+    // Code that has to inspect the database first; checksumSource stands in for the script text
+    public static Migration code(int version, String description, String checksumSource, Step step) {
+        return new Migration(version, description, false, checksumSource, step);
+    }
+
+    // Index builds, deferred to migrateBackground() and done online where the engine supports it
+    public static Migration indexes(int version, String description, Index... indexes) {
+        List<String> source = new ArrayList<>();
+        for (Index index : indexes) {
+            source.add(index.toString());
+        }
+        return new Migration(version, description, true, String.join(";\n", source), (conn, engine) -> {
+            for (Index index : indexes) {
+                createIndex(conn, engine, index);
+            }
+        });
+    }
+
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(List<Migration> migrations) {
+        List<Migration> sorted = new ArrayList<>(migrations);
+        sorted.sort((a, b) -> Integer.compare(a.version, b.version));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).version == sorted.get(i - 1).version) {
+                throw new IllegalArgumentException("Duplicate migration version " + sorted.get(i).version);
+            }
+        }
+        this.migrations = Collections.unmodifiableList(sorted);
+    }
+
+    // Applies pending foreground migrations; returns how many were applied
+    public synchronized int migrate(DataSource dataSource) throws SQLException {
+        return apply(dataSource, false);
+    }
+
+    // Applies pending background (index) migrations; call off the FX thread after migrate()
+    public synchronized int migrateBackground(DataSource dataSource) throws SQLException {
+        return apply(dataSource, true);
+    }
+
+    private int apply(DataSource dataSource, boolean background) throws SQLException {
+        long start = System.nanoTime();
+        int applied = 0;
+        try (Connection conn = dataSource.getConnection()) {
+            ensureHistoryTable(conn);
+            Map<Integer, String> history = appliedChecksums(conn);
+            validate(history);
+            Engine engine = engine(conn);
+            for (Migration migration : migrations) {
+                if (migration.background != background || history.containsKey(migration.version)) {
+                    continue;
+                }
+                long migrationStart = System.nanoTime();
+                LOGGER.info("Applying schema migration V{} ({}){}", migration.version, migration.description,
+                    background ? " in the background" : "");
+                try {
+                    migration.step.apply(conn, engine);
+                } catch (SQLException e) {
+                    throw new SQLException("Schema migration V" + migration.version + " (" + migration.description
+                        + ") failed: " + e.getMessage(), e.getSQLState(), e);
+                }
+                long millis = (System.nanoTime() - migrationStart) / 1_000_000;
+                record(conn, migration, millis);
+                LOGGER.info("Schema migration V{} ({}) applied in {} ms", migration.version, migration.description, millis);
+                applied++;
+            }
+        }
+        if (applied > 0) {
+            LOGGER.info("Applied {} {} schema migration(s) in {} ms", applied, background ? "background" : "startup",
+                (System.nanoTime() - start) / 1_000_000);
+        }
+        return applied;
+    }
+
+    // An applied migration whose definition changed afterwards means the schema is not what the code expects
+    private void validate(Map<Integer, String> history) throws SQLException {
+        for (Migration migration : migrations) {
+            String stored = history.get(migration.version);
+            if (stored != null && !stored.equals(migration.checksum)) {
+                throw new SQLException("Schema migration V" + migration.version + " (" + migration.description
+                    + ") was changed after it was applied: checksum " + stored + " in SchemaHistory, "
+                    + migration.checksum + " now");
+            }
+        }
+    }
+
+    private static void ensureHistoryTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS SchemaHistory (version INT PRIMARY KEY, description VARCHAR(200) NOT NULL, " +
+                         "checksum CHAR(64) NOT NULL, background BOOLEAN NOT NULL, appliedAt TIMESTAMP NOT NULL, " +
+                         "executionMillis BIGINT NOT NULL)");
+        }
+    }
+
+    private static Map<Integer, String> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> checksums = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM SchemaHistory")) {
+            while (rs.next()) {
+                checksums.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return checksums;
+    }
+
+    private static void record(Connection conn, Migration migration, long millis) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO SchemaHistory (version, description, checksum, background, appliedAt, executionMillis) " +
+                 "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?)")) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setString(3, migration.checksum);
+            stmt.setBoolean(4, migration.background);
+            stmt.setLong(5, millis);
+            stmt.executeUpdate();
+        }
+    }
+
+    static Engine engine(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        if (product.contains("h2")) {
+            return Engine.H2;
+        } else if (product.contains("mysql") || product.contains("mariadb")) {
+            return Engine.MYSQL;
+        } else if (product.contains("postgres")) {
+            return Engine.POSTGRESQL;
+        }
+        return Engine.OTHER;
+    }
+
+    private static void createIndex(Connection conn, Engine engine, Index index) throws SQLException {
+        if (engine == Engine.POSTGRESQL) {
+            Boolean valid = postgresIndexValid(conn, index);
+            if (Boolean.TRUE.equals(valid)) {
+                return;
+            }
+            if (valid != null) {
+                // A CREATE INDEX CONCURRENTLY that failed part-way leaves the index behind, unused and INVALID
+                LOGGER.warn("Index {} is invalid; dropping it to build it again", index.name);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.name);
+                }
+            }
+        } else if (indexExists(conn, index)) {
+            return;
+        }
+        String ddl;
+        switch (engine) {
+            case POSTGRESQL:
+                ddl = "CREATE INDEX CONCURRENTLY " + index.name + " ON " + index.table + " (" + index.columns + ")";
+                break;
+            case MYSQL:
+                ddl = "CREATE INDEX " + index.name + " ON " + index.table + " (" + index.columns + ") ALGORITHM=INPLACE LOCK=NONE";
+                break;
+            default:
+                ddl = "CREATE INDEX IF NOT EXISTS " + index.name + " ON " + index.table + " (" + index.columns + ")";
+        }
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(ddl);
+        }
+        LOGGER.debug("Built index {} in {} ms", index, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static boolean indexExists(Connection conn, Index index) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, identifier(meta, index.table), false, true)) {
+            while (rs.next()) {
+                if (index.name.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // null when the index does not exist, else pg_index.indisvalid
+    private static Boolean postgresIndexValid(Connection conn, Index index) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT i.indisvalid FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid " +
+                 "WHERE c.relname = ? AND pg_catalog.pg_table_is_visible(c.oid)")) {
+            stmt.setString(1, index.name.toLowerCase(Locale.ROOT));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getBoolean(1) : null;
+            }
+        }
+    }
+
+    // Table and column names as the metadata calls expect them, given how the engine folds unquoted names
+    static String identifier(DatabaseMetaData meta, String name) throws SQLException {
+        if (meta.storesUpperCaseIdentifiers()) {
+            return name.toUpperCase(Locale.ROOT);
+        }
+        return meta.storesLowerCaseIdentifiers() ? name.toLowerCase(Locale.ROOT) : name;
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.financial;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextInputControl;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs a lookup for a text field as the user types, without blocking the FX thread or piling up queries.
+ *
+ * Input is debounced (search.debounceMs, default 200 ms), so a burst of keystrokes becomes one lookup.
+ * The lookup runs on FinancialManagementApp.executor; submitting a new one cancels the previous task if it
+ * has not started yet, and a result only reaches the UI if no newer query was issued in the meantime.
+ * A stale lookup that is already running is not interrupted: it keeps its executor thread (and connection,
+ * if it uses one) until it returns, and its result is then dropped. The suggestion and attachment lookups
+ * answer from in-memory indexes, so in practice only the first load of an index runs long enough for this
+ * to matter. All methods must be called on the FX thread.
+ */
+public class SearchFieldController<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchFieldController.class);
+    private static final Duration DEBOUNCE = Duration.millis(Integer.getInteger("search.debounceMs", 200));
+
+    @FunctionalInterface
+    public interface Lookup<T> {
+        T search(String query) throws Exception;
+    }
+
+    private final TextInputControl field;
+    private final Lookup<T> lookup;
+    private final Consumer<T> onResult;
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+    private BooleanSupplier active = () -> true;
+    private Future<?> inFlight;
+    private long generation;
+    private boolean muted;
+
+    public SearchFieldController(TextInputControl field, Lookup<T> lookup, Consumer<T> onResult) {
+        this.field = field;
+        this.lookup = lookup;
+        this.onResult = onResult;
+        debounce.setOnFinished(e -> submit(field.getText()));
+        field.textProperty().addListener((obs, oldVal, newVal) -> {
+            if (!muted && active.getAsBoolean()) {
+                debounce.playFromStart();
+            }
+        });
+    }
+
+    /**
+     * Drop-down suggestions for an autocomplete field. Only typing into the focused field opens the menu;
+     * picking an entry fills the field without searching again and then calls onPick.
+     */
+    public static SearchFieldController<List<String>> withSuggestions(TextInputControl field, Lookup<List<String>> lookup,
+                                                                     Consumer<String> onPick) {
+        ContextMenu menu = new ContextMenu();
+        AtomicReference<SearchFieldController<List<String>>> self = new AtomicReference<>();
+        self.set(new SearchFieldController<>(field, lookup, matches -> {
+            menu.getItems().clear();
+            for (String match : matches) {
+                MenuItem item = new MenuItem(match);
+                item.setOnAction(e -> {
+                    self.get().setTextQuietly(match);
+                    menu.hide();
+                    onPick.accept(match);
+                });
+                menu.getItems().add(item);
+            }
+            if (!menu.getItems().isEmpty() && field.getScene() != null) {
+                menu.show(field, javafx.geometry.Side.BOTTOM, 0, 0);
+            } else {
+                menu.hide();
+            }
+        }));
+        self.get().active = field::isFocused;
+        return self.get();
+    }
+
+    // Searches right away, skipping the debounce; used after the underlying data changed
+    public void submit(String query) {
+        debounce.stop();
+        if (inFlight != null) {
+            inFlight.cancel(false); // Only drops a lookup that has not started; a running one finishes unseen
+        }
+        long ticket = ++generation;
+        inFlight = FinancialManagementApp.executor.submit(() -> {
+            T result;
+            try {
+                result = lookup.search(query);
+            } catch (Exception e) {
+                LOGGER.error("Lookup for '{}' failed", query, e);
+                return;
+            }
+            Platform.runLater(() -> {
+                if (ticket == generation) {
+                    onResult.accept(result);
+                }
+            });
+        });
+    }
+
+    // Sets the field's text without triggering a lookup, e.g. when a suggestion was picked
+    public void setTextQuietly(String text) {
+        muted = true;
+        try {
+            field.setText(text);
+        } finally {
+            muted = false;
+        }
+        debounce.stop();
+        generation++; // Discard a lookup that may still be running
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-statement timings fed by InstrumentedDataSource, off unless the JVM is started with -Dsql.log.enabled=true;
+ * like Metrics, when off the DataSource is not wrapped at all. Bind values (names, amounts, IDs) end up in the
+ * log file, so only turn it on where that file may hold them.
+ *
+ * Every statement is counted into a per-SQL total for the top-N view in DiagnosticsPane; statements slower than
+ * sql.slowMs (default 500) are also written with their bind values, row count and the database's EXPLAIN plan to
+ * sql.slowLog.file, which rolls over at sql.slowLog.maxBytes keeping sql.slowLog.files old files.
+ *
+ * EXPLAIN and file writes run on one background thread on a connection of the raw pool, never on the thread
+ * that ran the statement. A plan is captured at most once per statement every EXPLAIN_INTERVAL_MINUTES; when
+ * more slow statements arrive than the thread keeps up with, the surplus is counted in the log and dropped.
+ */
+public final class SlowQueryLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final boolean ENABLED = Boolean.getBoolean("sql.log.enabled");
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("sql.slowMs", 500));
+    private static final Path FILE = Paths.get(System.getProperty("sql.slowLog.file", "logs/slow-queries.log"));
+    private static final long MAX_BYTES = Long.getLong("sql.slowLog.maxBytes", 5L * 1024 * 1024);
+    private static final int MAX_FILES = Integer.getInteger("sql.slowLog.files", 5);
+    // Statements built with inlined literals would otherwise grow the totals without bound
+    private static final int MAX_STATEMENTS = Integer.getInteger("sql.log.maxStatements", 2000);
+    private static final int MAX_BIND_CHARS = 200;
+    private static final long EXPLAIN_INTERVAL_MINUTES = 10;
+
+    private static final Map<String, StatementTotals> TOTALS = new ConcurrentHashMap<>();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private SlowQueryLog() {
+    }
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    static void record(DataSource dataSource, String sql, Map<Integer, Object> binds, int batchSize, long nanos, long rows) {
+        if (sql == null) {
+            return;
+        }
+        StatementTotals totals = TOTALS.size() < MAX_STATEMENTS
+            ? TOTALS.computeIfAbsent(sql, StatementTotals::new)
+            : TOTALS.get(sql);
+        if (totals != null) {
+            totals.add(nanos, rows);
+        }
+        if (nanos < THRESHOLD_NANOS) {
+            return;
+        }
+        SlowQuery slow = new SlowQuery(LocalDateTime.now(), InstrumentedDataSource.caller(), sql, binds, batchSize,
+            nanos / 1_000_000.0, rows);
+        LOGGER.warn("Slow SQL: {} ms, {} rows in {}", String.format("%.1f", slow.millis), rows, slow.caller);
+        if (totals != null) {
+            totals.slowCalls.increment();
+            totals.lastSlow = slow;
+        }
+        try {
+            Writer.EXECUTOR.execute(() -> write(dataSource, slow, totals));
+        } catch (RejectedExecutionException e) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    /** The n statements with the most total time, for DiagnosticsPane. */
+    public static List<StatementSummary> top(int n) {
+        List<StatementSummary> summaries = new ArrayList<>();
+        for (StatementTotals totals : TOTALS.values()) {
+            summaries.add(totals.summary());
+        }
+        summaries.sort(Comparator.comparingDouble(StatementSummary::getTotalMillis).reversed());
+        return summaries.size() > n ? new ArrayList<>(summaries.subList(0, n)) : summaries;
+    }
+
+    private static void write(DataSource dataSource, SlowQuery slow, StatementTotals totals) {
+        String plan;
+        if (totals != null && totals.plan != null
+                && totals.planCapturedAt.isAfter(LocalDateTime.now().minusMinutes(EXPLAIN_INTERVAL_MINUTES))) {
+            plan = totals.plan;
+        } else {
+            plan = explain(dataSource, slow);
+            if (totals != null) {
+                totals.plan = plan;
+                totals.planCapturedAt = LocalDateTime.now();
+            }
+        }
+        slow.plan = plan;
+
+        StringBuilder entry = new StringBuilder();
+        entry.append(slow.time).append(' ').append(String.format(Locale.ROOT, "%.1f", slow.millis)).append(" ms, ")
+            .append(slow.rows).append(" rows, ").append(slow.caller).append('\n');
+        entry.append("  sql: ").append(slow.sql.replaceAll("\\s+", " ").trim()).append('\n');
+        if (slow.batchSize > 0) {
+            entry.append("  batch: ").append(slow.batchSize).append(" rows, last binds shown\n");
+        }
+        if (!slow.binds.isEmpty()) {
+            entry.append("  binds: ").append(slow.bindsText()).append('\n');
+        }
+        entry.append("  plan:\n");
+        for (String line : plan.split("\n")) {
+            entry.append("    ").append(line).append('\n');
+        }
+        long dropped = DROPPED.getAndSet(0);
+        if (dropped > 0) {
+            entry.append("  (").append(dropped).append(" slow statements dropped before this one)\n");
+        }
+        append(entry.toString());
+    }
+
+    // Plain EXPLAIN only; EXPLAIN ANALYZE would run the statement a second time
+    private static String explain(DataSource dataSource, SlowQuery slow) {
+        String sql = slow.sql.trim();
+        String verb = sql.split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+        if (!(verb.equals("SELECT") || verb.equals("WITH") || verb.equals("UPDATE") || verb.equals("DELETE") || verb.equals("INSERT"))) {
+            return "(no plan for " + verb + ")";
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (Map.Entry<Integer, Object> bind : slow.binds.entrySet()) {
+                Object value = bind.getValue();
+                if (value == null || value instanceof byte[] || value instanceof InputStream || value instanceof Reader) {
+                    stmt.setNull(bind.getKey(), Types.NULL); // content does not change the plan; streams are spent
+                } else {
+                    stmt.setObject(bind.getKey(), value);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        if (i > 1) {
+                            plan.append(" | ");
+                        }
+                        plan.append(meta.getColumnLabel(i)).append('=').append(rs.getString(i));
+                    }
+                    plan.append('\n');
+                }
+            }
+            return plan.length() == 0 ? "(empty plan)" : plan.toString().trim();
+        } catch (SQLException e) {
+            LOGGER.debug("EXPLAIN failed for {}", sql, e);
+            return "(EXPLAIN failed: " + e.getMessage() + ")";
+        }
+    }
+
+    private static void append(String entry) {
+        try {
+            Path file = FILE.toAbsolutePath();
+            Files.createDirectories(file.getParent());
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            if (Files.exists(file) && Files.size(file) + bytes.length > MAX_BYTES) {
+                rotate(file);
+            }
+            Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write the slow query log {}", FILE, e);
+        }
+    }
+
+    // slow-queries.log -> .1 -> .2 ...; the oldest beyond MAX_FILES is deleted
+    private static void rotate(Path file) throws IOException {
+        Files.deleteIfExists(Paths.get(file + "." + MAX_FILES));
+        for (int i = MAX_FILES - 1; i >= 1; i--) {
+            Path older = Paths.get(file + "." + i);
+            if (Files.exists(older)) {
+                Files.move(older, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Started on the first slow statement; a daemon so it never holds the JVM open
+    private static final class Writer {
+        static final ExecutorService EXECUTOR = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(256), runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    private static final class StatementTotals {
+        final String sql;
+        final LongAdder calls = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder slowCalls = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        volatile SlowQuery lastSlow;
+        volatile String plan;
+        volatile LocalDateTime planCapturedAt;
+
+        StatementTotals(String sql) {
+            this.sql = sql;
+        }
+
+        void add(long nanos, long rowCount) {
+            calls.increment();
+            totalNanos.add(nanos);
+            rows.add(rowCount);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        StatementSummary summary() {
+            long count = calls.sum();
+            double totalMillis = totalNanos.sum() / 1_000_000.0;
+            SlowQuery slow = lastSlow;
+            String detail = slow == null ? "" : slow.time + ", " + String.format("%.1f", slow.millis) + " ms, "
+                + slow.rows + " rows, " + slow.caller + "\nbinds: " + slow.bindsText()
+                + "\nplan:\n" + (slow.plan == null ? "(pending)" : slow.plan);
+            return new StatementSummary(sql.replaceAll("\\s+", " ").trim(), count, totalMillis,
+                count == 0 ? 0 : totalMillis / count, maxNanos.get() / 1_000_000.0,
+                count == 0 ? 0 : (double) rows.sum() / count, slowCalls.sum(), detail);
+        }
+    }
+
+    private static final class SlowQuery {
+        final LocalDateTime time;
+        final String caller;
+        final String sql;
+        final Map<Integer, Object> binds;
+        final int batchSize;
+        final double millis;
+        final long rows;
+        volatile String plan;
+
+        SlowQuery(LocalDateTime time, String caller, String sql, Map<Integer, Object> binds, int batchSize,
+                  double millis, long rows) {
+            this.time = time;
+            this.caller = caller;
+            this.sql = sql;
+            this.binds = binds;
+            this.batchSize = batchSize;
+            this.millis = millis;
+            this.rows = rows;
+        }
+
+        String bindsText() {
+            StringBuilder text = new StringBuilder("[");
+            for (Map.Entry<Integer, Object> bind : binds.entrySet()) {
+                if (text.length() > 1) {
+                    text.append(", ");
+                }
+                text.append(bind.getKey()).append('=').append(render(bind.getValue()));
+            }
+            return text.append(']').toString();
+        }
+
+        private static String render(Object value) {
+            if (value == null) {
+                return "NULL";
+            }
+            if (value instanceof byte[]) {
+                return "<" + ((byte[]) value).length + " bytes>";
+            }
+            if (value instanceof InputStream || value instanceof Reader) {
+                return "<stream>";
+            }
+            String text = value.toString();
+            if (text.length() > MAX_BIND_CHARS) {
+                text = text.substring(0, MAX_BIND_CHARS) + "...";
+            }
+            return value instanceof String ? "'" + text + "'" : text;
+        }
+    }
+
+    public static class StatementSummary {
+        private final String sql;
+        private final long calls;
+        private final double totalMillis;
+        private final double meanMillis;
+        private final double maxMillis;
+        private final double meanRows;
+        private final long slowCalls;
+        private final String lastSlow;
+
+        public StatementSummary(String sql, long calls, double totalMillis, double meanMillis, double maxMillis,
+                                double meanRows, long slowCalls, String lastSlow) {
+            this.sql = sql;
+            this.calls = calls;
+            this.totalMillis = totalMillis;
+            this.meanMillis = meanMillis;
+            this.maxMillis = maxMillis;
+            this.meanRows = meanRows;
+            this.slowCalls = slowCalls;
+            this.lastSlow = lastSlow;
+        }
+
+        public String getSql() { return sql; }
+        public long getCalls() { return calls; }
+        public double getTotalMillis() { return totalMillis; }
+        public double getMeanMillis() { return meanMillis; }
+        public double getMaxMillis() { return maxMillis; }
+        public double getMeanRows() { return meanRows; }
+        public long getSlowCalls() { return slowCalls; }
+        public String getLastSlow() { return lastSlow; }
+    }
+}
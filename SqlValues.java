@@ -0,0 +1,53 @@
+package com.example.financial;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Typed binds for the DATE and DECIMAL columns that TypedColumnMigration sets up. Binding a string against a
+ * DATE column makes the database convert per row and skip the index; binding a java.sql.Date keeps range
+ * predicates on (type, date) style indexes as index seeks. Amounts are bound as exact decimals at the
+ * columns' scale instead of binary doubles.
+ */
+final class SqlValues {
+    static final int AMOUNT_SCALE = 4;
+
+    private SqlValues() {
+    }
+
+    // Binds an ISO yyyy-MM-dd date as it comes from the DatePickers; null binds SQL NULL
+    static void setDate(PreparedStatement stmt, int index, String isoDate) throws SQLException {
+        if (isoDate == null || isoDate.trim().isEmpty()) {
+            stmt.setNull(index, Types.DATE);
+            return;
+        }
+        try {
+            setDate(stmt, index, LocalDate.parse(isoDate.trim()));
+        } catch (DateTimeParseException e) {
+            throw new SQLException("Invalid date '" + isoDate + "', expected yyyy-MM-dd", e);
+        }
+    }
+
+    static void setDate(PreparedStatement stmt, int index, LocalDate date) throws SQLException {
+        if (date == null) {
+            stmt.setNull(index, Types.DATE);
+        } else {
+            stmt.setDate(index, Date.valueOf(date));
+        }
+    }
+
+    // BigDecimal.valueOf keeps the double's shortest decimal form, so 0.1 is stored as 0.1000, not 0.1000000000000000055
+    static void setAmount(PreparedStatement stmt, int index, double amount) throws SQLException {
+        stmt.setBigDecimal(index, toAmount(amount));
+    }
+
+    static BigDecimal toAmount(double amount) {
+        return BigDecimal.valueOf(amount).setScale(AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+}
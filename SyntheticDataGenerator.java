@@ -0,0 +1,694 @@
+package com.example.financial;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills an empty schema with production-scale synthetic data for load tests, soak tests and the benchmarks.
+ *
+ * The data is skewed the way real books are: customers, suppliers and products are drawn from Zipf
+ * distributions (a few accounts carry most of the volume), dates follow a seasonal curve with quiet Fridays,
+ * amounts are log-normal, and invoices, payments and expenses are spread over USD, IQD and RMB. Old invoices
+ * are mostly paid, recent ones mostly open.
+ *
+ * Output is deterministic for a given seed and volumes: large tables are generated in fixed-size chunks, each
+ * with its own random stream derived from the seed and chunk number, so the content does not depend on how
+ * many threads ran or in which order chunks finished (auto-increment keys may still be assigned differently).
+ * Chunks are written by gen.threads workers in JDBC batches, one transaction per chunk. Run it against a database
+ * the application is not using at the time; its in-memory balances and indexes would not see the new rows.
+ *
+ * Run standalone with the target JDBC URL and -Dgen.* volumes, e.g.
+ * -Dgen.invoices=2000000 -Dgen.lineItemsPerInvoice=5 for ten million line items.
+ */
+public class SyntheticDataGenerator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    static final String[] CURRENCIES = {"USD", "IQD", "RMB"};
+    private static final double[] CURRENCY_WEIGHTS = {0.55, 0.35, 0.10};
+    private static final double[] EXCHANGE_RATES = {1.0, 1310.0, 7.2};
+    // Relative activity per month, January first; busy before year end, slow in the summer heat
+    private static final double[] MONTH_WEIGHTS = {0.85, 0.85, 0.95, 1.0, 1.0, 0.9, 0.75, 0.75, 1.0, 1.1, 1.3, 1.5};
+    private static final String[] NAME_WORDS = {
+        "Baghdad", "Basra", "Erbil", "Mosul", "Najaf", "Tigris", "Euphrates", "Golden", "Crescent", "Star",
+        "Falcon", "Cedar", "Al-Rafidain", "Babylon", "Sumer", "Ur", "Zagros", "Shatt", "Green", "United"
+    };
+    private static final String[] BUSINESS_WORDS = {
+        "Trading", "Import", "Export", "Logistics", "Supplies", "Electronics", "Textiles", "Foods", "Steel",
+        "Pharma", "Construction", "Motors", "Plastics", "Paper", "Furniture", "Tools"
+    };
+    private static final String[] PRODUCT_WORDS = {
+        "Cable", "Pipe", "Panel", "Motor", "Pump", "Valve", "Sheet", "Bolt", "Filter", "Lamp", "Fabric", "Rice",
+        "Oil", "Sugar", "Tile", "Paint", "Battery", "Switch", "Tyre", "Glass"
+    };
+    private static final String[] UNITS = {"pcs", "box", "carton", "kg", "m", "roll"};
+    private static final String[] EXPENSE_CATEGORIES = {
+        "Rent", "Salaries", "Utilities", "Transport", "Customs", "Marketing", "Office", "Maintenance"
+    };
+    private static final String[] ADJUSTMENT_TYPES = {"Transfer", "Correction", "Write-off"};
+    private static final String TERMS_FILE_NAME = "terms-and-conditions.txt";
+    private static final String[] USERS = {"admin", "accountant1", "accountant2", "sales1", "sales2", "warehouse"};
+    private static final String[] AUDIT_ACTIONS = {"CREATE", "UPDATE", "UPDATE", "UPDATE", "PRINT", "DELETE"};
+
+    /** How much to generate; defaults suit a quick local load test, gen.* system properties override them. */
+    public static class Volumes {
+        private int customers = 2_000;
+        private int suppliers = 300;
+        private int products = 1_500;
+        private int warehouses = 3;
+        private int invoices = 100_000;
+        private int lineItemsPerInvoice = 5;
+        private int payments = 80_000;
+        private int expenses = 20_000;
+        private int adjustments = 2_000;
+        private int attachments = 2_000;
+        private int auditLogs = 200_000;
+        private int days = 730;
+        private double zipfExponent = 1.1;
+
+        public static Volumes fromSystemProperties() {
+            Volumes volumes = new Volumes();
+            volumes.customers = Integer.getInteger("gen.customers", volumes.customers);
+            volumes.suppliers = Integer.getInteger("gen.suppliers", volumes.suppliers);
+            volumes.products = Integer.getInteger("gen.products", volumes.products);
+            volumes.warehouses = Integer.getInteger("gen.warehouses", volumes.warehouses);
+            volumes.invoices = Integer.getInteger("gen.invoices", volumes.invoices);
+            volumes.lineItemsPerInvoice = Integer.getInteger("gen.lineItemsPerInvoice", volumes.lineItemsPerInvoice);
+            volumes.payments = Integer.getInteger("gen.payments", volumes.payments);
+            volumes.expenses = Integer.getInteger("gen.expenses", volumes.expenses);
+            volumes.adjustments = Integer.getInteger("gen.adjustments", volumes.adjustments);
+            volumes.attachments = Integer.getInteger("gen.attachments", volumes.attachments);
+            volumes.auditLogs = Integer.getInteger("gen.auditLogs", volumes.auditLogs);
+            volumes.days = Integer.getInteger("gen.days", volumes.days);
+            volumes.zipfExponent = Double.parseDouble(System.getProperty("gen.zipfExponent", String.valueOf(volumes.zipfExponent)));
+            return volumes;
+        }
+
+        public int getCustomers() { return customers; }
+        public int getSuppliers() { return suppliers; }
+        public int getProducts() { return products; }
+        public int getWarehouses() { return warehouses; }
+        public int getInvoices() { return invoices; }
+        public int getLineItemsPerInvoice() { return lineItemsPerInvoice; } // Average; the count per invoice varies
+        public int getPayments() { return payments; }
+        public int getExpenses() { return expenses; }
+        public int getAdjustments() { return adjustments; }
+        public int getAttachments() { return attachments; }
+        public int getAuditLogs() { return auditLogs; }
+        public int getDays() { return days; }
+        public double getZipfExponent() { return zipfExponent; }
+
+        public void setCustomers(int customers) { this.customers = customers; }
+        public void setSuppliers(int suppliers) { this.suppliers = suppliers; }
+        public void setProducts(int products) { this.products = products; }
+        public void setWarehouses(int warehouses) { this.warehouses = warehouses; }
+        public void setInvoices(int invoices) { this.invoices = invoices; }
+        public void setLineItemsPerInvoice(int lineItemsPerInvoice) { this.lineItemsPerInvoice = lineItemsPerInvoice; }
+        public void setPayments(int payments) { this.payments = payments; }
+        public void setExpenses(int expenses) { this.expenses = expenses; }
+        public void setAdjustments(int adjustments) { this.adjustments = adjustments; }
+        public void setAttachments(int attachments) { this.attachments = attachments; }
+        public void setAuditLogs(int auditLogs) { this.auditLogs = auditLogs; }
+        public void setDays(int days) { this.days = days; }
+        public void setZipfExponent(double zipfExponent) { this.zipfExponent = zipfExponent; }
+    }
+
+    // One chunk of one table, written on its own connection and transaction
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(Connection conn, SplittableRandom random, int from, int to) throws SQLException, IOException;
+    }
+
+    private final DataSource dataSource;
+    private final Volumes volumes;
+    private final long seed;
+    private final int threads;
+    private final LocalDate endDate;
+    private final Sampler customerSampler;
+    private final Sampler supplierSampler;
+    private final Sampler productSampler;
+    private final Sampler daySampler;
+    private final double[] productPrices;
+    // Blob of the shared terms sheet, stored once before the attachment chunks so they only point at it
+    private String termsHash;
+
+    public SyntheticDataGenerator(DataSource dataSource, Volumes volumes, long seed) {
+        this(dataSource, volumes, seed, Integer.getInteger("gen.threads", Runtime.getRuntime().availableProcessors()),
+             LocalDate.now());
+    }
+
+    // endDate pins the date range, so two runs on different days produce the same rows
+    public SyntheticDataGenerator(DataSource dataSource, Volumes volumes, long seed, int threads, LocalDate endDate) {
+        this.dataSource = dataSource;
+        this.volumes = volumes;
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+        this.endDate = endDate;
+        this.customerSampler = Sampler.zipf(volumes.customers, volumes.zipfExponent);
+        this.supplierSampler = Sampler.zipf(volumes.suppliers, volumes.zipfExponent);
+        this.productSampler = Sampler.zipf(volumes.products, volumes.zipfExponent);
+        this.daySampler = Sampler.seasonal(endDate, volumes.days);
+        this.productPrices = new double[volumes.products + 1];
+        SplittableRandom prices = random(0, 0);
+        for (int i = 1; i <= volumes.products; i++) {
+            productPrices[i] = logNormal(prices, 3.0, 1.1); // Median about 20 USD, long tail into the thousands
+        }
+    }
+
+    // Invoice IDs the generator assigns, 1-based; the GEN prefix never collides with InvoiceNumberAllocator's
+    public static String invoiceId(int n) {
+        return String.format("GEN %08d", n);
+    }
+
+    public void generate() throws SQLException {
+        long start = System.nanoTime();
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "data-generator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // The rollup, blob store and sequence tables come from the startup migrations; a no-op when applied
+            new SchemaMigrator(SchemaMigrations.all()).migrate(dataSource);
+            DailyRollups rollups = new DailyRollups();
+
+            // Reference data first: everything below points into it by 1-based ID
+            run(pool, "Customers", volumes.customers, 1, this::writeCustomers);
+            run(pool, "Suppliers", volumes.suppliers, 2, this::writeSuppliers);
+            run(pool, "Products", volumes.products, 3, this::writeProducts);
+            run(pool, "ProductUnits", volumes.products, 4, this::writeProductUnits);
+            run(pool, "Inventory", volumes.products, 5, this::writeInventory);
+            run(pool, "Invoices", volumes.invoices, 6, this::writeInvoices);
+            run(pool, "Payments", volumes.payments, 7, this::writePayments);
+            run(pool, "Expenses", volumes.expenses, 8, this::writeExpenses);
+            run(pool, "Budgets", EXPENSE_CATEGORIES.length, 9, this::writeBudgets);
+            run(pool, "Adjustments", volumes.adjustments, 10, this::writeAdjustments);
+            if (volumes.attachments > 0) {
+                termsHash = storeTermsSheet();
+            }
+            run(pool, "Attachments", volumes.attachments, 11, this::writeAttachments);
+            if (termsHash != null) {
+                countTermsReferences();
+            }
+            run(pool, "AuditLogs", volumes.auditLogs, 12, this::writeAuditLogs);
+
+            long rollupStart = System.nanoTime();
+            try (Connection conn = dataSource.getConnection()) {
+                conn.setAutoCommit(false);
+                rollups.rebuild(conn);
+                conn.commit();
+            }
+            LOGGER.info("Rebuilt daily rollups in {} ms", (System.nanoTime() - rollupStart) / 1_000_000);
+        } finally {
+            pool.shutdownNow();
+        }
+        LOGGER.info("Generated synthetic data (seed {}) in {} s", seed, (System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private void run(ExecutorService pool, String table, int rows, int tableId, ChunkWriter writer) throws SQLException {
+        if (rows <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Future<?>> chunks = new ArrayList<>();
+        for (int from = 1, chunk = 0; from <= rows; from += CHUNK_SIZE, chunk++) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(rows, from + CHUNK_SIZE - 1);
+            SplittableRandom random = random(tableId, chunk);
+            chunks.add(pool.submit(() -> {
+                try (Connection conn = dataSource.getConnection()) {
+                    conn.setAutoCommit(false);
+                    writer.write(conn, random, chunkFrom, chunkTo);
+                    conn.commit();
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause
+                : new SQLException("Generating " + table + " failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while generating " + table, e);
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        LOGGER.info("Generated {} {} rows in {} ms ({} rows/s)", rows, table, millis, rows * 1000L / millis);
+    }
+
+    private void writeCustomers(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        writeContacts(conn, "INSERT INTO Customers (name, contactInfo) VALUES (?, ?)", random, from, to);
+    }
+
+    private void writeSuppliers(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        writeContacts(conn, "INSERT INTO Suppliers (name, contactInfo) VALUES (?, ?)", random, from, to);
+    }
+
+    private void writeContacts(Connection conn, String sql, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = from; i <= to; i++) {
+                stmt.setString(1, pick(random, NAME_WORDS) + " " + pick(random, BUSINESS_WORDS) + " Co. " + i);
+                stmt.setString(2, "+964 7" + (100_000_000 + random.nextInt(900_000_000)));
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeProducts(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO Products (name) VALUES (?)")) {
+            for (int i = from; i <= to; i++) {
+                stmt.setString(1, pick(random, PRODUCT_WORDS) + " " + pick(random, NAME_WORDS) + " " + i);
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeProductUnits(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO ProductUnits (productId, unit) VALUES (?, ?)")) {
+            int rows = 0;
+            for (int i = from; i <= to; i++) {
+                int first = random.nextInt(UNITS.length);
+                int count = 1 + random.nextInt(3);
+                for (int k = 0; k < count; k++) {
+                    stmt.setInt(1, i);
+                    stmt.setString(2, UNITS[(first + k) % UNITS.length]);
+                    addBatch(stmt, rows++);
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeInventory(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO Inventory (productId, warehouseId, quantity) VALUES (?, ?, ?)")) {
+            int rows = 0;
+            for (int i = from; i <= to; i++) {
+                for (int warehouse = 1; warehouse <= volumes.warehouses; warehouse++) {
+                    stmt.setInt(1, i);
+                    stmt.setInt(2, warehouse);
+                    stmt.setInt(3, (int) logNormal(random, 4.0, 1.2));
+                    addBatch(stmt, rows++);
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeInvoices(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement invoice = conn.prepareStatement(
+                 "INSERT INTO Invoices (invoiceId, customerId, supplierId, invoiceType, date, totalAmount, taxAmount, " +
+                 "currency, status, paymentInstructions, paymentTerm, notes, exchangeRate, shippingFee, transportingFee, " +
+                 "uploadingFee, taxFee) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, NULL, ?, NULL, ?, ?, ?, ?, 0)");
+             PreparedStatement item = conn.prepareStatement(
+                 "INSERT INTO InvoiceLineItems (invoiceId, productId, warehouseId, quantity, unit, unitPrice, totalPrice, " +
+                 "paidAmount, receivedAmount, discount, fixedDiscount, taxRate, totalTax, currency) " +
+                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, 0, ?, ?, ?)")) {
+            for (int i = from; i <= to; i++) {
+                String invoiceId = invoiceId(i);
+                boolean sale = random.nextDouble() < 0.8;
+                int currency = weighted(random, CURRENCY_WEIGHTS);
+                double rate = EXCHANGE_RATES[currency];
+                LocalDate date = daySampler.day(random, endDate);
+                String status = status(random, date);
+                double taxRate = random.nextDouble() < 0.7 ? 0.1 : 0.0;
+                double discount = random.nextDouble() < 0.2 ? 0.05 * (1 + random.nextInt(3)) : 0.0;
+                int lines = 1 + random.nextInt(Math.max(1, 2 * volumes.lineItemsPerInvoice - 1));
+                double net = 0;
+                double tax = 0;
+                for (int k = 0; k < lines; k++) {
+                    int productId = productSampler.next(random);
+                    int quantity = 1 + (int) Math.min(500, -Math.log(1 - random.nextDouble()) * 8);
+                    double unitPrice = round(productPrices[productId] * rate * (0.9 + 0.2 * random.nextDouble()));
+                    double lineTotal = round(quantity * unitPrice * (1 - discount));
+                    double lineTax = round(lineTotal * taxRate);
+                    net += lineTotal;
+                    tax += lineTax;
+                    item.setString(1, invoiceId);
+                    item.setInt(2, productId);
+                    item.setInt(3, 1 + random.nextInt(volumes.warehouses));
+                    item.setInt(4, quantity);
+                    item.setString(5, UNITS[productId % UNITS.length]);
+                    SqlValues.setAmount(item, 6, unitPrice);
+                    SqlValues.setAmount(item, 7, lineTotal);
+                    item.setDouble(8, "PAID".equals(status) ? lineTotal + lineTax : 0);
+                    item.setDouble(9, discount);
+                    item.setDouble(10, taxRate);
+                    SqlValues.setAmount(item, 11, lineTax);
+                    item.setString(12, CURRENCIES[currency]);
+                    item.addBatch();
+                }
+                double shipping = sale ? 0 : round(net * 0.03);
+                double transport = sale && random.nextDouble() < 0.3 ? round(15 * rate) : 0;
+                double unloading = sale ? 0 : round(net * 0.005);
+                invoice.setString(1, invoiceId);
+                invoice.setObject(2, sale ? customerSampler.next(random) : null, Types.INTEGER);
+                invoice.setObject(3, sale ? null : supplierSampler.next(random), Types.INTEGER);
+                invoice.setString(4, sale ? "Sale" : "Import Purchase");
+                SqlValues.setDate(invoice, 5, date);
+                SqlValues.setAmount(invoice, 6, net + tax + shipping + transport + unloading);
+                SqlValues.setAmount(invoice, 7, tax);
+                invoice.setString(8, CURRENCIES[currency]);
+                invoice.setString(9, status);
+                invoice.setString(10, random.nextDouble() < 0.5 ? "Net 30" : "Cash");
+                invoice.setDouble(11, rate);
+                SqlValues.setAmount(invoice, 12, shipping);
+                SqlValues.setAmount(invoice, 13, transport);
+                SqlValues.setAmount(invoice, 14, unloading);
+                invoice.addBatch();
+                // Headers before their line items, in case the schema has a foreign key between them
+                if ((i - from + 1) % BATCH_SIZE == 0) {
+                    invoice.executeBatch();
+                    item.executeBatch();
+                }
+            }
+            invoice.executeBatch();
+            item.executeBatch();
+        }
+    }
+
+    private void writePayments(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO Payments (customerId, supplierId, contactType, amount, currency, exchangeRate, date, status) " +
+                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = from; i <= to; i++) {
+                boolean fromCustomer = random.nextDouble() < 0.8;
+                int currency = weighted(random, CURRENCY_WEIGHTS);
+                stmt.setObject(1, fromCustomer ? customerSampler.next(random) : null, Types.INTEGER);
+                stmt.setObject(2, fromCustomer ? null : supplierSampler.next(random), Types.INTEGER);
+                stmt.setString(3, fromCustomer ? "Customer" : "Supplier");
+                SqlValues.setAmount(stmt, 4, round(logNormal(random, 6.0, 1.3) * EXCHANGE_RATES[currency]));
+                stmt.setString(5, CURRENCIES[currency]);
+                stmt.setDouble(6, EXCHANGE_RATES[currency]);
+                SqlValues.setDate(stmt, 7, daySampler.day(random, endDate));
+                stmt.setString(8, fromCustomer ? "RECEIVED" : "PAID");
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeExpenses(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO Expenses (category, amount, date, description, currency) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = from; i <= to; i++) {
+                String category = pick(random, EXPENSE_CATEGORIES);
+                int currency = weighted(random, CURRENCY_WEIGHTS);
+                stmt.setString(1, category);
+                SqlValues.setAmount(stmt, 2, round(logNormal(random, 5.0, 1.0) * EXCHANGE_RATES[currency]));
+                SqlValues.setDate(stmt, 3, daySampler.day(random, endDate));
+                stmt.setString(4, category + " #" + i);
+                stmt.setString(5, CURRENCIES[currency]);
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeBudgets(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO Budgets (category, amount, startDate, endDate) VALUES (?, ?, ?, ?)")) {
+            for (int i = from; i <= to; i++) {
+                stmt.setString(1, EXPENSE_CATEGORIES[i - 1]);
+                // Roughly what the expenses above add up to per category, give or take a quarter
+                double expected = volumes.expenses / (double) EXPENSE_CATEGORIES.length * Math.exp(5.5);
+                stmt.setDouble(2, round(expected * (0.75 + 0.5 * random.nextDouble())));
+                stmt.setString(3, endDate.minusDays(volumes.days - 1L).toString());
+                stmt.setString(4, endDate.toString());
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeAdjustments(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO Adjustments (type, description, amount, accountFrom, accountTo, date, currency, exchangeRate) " +
+                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = from; i <= to; i++) {
+                int currency = weighted(random, CURRENCY_WEIGHTS);
+                String type = pick(random, ADJUSTMENT_TYPES);
+                stmt.setString(1, type);
+                stmt.setString(2, type + " #" + i);
+                stmt.setDouble(3, round(logNormal(random, 5.5, 1.2) * EXCHANGE_RATES[currency]));
+                stmt.setObject(4, customerSampler.next(random), Types.INTEGER);
+                stmt.setObject(5, "Transfer".equals(type) ? customerSampler.next(random) : null, Types.INTEGER);
+                stmt.setString(6, daySampler.day(random, endDate).toString());
+                stmt.setString(7, CURRENCIES[currency]);
+                stmt.setDouble(8, EXCHANGE_RATES[currency]);
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Small text documents attached to random invoices, stored through AttachmentStore like uploads. One in ten
+     * is the same terms-and-conditions sheet, so the blob store's deduplication shows up in load tests too; those
+     * rows only point at the blob storeTermsSheet() committed, so parallel chunks never wait on one blob row.
+     */
+    private void writeAttachments(Connection conn, SplittableRandom random, int from, int to) throws SQLException, IOException {
+        AttachmentStore store = new AttachmentStore();
+        Path file = Files.createTempFile("generated-attachment", ".txt");
+        long termsSize = termsSheet().length;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO Attachments (entityType, entityId, contactId, contactName, fileName, fileSize, uploadDate, " +
+                 "contentHash) VALUES ('INVOICE', ?, ?, NULL, ?, ?, ?, ?)")) {
+            for (int i = from; i <= to; i++) {
+                boolean terms = random.nextInt(10) == 0;
+                String fileName = terms ? TERMS_FILE_NAME : "delivery-note-" + i + ".txt";
+                String hash = termsHash;
+                long size = termsSize;
+                if (!terms) {
+                    StringBuilder text = new StringBuilder();
+                    int lines = 20 + random.nextInt(400);
+                    for (int k = 0; k < lines; k++) {
+                        text.append(pick(random, PRODUCT_WORDS)).append(" x").append(1 + random.nextInt(50))
+                            .append(' ').append(pick(random, NAME_WORDS)).append(' ').append(random.nextInt(1_000_000)).append('\n');
+                    }
+                    Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+                    hash = store.store(conn, file, fileName);
+                    size = Files.size(file);
+                }
+                stmt.setString(1, invoiceId(1 + random.nextInt(Math.max(1, volumes.invoices))));
+                stmt.setObject(2, customerSampler.next(random), Types.INTEGER);
+                stmt.setString(3, fileName);
+                stmt.setLong(4, size);
+                stmt.setString(5, daySampler.day(random, endDate).toString());
+                stmt.setString(6, hash);
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static byte[] termsSheet() {
+        StringBuilder text = new StringBuilder("Standard terms and conditions of sale.\n");
+        for (int k = 0; k < 200; k++) {
+            text.append("Clause ").append(k).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Stores the terms sheet in a transaction of its own and returns its hash
+    private String storeTermsSheet() throws SQLException {
+        try {
+            Path file = Files.createTempFile("generated-terms", ".txt");
+            try (Connection conn = dataSource.getConnection()) {
+                Files.write(file, termsSheet());
+                conn.setAutoCommit(false);
+                String hash = new AttachmentStore().store(conn, file, TERMS_FILE_NAME);
+                conn.commit();
+                return hash;
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not write the terms sheet: " + e.getMessage(), e);
+        }
+    }
+
+    // The chunks did not touch refCount; set it once from the rows that point at the blob
+    private void countTermsReferences() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement update = conn.prepareStatement(
+                 "UPDATE AttachmentBlobs SET refCount = (SELECT COUNT(*) FROM Attachments WHERE contentHash = ?) WHERE hash = ?");
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM AttachmentBlobs WHERE hash = ? AND refCount <= 0")) {
+            update.setString(1, termsHash);
+            update.setString(2, termsHash);
+            update.executeUpdate();
+            delete.setString(1, termsHash);
+            delete.executeUpdate();
+        }
+    }
+
+    private void writeAuditLogs(Connection conn, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO AuditLogs (timestamp, userId, entityType, entityId, action, description) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = from; i <= to; i++) {
+                boolean invoice = random.nextDouble() < 0.7;
+                String action = pick(random, AUDIT_ACTIONS);
+                String entityId = invoice ? invoiceId(1 + random.nextInt(Math.max(1, volumes.invoices)))
+                                          : String.valueOf(1 + random.nextInt(Math.max(1, volumes.payments)));
+                LocalDate day = daySampler.day(random, endDate);
+                stmt.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay().plusSeconds(8 * 3600 + random.nextInt(10 * 3600))));
+                stmt.setString(2, pick(random, USERS));
+                stmt.setString(3, invoice ? "Invoice" : "Payment");
+                stmt.setString(4, entityId);
+                stmt.setString(5, action);
+                stmt.setString(6, action + " " + (invoice ? "invoice " : "payment ") + entityId);
+                addBatch(stmt, i - from);
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void addBatch(PreparedStatement stmt, int index) throws SQLException {
+        stmt.addBatch();
+        if ((index + 1) % BATCH_SIZE == 0) {
+            stmt.executeBatch();
+        }
+    }
+
+    private String status(SplittableRandom random, LocalDate date) {
+        double roll = random.nextDouble();
+        if (roll < 0.03) {
+            return "CANCELLED";
+        }
+        boolean old = date.isBefore(endDate.minusDays(60));
+        return roll < (old ? 0.88 : 0.30) ? "PAID" : "OPEN";
+    }
+
+    // Independent, reproducible stream per table and chunk (SplitMix64 finalizer over the three inputs)
+    private SplittableRandom random(int tableId, int chunk) {
+        long z = seed + 0x9E3779B97F4A7C15L * (tableId * 1_000_003L + chunk + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    private static double logNormal(SplittableRandom random, double mu, double sigma) {
+        // Box-Muller; one of the pair is enough here
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.exp(mu + sigma * Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v));
+    }
+
+    private static int weighted(SplittableRandom random, double[] weights) {
+        double roll = random.nextDouble();
+        for (int i = 0; i < weights.length - 1; i++) {
+            roll -= weights[i];
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    // Draws 1-based indexes from a precomputed cumulative distribution
+    private static final class Sampler {
+        private final double[] cumulative;
+
+        private Sampler(double[] weights) {
+            cumulative = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < cumulative.length; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        // P(k) proportional to 1 / k^exponent; the Zipf ranks map straight onto IDs 1..n
+        static Sampler zipf(int n, double exponent) {
+            double[] weights = new double[Math.max(1, n)];
+            for (int k = 0; k < weights.length; k++) {
+                weights[k] = 1.0 / Math.pow(k + 1, exponent);
+            }
+            return new Sampler(weights);
+        }
+
+        // Day offsets back from the end date, weighted by month and with Fridays (the weekend) mostly quiet
+        static Sampler seasonal(LocalDate endDate, int days) {
+            double[] weights = new double[Math.max(1, days)];
+            for (int offset = 0; offset < weights.length; offset++) {
+                LocalDate day = endDate.minusDays(offset);
+                double weekday = day.getDayOfWeek() == DayOfWeek.FRIDAY ? 0.2
+                               : day.getDayOfWeek() == DayOfWeek.SATURDAY ? 0.7 : 1.0;
+                weights[offset] = MONTH_WEIGHTS[day.getMonthValue() - 1] * weekday;
+            }
+            return new Sampler(weights);
+        }
+
+        int next(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1) + 1;
+        }
+
+        LocalDate day(SplittableRandom random, LocalDate endDate) {
+            return endDate.minusDays(next(random) - 1L);
+        }
+    }
+
+    // Usage: SyntheticDataGenerator <jdbc-url> [user] [password], volumes and gen.seed/gen.threads as -D properties
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticDataGenerator <jdbc-url> [user] [password]");
+            System.exit(2);
+        }
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(args[0]);
+        config.setUsername(args.length > 1 ? args[1] : "sa");
+        config.setPassword(args.length > 2 ? args[2] : "");
+        config.setMaximumPoolSize(Integer.getInteger("gen.threads", Runtime.getRuntime().availableProcessors()) + 1);
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            new SyntheticDataGenerator(dataSource, Volumes.fromSystemProperties(), Long.getLong("gen.seed", 42L)).generate();
+        }
+    }
+}
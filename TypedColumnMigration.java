@@ -0,0 +1,114 @@
+package com.example.financial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Schema migration V1: converts the invoice, payment and expense date columns to DATE and their amount columns
+ * to DECIMAL. Existing 'yyyy-MM-dd' strings convert in place. Each column is checked against the database
+ * metadata first, so databases whose schema.sql already declares the typed columns are left untouched and a
+ * rerun only touches the columns still left. Every column is attempted; if any fails, apply() throws after the
+ * rest, so V1 stays pending and is retried on the next start. Until then SqlValues binds still compare
+ * correctly against the old column types, only without index range seeks.
+ */
+public class TypedColumnMigration implements SchemaMigrator.Step {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TypedColumnMigration.class);
+    private static final String AMOUNT_TYPE = "DECIMAL(19, " + SqlValues.AMOUNT_SCALE + ")";
+
+    private static final String[][] DATE_COLUMNS = {
+        {"Invoices", "date"},
+        {"Payments", "date"},
+        {"Expenses", "date"},
+    };
+
+    private static final String[][] AMOUNT_COLUMNS = {
+        {"Invoices", "totalAmount"},
+        {"Invoices", "taxAmount"},
+        {"Invoices", "shippingFee"},
+        {"Invoices", "transportingFee"},
+        {"Invoices", "uploadingFee"},
+        {"Invoices", "taxFee"},
+        {"InvoiceLineItems", "unitPrice"},
+        {"InvoiceLineItems", "totalPrice"},
+        {"InvoiceLineItems", "totalTax"},
+        {"Payments", "amount"},
+        {"Expenses", "amount"},
+    };
+
+    // What SchemaHistory checksums in place of a script: the columns and the types they get
+    public static String checksumSource() {
+        StringBuilder source = new StringBuilder();
+        for (String[] column : DATE_COLUMNS) {
+            source.append(column[0]).append('.').append(column[1]).append(" DATE\n");
+        }
+        for (String[] column : AMOUNT_COLUMNS) {
+            source.append(column[0]).append('.').append(column[1]).append(' ').append(AMOUNT_TYPE).append('\n');
+        }
+        return source.toString();
+    }
+
+    @Override
+    public void apply(Connection conn, SchemaMigrator.Engine engine) throws SQLException {
+        int converted = 0;
+        List<String> failed = new ArrayList<>();
+        SQLException firstFailure = null;
+        for (String[][] group : new String[][][] {DATE_COLUMNS, AMOUNT_COLUMNS}) {
+            for (String[] column : group) {
+                try {
+                    boolean changed = group == DATE_COLUMNS
+                        ? convert(conn, engine, column[0], column[1], "DATE", Types.DATE)
+                        : convert(conn, engine, column[0], column[1], AMOUNT_TYPE, Types.DECIMAL, Types.NUMERIC);
+                    if (changed) {
+                        converted++;
+                    }
+                } catch (SQLException e) {
+                    LOGGER.warn("Could not convert {}.{}; keeping the current type for now", column[0], column[1], e);
+                    failed.add(column[0] + "." + column[1]);
+                    firstFailure = firstFailure == null ? e : firstFailure;
+                }
+            }
+        }
+        LOGGER.info("Converted {} date/amount column(s) to typed storage", converted);
+        if (firstFailure != null) {
+            throw new SQLException("Could not convert " + String.join(", ", failed), firstFailure.getSQLState(), firstFailure);
+        }
+    }
+
+    // Alters one column unless it already has one of the accepted JDBC types or does not exist
+    private boolean convert(Connection conn, SchemaMigrator.Engine engine, String table, String column, String sqlType,
+                            int... accepted) throws SQLException {
+        Integer current = columnType(conn, table, column);
+        if (current == null) {
+            return false;
+        }
+        for (int type : accepted) {
+            if (current == type) {
+                return false;
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(engine == SchemaMigrator.Engine.MYSQL
+                ? "ALTER TABLE " + table + " MODIFY COLUMN " + column + " " + sqlType
+                : "ALTER TABLE " + table + " ALTER COLUMN " + column + " SET DATA TYPE " + sqlType);
+        }
+        LOGGER.info("Converted {}.{} to {}", table, column, sqlType);
+        return true;
+    }
+
+    private static Integer columnType(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, SchemaMigrator.identifier(meta, table),
+                                            SchemaMigrator.identifier(meta, column))) {
+            return rs.next() ? rs.getInt("DATA_TYPE") : null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.financial.benchmark;
+
+import com.example.financial.Attachment;
+import com.example.financial.AttachmentDescriptor;
+import com.example.financial.DatabaseException;
+import com.example.financial.DatabaseService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap cost of listing the attachments of one invoice with many large files: the metadata-only listing the
+ * panes use against loading every attachment with its content, as listings did before descriptors. Run with
+ * -prof gc and compare gc.alloc.rate.norm (bytes per operation) between the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AttachmentListingBenchmark {
+    @Param("50")
+    int attachmentCount;
+    @Param("2097152")
+    int attachmentBytes;
+
+    private BenchmarkDatabase database;
+    private DatabaseService service;
+    private String invoiceId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create();
+        database.seed(10, 1, 10, 1, 1, 0, 7);
+        invoiceId = database.seedAttachments(attachmentCount, 1, attachmentBytes, 7).get(0);
+        service = database.service();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<AttachmentDescriptor> listDescriptors() throws DatabaseException {
+        return service.getAttachmentsForInvoice(invoiceId);
+    }
+
+    @Benchmark
+    public List<Attachment> listWithContent() throws DatabaseException {
+        List<AttachmentDescriptor> descriptors = service.getAttachmentsForInvoice(invoiceId);
+        List<Attachment> attachments = new ArrayList<>(descriptors.size());
+        for (AttachmentDescriptor descriptor : descriptors) {
+            attachments.add(service.getAttachment(descriptor.getId()));
+        }
+        return attachments;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.financial.benchmark;
+
+import com.example.financial.DatabaseException;
+import com.example.financial.DatabaseService;
+import com.example.financial.SyntheticDataGenerator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * An in-memory H2 database with benchmark-schema.sql, installed as DatabaseService.dataSource and filled with a
+ * reproducible data set from SyntheticDataGenerator. Every trial gets its own database, so DatabaseService's per-DataSource caches start
+ * cold and a write benchmark cannot leak rows into the next one.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+    static final String[] NAME_WORDS = {
+        "Baghdad", "Basra", "Erbil", "Tigris", "Euphrates", "Golden", "Crescent", "Star", "Falcon", "Cedar",
+        "Trading", "Import", "Export", "Logistics", "Supplies", "Electronics", "Textiles", "Foods", "Steel", "Pharma"
+    };
+
+    private final HikariDataSource dataSource;
+    private final DatabaseService service;
+    private final List<String> invoiceIds = new ArrayList<>();
+    private int customers;
+
+    private BenchmarkDatabase(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+        DatabaseService.dataSource = dataSource;
+        this.service = new DatabaseService();
+    }
+
+    public static BenchmarkDatabase create() throws DatabaseException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bench" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;MODE=MySQL;" +
+                          "INIT=RUNSCRIPT FROM 'classpath:benchmark-schema.sql'");
+        config.setDriverClassName("org.h2.Driver");
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(Integer.getInteger("db.poolSize", 10));
+        BenchmarkDatabase database = new BenchmarkDatabase(new HikariDataSource(config));
+        database.service.migrateSchema();
+        database.service.migrateSchemaInBackground();
+        return database;
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public DatabaseService service() {
+        return service;
+    }
+
+    public List<String> invoiceIds() {
+        return invoiceIds;
+    }
+
+    public int customerCount() {
+        return customers;
+    }
+
+    // Contacts, products, invoices with line items and payments from SyntheticDataGenerator's skewed distributions
+    public void seed(int customerCount, int supplierCount, int productCount, int invoiceCount, int lineItemsPerInvoice,
+                     int paymentCount, long seed) throws SQLException {
+        SyntheticDataGenerator.Volumes volumes = new SyntheticDataGenerator.Volumes();
+        volumes.setCustomers(customerCount);
+        volumes.setSuppliers(supplierCount);
+        volumes.setProducts(productCount);
+        volumes.setInvoices(invoiceCount);
+        volumes.setLineItemsPerInvoice(lineItemsPerInvoice);
+        volumes.setPayments(paymentCount);
+        volumes.setExpenses(paymentCount / 4);
+        volumes.setAdjustments(0);
+        volumes.setAttachments(0); // seedAttachments adds them through DatabaseService instead
+        volumes.setAuditLogs(0);
+        new SyntheticDataGenerator(dataSource, volumes, seed).generate();
+        for (int i = 1; i <= invoiceCount; i++) {
+            invoiceIds.add(SyntheticDataGenerator.invoiceId(i));
+        }
+        customers = customerCount;
+    }
+
+    /**
+     * Adds attachments of random content through DatabaseService.addAttachment, spread round-robin over the first
+     * invoices, so they go through the blob store and search index like real uploads. Returns the invoice IDs used.
+     */
+    public List<String> seedAttachments(int count, int invoicesWithAttachments, int sizeBytes, long seed)
+            throws IOException, DatabaseException {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> owners = invoiceIds.subList(0, Math.min(invoicesWithAttachments, invoiceIds.size()));
+        Path file = Files.createTempFile("bench-attachment", ".bin");
+        try {
+            byte[] content = new byte[sizeBytes];
+            for (int i = 0; i < count; i++) {
+                // Distinct bytes per file, otherwise the blob store would deduplicate them into one
+                for (int b = 0; b < content.length; b += 8) {
+                    long value = random.nextLong();
+                    for (int k = 0; k < 8 && b + k < content.length; k++) {
+                        content[b + k] = (byte) (value >>> (8 * k));
+                    }
+                }
+                Files.write(file, content);
+                String owner = owners.get(i % owners.size());
+                service.addAttachment("INVOICE", owner, name(random) + " scan " + i + ".bin", file);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        return owners;
+    }
+
+    static String name(SplittableRandom random) {
+        return NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " " + NAME_WORDS[random.nextInt(NAME_WORDS.length)];
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.financial.benchmark;
+
+import com.example.financial.AttachmentDescriptor;
+import com.example.financial.DatabaseException;
+import com.example.financial.DatabaseService;
+import com.example.financial.InvoiceDetails;
+import com.example.financial.InvoiceLineItem;
+import com.example.financial.InvoiceSearchCriteria;
+import com.example.financial.LedgerPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DatabaseService hot paths against a seeded in-memory H2 database. Throughput and SampleTime modes together
+ * report ops/s and latency percentiles; add -prof gc for allocation rate and bytes per operation.
+ *
+ * Each benchmark method runs in its own fork with a fresh database, so saveInvoice growing the Invoices table
+ * does not affect the read benchmarks. Volumes are @Params, e.g. -p invoices=100000 -p lineItemsPerInvoice=10.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DatabaseServiceBenchmark {
+    @Param("1000")
+    int customers;
+    @Param("200")
+    int suppliers;
+    @Param("500")
+    int products;
+    @Param("10000")
+    int invoices;
+    @Param("5")
+    int lineItemsPerInvoice;
+    @Param("10000")
+    int payments;
+    @Param("500")
+    int attachments;
+    @Param("42")
+    long seed;
+
+    private BenchmarkDatabase database;
+    private DatabaseService service;
+    private String lastYearStart;
+    private String today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create();
+        database.seed(customers, suppliers, products, invoices, lineItemsPerInvoice, payments, seed);
+        database.seedAttachments(attachments, Math.max(1, attachments / 5), 4096, seed);
+        service = database.service();
+        today = LocalDate.now().toString();
+        lastYearStart = LocalDate.now().minusYears(1).toString();
+        // Load the in-memory balances, rollups and search index once so the first iteration is not an outlier
+        service.getCustomerBalance(1);
+        service.getSalesByProduct(lastYearStart, today);
+        service.searchAttachments("scan");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    // Per-thread choices, so concurrent runs (-t) do not all hit the same customer
+    @State(Scope.Thread)
+    public static class Picks {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+
+        int customerId(DatabaseServiceBenchmark benchmark) {
+            return 1 + random.nextInt(benchmark.customers);
+        }
+
+        String word() {
+            return BenchmarkDatabase.NAME_WORDS[random.nextInt(BenchmarkDatabase.NAME_WORDS.length)];
+        }
+    }
+
+    @Benchmark
+    public String saveInvoice(Picks picks) throws DatabaseException {
+        List<InvoiceLineItem> items = List.of(
+            new InvoiceLineItem(0, 1, 1, 3, "pcs", 19.5, 58.5, 0, 0, 0, 0, 0.1, 5.85, "USD"),
+            new InvoiceLineItem(0, 2, 1, 1, "pcs", 240.0, 240.0, 0, 0, 0, 0, 0.1, 24.0, "USD"));
+        return service.saveInvoice(picks.customerId(this), null, "Sale", today, 328.35, 29.85, "USD", items, "OPEN",
+            null, "Net 30", null, 1.0, 0, 0, 0, 0);
+    }
+
+    @Benchmark
+    public List<InvoiceDetails> getAllInvoices() throws DatabaseException {
+        return service.getAllInvoices();
+    }
+
+    // One customer's sales over the last year, as ContactsPane.showActivityDetails searches
+    @Benchmark
+    public List<InvoiceDetails> searchInvoices(Picks picks) throws DatabaseException {
+        InvoiceSearchCriteria criteria = new InvoiceSearchCriteria();
+        criteria.setCustomerId(picks.customerId(this));
+        criteria.setInvoiceType("Sale");
+        criteria.setFromDate(LocalDate.now().minusYears(1));
+        criteria.setToDate(LocalDate.now());
+        return service.searchInvoices(criteria);
+    }
+
+    @Benchmark
+    public double getCustomerBalance(Picks picks) throws DatabaseException {
+        return service.getCustomerBalance(picks.customerId(this));
+    }
+
+    // First page of a customer's activity ledger (invoices and payments with running balance)
+    @Benchmark
+    public LedgerPage getCustomerActivity(Picks picks) throws DatabaseException {
+        return service.getCustomerLedgerPage(picks.customerId(this), null, 50);
+    }
+
+    @Benchmark
+    public Map<String, Double> getSalesByProduct() throws DatabaseException {
+        return service.getSalesByProduct(lastYearStart, today);
+    }
+
+    @Benchmark
+    public List<Object[]> getAgingAnalysis() throws DatabaseException {
+        return service.getAgingAnalysis();
+    }
+
+    @Benchmark
+    public List<AttachmentDescriptor> searchAttachments(Picks picks) throws DatabaseException {
+        return service.searchAttachments(picks.word().toLowerCase());
+    }
+}
@@ -0,0 +1,88 @@
+-- Tables DatabaseService reads and writes, with the column types SchemaMigrations V1 produces.
+-- The application's own schema.sql is not part of this repository; keep this in step with the queries.
+
+CREATE TABLE IF NOT EXISTS Customers (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL, contactInfo VARCHAR(255));
+CREATE TABLE IF NOT EXISTS Suppliers (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL, contactInfo VARCHAR(255));
+CREATE TABLE IF NOT EXISTS Products (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL);
+CREATE TABLE IF NOT EXISTS ProductUnits (productId INT NOT NULL, unit VARCHAR(32) NOT NULL, PRIMARY KEY (productId, unit));
+CREATE TABLE IF NOT EXISTS Inventory (productId INT NOT NULL, warehouseId INT NOT NULL, quantity INT NOT NULL,
+    PRIMARY KEY (productId, warehouseId));
+
+CREATE TABLE IF NOT EXISTS Invoices (
+    invoiceId VARCHAR(32) PRIMARY KEY,
+    customerId INT,
+    supplierId INT,
+    invoiceType VARCHAR(32) NOT NULL,
+    date DATE,
+    totalAmount DECIMAL(19, 4),
+    taxAmount DECIMAL(19, 4),
+    currency VARCHAR(8),
+    status VARCHAR(16),
+    paymentInstructions VARCHAR(255),
+    paymentTerm VARCHAR(64),
+    notes VARCHAR(1024),
+    exchangeRate DOUBLE,
+    shippingFee DECIMAL(19, 4),
+    transportingFee DECIMAL(19, 4),
+    uploadingFee DECIMAL(19, 4),
+    taxFee DECIMAL(19, 4)
+);
+CREATE INDEX IF NOT EXISTS idx_invoices_customer ON Invoices (customerId);
+CREATE INDEX IF NOT EXISTS idx_invoices_supplier ON Invoices (supplierId);
+
+CREATE TABLE IF NOT EXISTS InvoiceLineItems (
+    lineItemId INT AUTO_INCREMENT PRIMARY KEY,
+    invoiceId VARCHAR(32) NOT NULL,
+    productId INT,
+    warehouseId INT,
+    quantity INT,
+    unit VARCHAR(32),
+    unitPrice DECIMAL(19, 4),
+    totalPrice DECIMAL(19, 4),
+    paidAmount DOUBLE,
+    receivedAmount DOUBLE,
+    discount DOUBLE,
+    fixedDiscount DOUBLE,
+    taxRate DOUBLE,
+    totalTax DECIMAL(19, 4),
+    currency VARCHAR(8)
+);
+CREATE INDEX IF NOT EXISTS idx_line_items_invoice ON InvoiceLineItems (invoiceId, lineItemId);
+
+CREATE TABLE IF NOT EXISTS Payments (
+    paymentId INT AUTO_INCREMENT PRIMARY KEY,
+    customerId INT,
+    supplierId INT,
+    contactType VARCHAR(16),
+    amount DECIMAL(19, 4),
+    currency VARCHAR(8),
+    exchangeRate DOUBLE,
+    date DATE,
+    status VARCHAR(16)
+);
+CREATE INDEX IF NOT EXISTS idx_payments_customer ON Payments (customerId);
+CREATE INDEX IF NOT EXISTS idx_payments_supplier ON Payments (supplierId);
+
+CREATE TABLE IF NOT EXISTS Expenses (id INT AUTO_INCREMENT PRIMARY KEY, category VARCHAR(64), amount DECIMAL(19, 4),
+    date DATE, description VARCHAR(255), currency VARCHAR(8));
+CREATE TABLE IF NOT EXISTS Budgets (category VARCHAR(64) PRIMARY KEY, amount DOUBLE, startDate VARCHAR(10), endDate VARCHAR(10));
+CREATE TABLE IF NOT EXISTS Adjustments (id INT AUTO_INCREMENT PRIMARY KEY, type VARCHAR(32), description VARCHAR(255),
+    amount DOUBLE, accountFrom INT, accountTo INT, date VARCHAR(10), currency VARCHAR(8), exchangeRate DOUBLE);
+CREATE TABLE IF NOT EXISTS RecurringInvoices (id INT AUTO_INCREMENT PRIMARY KEY, invoiceId VARCHAR(32), frequencyType VARCHAR(16),
+    frequencyInterval INT, nextDate VARCHAR(10), endDate VARCHAR(10), lastGenerated VARCHAR(10));
+
+CREATE TABLE IF NOT EXISTS Attachments (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    entityType VARCHAR(32),
+    entityId VARCHAR(64),
+    contactId INT,
+    contactName VARCHAR(255),
+    fileName VARCHAR(255),
+    fileSize BIGINT,
+    uploadDate VARCHAR(10),
+    content BLOB
+);
+CREATE INDEX IF NOT EXISTS idx_attachments_entity ON Attachments (entityType, entityId);
+
+CREATE TABLE IF NOT EXISTS AuditLogs (id INT AUTO_INCREMENT PRIMARY KEY, timestamp TIMESTAMP, userId VARCHAR(64),
+    entityType VARCHAR(64), entityId VARCHAR(64), action VARCHAR(255), description VARCHAR(1024));